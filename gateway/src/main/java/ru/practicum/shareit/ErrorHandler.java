@@ -17,14 +17,10 @@ import javax.validation.ConstraintViolationException;
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
-    @ExceptionHandler
-    @ResponseStatus(HttpStatus.CONFLICT)
-    public ErrorResponse handleValidationPatchException(ConstraintViolationException e) {
-        log.info("409 Conflicting Request");
-        return new ErrorResponse("Неверный запрос: " + e.getMessage());
-    }
-
+    // ConstraintViolationException в шлюзе бросает только проверка параметров контроллеров, например элементов
+    // и размера пакета бронирований, поэтому это такой же неверный запрос, как и ошибка в теле.
     @ExceptionHandler({MethodArgumentNotValidException.class,
+            ConstraintViolationException.class,
             ValidationUserRequestDtoException.class,
             ValidationItemDtoException.class,
             EmptyCommentException.class})
@@ -8,9 +8,15 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionRequestDto;
 import ru.practicum.shareit.booking.dto.State;
 import ru.practicum.shareit.client.BaseClient;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -27,41 +33,66 @@ public class BookingClient extends BaseClient {
         );
     }
 
-    public ResponseEntity<Object> getAllByIdUser(long userId, State state, Integer from, Integer size) {
+    public ResponseEntity<Object> getAllByIdUser(long userId, State state, Integer from, Integer size,
+                                                 boolean archived) {
         if (from == null || size == null) {
             Map<String, Object> parameters = Map.of(
-                    "state", state.name()
+                    "state", state.name(),
+                    "archived", archived
             );
-            return get("?state={state}", userId, parameters);
+            return get("?state={state}&archived={archived}", userId, parameters);
         }
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
-                "size", size
+                "size", size,
+                "archived", archived
         );
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+        return get("?state={state}&from={from}&size={size}&archived={archived}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getAllByIdOwner(long userId, State state, Integer from, Integer size) {
+    public ResponseEntity<Object> getAllByIdOwner(long userId, State state, Integer from, Integer size,
+                                                  boolean archived) {
         if (from == null || size == null) {
             Map<String, Object> parameters = Map.of(
-                    "state", state.name()
+                    "state", state.name(),
+                    "archived", archived
             );
-            return get("/owner" + "?state={state}", userId, parameters);
+            return get("/owner" + "?state={state}&archived={archived}", userId, parameters);
         }
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
-                "size", size
+                "size", size,
+                "archived", archived
         );
-        return get("/owner" + "?state={state}&from={from}&size={size}", userId, parameters);
+        return get("/owner" + "?state={state}&from={from}&size={size}&archived={archived}", userId, parameters);
     }
 
+    public ResponseEntity<Object> getAllByIdUserAfter(long userId, State state, String after, Integer size) {
+        return get(cursorQuery(size), userId, cursorParameters(state, after, size));
+    }
+
+    public ResponseEntity<Object> getAllByIdOwnerAfter(long userId, State state, String after, Integer size) {
+        return get("/owner" + cursorQuery(size), userId, cursorParameters(state, after, size));
+    }
+
+    public ResponseEntity<Object> getStatsByIdUser(long userId) {
+        return get("/stats", userId);
+    }
+
+    public ResponseEntity<Object> getStatsByIdOwner(long userId) {
+        return get("/owner/stats", userId);
+    }
 
     public ResponseEntity<Object> addBooking(long userId, BookItemRequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
+    public ResponseEntity<Object> addBookings(long userId, List<BookItemRequestDto> requestDtos) {
+        return post("/batch", userId, requestDtos);
+    }
+
     public ResponseEntity<Object> patchBooking(long userId, long bookingId, Boolean isApproved) {
         Map<String, Object> parameters = Map.of(
                 "approved", isApproved
@@ -69,7 +100,60 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
+    public ResponseEntity<Object> patchBookings(long userId, Boolean isApproved, BookingDecisionRequestDto requestDto) {
+        Map<String, Object> parameters = Map.of(
+                "approved", isApproved
+        );
+        return patch("/batch" + "?approved={approved}", userId, parameters, requestDto);
+    }
+
     public ResponseEntity<Object> getByIdBooking(long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
+
+    public ResponseEntity<Object> startExport(long userId, boolean isOwner, State state, String format,
+                                              LocalDateTime from, LocalDateTime to, boolean archived) {
+        StringBuilder path = new StringBuilder("/export?owner={owner}&state={state}&format={format}" +
+                "&archived={archived}");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("owner", isOwner);
+        parameters.put("state", state.name());
+        parameters.put("format", format);
+        parameters.put("archived", archived);
+        if (from != null) {
+            path.append("&from={from}");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            path.append("&to={to}");
+            parameters.put("to", to);
+        }
+        return post(path.toString(), userId, parameters, null);
+    }
+
+    public ResponseEntity<Object> getExport(long userId, String jobId) {
+        return get("/export/{jobId}", userId, Map.of("jobId", jobId));
+    }
+
+    public void downloadExport(long userId, String jobId, HttpServletResponse response) throws IOException {
+        download("/export/{jobId}/file", userId, Map.of("jobId", jobId), response);
+    }
+
+    private static String cursorQuery(Integer size) {
+        return size == null ? "?state={state}&after={after}" : "?state={state}&after={after}&size={size}";
+    }
+
+    private static Map<String, Object> cursorParameters(State state, String after, Integer size) {
+        if (size == null) {
+            return Map.of(
+                    "state", state.name(),
+                    "after", after
+            );
+        }
+        return Map.of(
+                "state", state.name(),
+                "after", after,
+                "size", size
+        );
+    }
 }
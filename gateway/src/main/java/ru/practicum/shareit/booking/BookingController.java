@@ -3,16 +3,23 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionRequestDto;
 import ru.practicum.shareit.booking.dto.State;
 import ru.practicum.shareit.booking.exceptions.WrongStateException;
 import ru.practicum.shareit.item.exceptions.IncorrectParameterException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 @Controller
@@ -21,6 +28,8 @@ import java.util.Objects;
 @Slf4j
 @Validated
 public class BookingController {
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final BookingClient bookingClient;
 
     @GetMapping
@@ -28,13 +37,15 @@ public class BookingController {
                                                  @RequestParam(value = "state", defaultValue = "ALL", required = false)
                                                  String stateString,
                                                  @RequestParam(value = "from", required = false) Integer from,
-                                                 @RequestParam(value = "size", required = false) Integer size) {
+                                                 @RequestParam(value = "size", required = false) Integer size,
+                                                 @RequestParam(value = "archived", defaultValue = "false")
+                                                 boolean archived) {
         compareStateAndStringFromJson(stateString);
         checkParameters(from, size);
 
         log.info("Запрос получения списка всех бронирований со статусом: {} пользователя с id: {}",
                 stateString, idUser);
-        return bookingClient.getAllByIdUser(idUser, State.valueOf(stateString), from, size);
+        return bookingClient.getAllByIdUser(idUser, State.valueOf(stateString), from, size, archived);
     }
 
     @GetMapping("/owner")
@@ -42,13 +53,55 @@ public class BookingController {
                                                   @RequestParam(value = "state", defaultValue = "ALL", required = false)
                                                   String stateString,
                                                   @RequestParam(value = "from", required = false) Integer from,
-                                                  @RequestParam(value = "size", required = false) Integer size) {
+                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                  @RequestParam(value = "archived", defaultValue = "false")
+                                                  boolean archived) {
         compareStateAndStringFromJson(stateString);
         checkParameters(from, size);
 
         log.info("Запрос получения списка всех бронирований со статусом: {} вещей владельца с id: {}",
                 stateString, idUser);
-        return bookingClient.getAllByIdOwner(idUser, State.valueOf(stateString), from, size);
+        return bookingClient.getAllByIdOwner(idUser, State.valueOf(stateString), from, size, archived);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Object> getStatsByIdUser(@RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
+        log.info("Запрос счетчиков бронирований пользователя с id: {}", idUser);
+        return bookingClient.getStatsByIdUser(idUser);
+    }
+
+    @GetMapping("/owner/stats")
+    public ResponseEntity<Object> getStatsByIdOwner(@RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
+        log.info("Запрос счетчиков бронирований вещей владельца с id: {}", idUser);
+        return bookingClient.getStatsByIdOwner(idUser);
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<Object> getAllByIdUserAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                      @RequestParam(value = "state", defaultValue = "ALL",
+                                                              required = false) String stateString,
+                                                      @RequestParam(value = "after") String after,
+                                                      @RequestParam(value = "size", required = false) Integer size) {
+        compareStateAndStringFromJson(stateString);
+        checkSize(size);
+
+        log.info("Запрос получения страницы бронирований со статусом: {} пользователя с id: {} после курсора: {}",
+                stateString, idUser, after);
+        return bookingClient.getAllByIdUserAfter(idUser, State.valueOf(stateString), after, size);
+    }
+
+    @GetMapping(value = "/owner", params = "after")
+    public ResponseEntity<Object> getAllByIdOwnerAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                       @RequestParam(value = "state", defaultValue = "ALL",
+                                                               required = false) String stateString,
+                                                       @RequestParam(value = "after") String after,
+                                                       @RequestParam(value = "size", required = false) Integer size) {
+        compareStateAndStringFromJson(stateString);
+        checkSize(size);
+
+        log.info("Запрос получения страницы бронирований со статусом: {} вещей владельца с id: {} после курсора: {}",
+                stateString, idUser, after);
+        return bookingClient.getAllByIdOwnerAfter(idUser, State.valueOf(stateString), after, size);
     }
 
     @PostMapping
@@ -58,6 +111,14 @@ public class BookingController {
         return bookingClient.addBooking(userId, requestDto);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Object> addBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                              @RequestBody @Size(max = MAX_BATCH_SIZE)
+                                              List<@Valid BookItemRequestDto> requestDtos) {
+        log.info("Запрос пакетного создания {} бронирований пользователем с id: {}", requestDtos.size(), userId);
+        return bookingClient.addBookings(userId, requestDtos);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<Object> patchBooking(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
                                                @RequestParam(value = "approved") Boolean isApproved,
@@ -68,6 +129,17 @@ public class BookingController {
         return bookingClient.patchBooking(idUser, bookingId, isApproved);
     }
 
+    @PatchMapping("/batch")
+    public ResponseEntity<Object> patchBookings(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                @RequestParam(value = "approved") Boolean isApproved,
+                                                @RequestBody BookingDecisionRequestDto requestDto) {
+        checkDecision(requestDto);
+
+        log.info("Запрос пакетного подтверждения/отклонения бронирований: {} пользователем с id:{} по условию: {}",
+                isApproved, idUser, requestDto);
+        return bookingClient.patchBookings(idUser, isApproved, requestDto);
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<Object> getByIdBooking(@RequestHeader("X-Sharer-User-Id") long userId,
                                                  @PathVariable Long bookingId) {
@@ -75,6 +147,47 @@ public class BookingController {
         return bookingClient.getByIdBooking(userId, bookingId);
     }
 
+    @PostMapping("/export")
+    public ResponseEntity<Object> startExport(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                              @RequestParam(value = "owner", defaultValue = "false") Boolean isOwner,
+                                              @RequestParam(value = "state", defaultValue = "ALL") String stateString,
+                                              @RequestParam(value = "format", defaultValue = "NDJSON")
+                                              String format,
+                                              @RequestParam(value = "from", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                              @RequestParam(value = "to", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                              @RequestParam(value = "archived", defaultValue = "false")
+                                              boolean archived) {
+        compareStateAndStringFromJson(stateString);
+        if (!format.equalsIgnoreCase("NDJSON") && !format.equalsIgnoreCase("CSV")) {
+            log.info("Задан неизвестный формат выгрузки = {}", format);
+            throw new IncorrectParameterException("format");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            log.info("Задан неправильный период выгрузки: from = {}, to = {}", from, to);
+            throw new IncorrectParameterException("from или to");
+        }
+
+        log.info("Запрос выгрузки {} бронирований со статусом: {} за период {} - {} пользователем с id: {}, " +
+                "как владельцем: {}, с архивом: {}", format, stateString, from, to, idUser, isOwner, archived);
+        return bookingClient.startExport(idUser, isOwner, State.valueOf(stateString), format, from, to, archived);
+    }
+
+    @GetMapping("/export/{jobId}")
+    public ResponseEntity<Object> getExport(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                            @PathVariable(value = "jobId") String jobId) {
+        log.info("Запрос статуса выгрузки с id: {} пользователем с id: {}", jobId, idUser);
+        return bookingClient.getExport(idUser, jobId);
+    }
+
+    @GetMapping("/export/{jobId}/file")
+    public void downloadExport(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                               @PathVariable(value = "jobId") String jobId,
+                               HttpServletResponse response) throws IOException {
+        log.info("Запрос файла выгрузки с id: {} пользователем с id: {}", jobId, idUser);
+        bookingClient.downloadExport(idUser, jobId, response);
+    }
 
     private void compareStateAndStringFromJson(String stateString) {
         if (!Objects.equals(stateString, State.ALL.toString()) &&
@@ -92,10 +205,7 @@ public class BookingController {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
@@ -103,5 +213,22 @@ public class BookingController {
         }
     }
 
+    private void checkDecision(BookingDecisionRequestDto requestDto) {
+        List<Long> bookingIds = requestDto.getBookingIds();
+        if (bookingIds == null && requestDto.getItemId() == null) {
+            log.info("Не заданы ни id бронирований, ни id вещи");
+            throw new IncorrectParameterException("bookingIds или itemId");
+        }
+        if (bookingIds != null && (bookingIds.isEmpty() || bookingIds.size() > MAX_BATCH_SIZE)) {
+            log.info("Задано неправильное количество id бронирований = {}", bookingIds.size());
+            throw new IncorrectParameterException("bookingIds");
+        }
+    }
 
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
 }
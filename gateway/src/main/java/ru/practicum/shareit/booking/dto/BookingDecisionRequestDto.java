@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class BookingDecisionRequestDto {
+    private List<Long> bookingIds;
+    private Long itemId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
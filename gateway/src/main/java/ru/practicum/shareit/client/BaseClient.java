@@ -1,5 +1,6 @@
 package ru.practicum.shareit.client;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -9,9 +10,12 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.servlet.http.HttpServletResponse;
+
 public class BaseClient {
     protected final RestTemplate rest;
 
@@ -79,6 +83,31 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    // Файлы не разбираются как JSON, а копируются потоком из ответа сервера прямо в ответ шлюза.
+    protected void download(String path, long userId, Map<String, Object> parameters, HttpServletResponse response)
+            throws IOException {
+        try {
+            rest.execute(path, HttpMethod.GET,
+                    request -> request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId)),
+                    shareitServerResponse -> {
+                        HttpHeaders headers = shareitServerResponse.getHeaders();
+                        response.setStatus(shareitServerResponse.getRawStatusCode());
+                        for (String name : List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_DISPOSITION,
+                                HttpHeaders.CONTENT_LENGTH)) {
+                            if (headers.containsKey(name)) {
+                                response.setHeader(name, headers.getFirst(name));
+                            }
+                        }
+                        StreamUtils.copy(shareitServerResponse.getBody(), response.getOutputStream());
+                        return null;
+                    }, parameters);
+        } catch (HttpStatusCodeException e) {
+            response.setStatus(e.getRawStatusCode());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(e.getResponseBodyAsByteArray());
+        }
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId,
                                                           @Nullable Map<String, Object> parameters, @Nullable T body) {
         HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
@@ -10,7 +10,10 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.AddCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -46,26 +49,98 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<Object> getAllByIdUserAfter(long userId, String after, Integer size) {
+        if (size == null) {
+            Map<String, Object> parameters = Map.of(
+                    "after", after
+            );
+            return get("?after={after}", userId, parameters);
+        }
+        Map<String, Object> parameters = Map.of(
+                "after", after,
+                "size", size
+        );
+        return get("?after={after}&size={size}", userId, parameters);
+    }
+
     public ResponseEntity<Object> getByIdItem(long itemId, long idUser) {
         return get("/" + itemId, idUser);
     }
 
-    public ResponseEntity<Object> searchItem(long userId, String text, Integer from, Integer size) {
-        if (from == null || size == null) {
+    public ResponseEntity<Object> getAvailability(long itemId, long userId, LocalDateTime from, LocalDateTime to,
+                                                  Boolean includeWaiting) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to,
+                "includeWaiting", includeWaiting
+        );
+        return get("/" + itemId + "/availability" + "?from={from}&to={to}&includeWaiting={includeWaiting}",
+                userId, parameters);
+    }
+
+    public ResponseEntity<Object> searchItem(long userId, String text, Integer from, Integer size, Boolean fuzzy,
+                                             ItemSearchFilter filter) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
+                "text", text,
+                "fuzzy", fuzzy
+        ));
+        StringBuilder path = new StringBuilder("/search?text={text}&fuzzy={fuzzy}");
+        if (from != null && size != null) {
+            parameters.put("from", from);
+            parameters.put("size", size);
+            path.append("&from={from}&size={size}");
+        }
+        appendFilters(path, parameters, filter);
+        return get(path.toString(), userId, parameters);
+    }
+
+    public ResponseEntity<Object> suggest(long userId, String prefix, Integer size) {
+        if (size == null) {
             Map<String, Object> parameters = Map.of(
-                    "text", text
+                    "prefix", prefix
             );
-            return get("/search" + "?text={text}", userId, parameters);
+            return get("/suggest" + "?prefix={prefix}", userId, parameters);
         }
         Map<String, Object> parameters = Map.of(
-                "text", text,
-                "from", from,
+                "prefix", prefix,
                 "size", size
         );
-        return get("/search" + "?text={text}&from={from}&size={size}", userId, parameters);
+        return get("/suggest" + "?prefix={prefix}&size={size}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> searchItemAfter(long userId, String text, String after, Integer size,
+                                                  Boolean fuzzy, ItemSearchFilter filter) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
+                "text", text,
+                "after", after,
+                "fuzzy", fuzzy
+        ));
+        StringBuilder path = new StringBuilder("/search?text={text}&after={after}&fuzzy={fuzzy}");
+        if (size != null) {
+            parameters.put("size", size);
+            path.append("&size={size}");
+        }
+        appendFilters(path, parameters, filter);
+        return get(path.toString(), userId, parameters);
     }
 
     public ResponseEntity<Object> addComment(long userId, long itemId, AddCommentDto addCommentDto) {
         return post("/" + itemId + "/comment", userId, addCommentDto);
     }
+
+    private static void appendFilters(StringBuilder path, Map<String, Object> parameters, ItemSearchFilter filter) {
+        if (filter.getOwnerId() != null) {
+            parameters.put("ownerId", filter.getOwnerId());
+            path.append("&ownerId={ownerId}");
+        }
+        if (filter.getWithRequest() != null) {
+            parameters.put("withRequest", filter.getWithRequest());
+            path.append("&withRequest={withRequest}");
+        }
+        if (filter.getStart() != null && filter.getEnd() != null) {
+            parameters.put("start", filter.getStart());
+            parameters.put("end", filter.getEnd());
+            path.append("&start={start}&end={end}");
+        }
+    }
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -9,10 +10,13 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.Create;
 import ru.practicum.shareit.item.dto.AddCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 import ru.practicum.shareit.item.exceptions.EmptyCommentException;
 import ru.practicum.shareit.item.exceptions.IncorrectParameterException;
 import ru.practicum.shareit.item.exceptions.ValidationItemDtoException;
 
+import java.time.LocalDateTime;
+
 @Controller
 @RequestMapping(path = "/items")
 @RequiredArgsConstructor
@@ -48,6 +52,15 @@ public class ItemController {
         return itemClient.getAllByIdUser(idUser, from, size);
     }
 
+    @GetMapping(params = "after")
+    public ResponseEntity<Object> getAllByIdUserAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                      @RequestParam(value = "after") String after,
+                                                      @RequestParam(value = "size", required = false) Integer size) {
+        checkSize(size);
+        log.info("Запрос страницы вещей пользователя с id: {} после курсора: {}", idUser, after);
+        return itemClient.getAllByIdUserAfter(idUser, after, size);
+    }
+
     @GetMapping("/{itemId}")
     public ResponseEntity<Object> getById(@PathVariable(value = "itemId") Long itemId,
                                           @RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
@@ -59,10 +72,70 @@ public class ItemController {
     public ResponseEntity<Object> search(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
                                          @RequestParam(name = "text") String text,
                                          @RequestParam(value = "from", required = false) Integer from,
-                                         @RequestParam(value = "size", required = false) Integer size) {
+                                         @RequestParam(value = "size", required = false) Integer size,
+                                         @RequestParam(value = "fuzzy", defaultValue = "false") Boolean fuzzy,
+                                         @RequestParam(value = "ownerId", required = false) Long ownerId,
+                                         @RequestParam(value = "withRequest", required = false) Boolean withRequest,
+                                         @RequestParam(value = "start", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                         @RequestParam(value = "end", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
         log.info("Поиск свободных вещей по строке: {}", text);
         checkParameters(from, size);
-        return itemClient.searchItem(idUser, text, from, size);
+        checkPeriod(start, end);
+        return itemClient.searchItem(idUser, text, from, size, fuzzy, new ItemSearchFilter(ownerId, withRequest,
+                start, end));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Object> suggest(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                          @RequestParam(name = "prefix") String prefix,
+                                          @RequestParam(value = "size", required = false) Integer size) {
+        log.info("Подсказки названий вещей по префиксу: {}", prefix);
+        checkSize(size);
+        return itemClient.suggest(idUser, prefix, size);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getAvailability(@PathVariable(value = "itemId") Long itemId,
+                                                  @RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                  @RequestParam(value = "from")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime from,
+                                                  @RequestParam(value = "to")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime to,
+                                                  @RequestParam(value = "includeWaiting", defaultValue = "false")
+                                                  Boolean includeWaiting) {
+        if (!from.isBefore(to)) {
+            log.info("Задан неправильный период занятости с {} по {}", from, to);
+            throw new IncorrectParameterException("from или to");
+        }
+
+        log.info("Запрос занятости вещи с id: {} с {} по {} пользователем с id={}", itemId, from, to, idUser);
+        return itemClient.getAvailability(itemId, idUser, from, to, includeWaiting);
+    }
+
+    @GetMapping(value = "/search", params = "after")
+    public ResponseEntity<Object> searchAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                              @RequestParam(name = "text") String text,
+                                              @RequestParam(value = "after") String after,
+                                              @RequestParam(value = "size", required = false) Integer size,
+                                              @RequestParam(value = "fuzzy", defaultValue = "false") Boolean fuzzy,
+                                              @RequestParam(value = "ownerId", required = false) Long ownerId,
+                                              @RequestParam(value = "withRequest", required = false)
+                                              Boolean withRequest,
+                                              @RequestParam(value = "start", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime start,
+                                              @RequestParam(value = "end", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                              LocalDateTime end) {
+        log.info("Поиск страницы свободных вещей по строке: {} после курсора: {}", text, after);
+        checkSize(size);
+        checkPeriod(start, end);
+        return itemClient.searchItemAfter(idUser, text, after, size, fuzzy, new ItemSearchFilter(ownerId,
+                withRequest, start, end));
     }
 
     @PostMapping("/{itemId}/comment")
@@ -82,10 +155,7 @@ public class ItemController {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
@@ -102,4 +172,17 @@ public class ItemController {
         }
     }
 
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
+
+    private void checkPeriod(LocalDateTime start, LocalDateTime end) {
+        if ((start == null) != (end == null) || (start != null && !start.isBefore(end))) {
+            log.info("Задан неправильный период поиска свободных вещей с {} по {}", start, end);
+            throw new IncorrectParameterException("start или end");
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSearchFilter {
+    private Long ownerId;
+    private Boolean withRequest;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
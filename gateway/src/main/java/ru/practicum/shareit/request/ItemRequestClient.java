@@ -49,5 +49,17 @@ public class ItemRequestClient extends BaseClient {
         return get("/all" + "?from={from}&size={size}", userId, parameters);
     }
 
-
+    public ResponseEntity<Object> getAllByIdUserAfter(long userId, String after, Integer size) {
+        if (size == null) {
+            Map<String, Object> parameters = Map.of(
+                    "after", after
+            );
+            return get("/all" + "?after={after}", userId, parameters);
+        }
+        Map<String, Object> parameters = Map.of(
+                "after", after,
+                "size", size
+        );
+        return get("/all" + "?after={after}&size={size}", userId, parameters);
+    }
 }
@@ -51,15 +51,22 @@ public class ItemRequestController {
         return itemRequestClient.getAllByIdUser(idUser, from, size);
     }
 
+    @GetMapping(value = "/all", params = "after")
+    public ResponseEntity<Object> getAllByUserIdAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                      @RequestParam(value = "after") String after,
+                                                      @RequestParam(value = "size", required = false) Integer size) {
+        checkSize(size);
+
+        log.info("Запрос страницы запросов вещей пользователем с id: {} после курсора: {}", idUser, after);
+        return itemRequestClient.getAllByIdUserAfter(idUser, after, size);
+    }
+
     private void checkParameters(Integer from, Integer size) {
         if (from != null && from < 0) {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
@@ -67,6 +74,10 @@ public class ItemRequestController {
         }
     }
 
-
-
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
 }
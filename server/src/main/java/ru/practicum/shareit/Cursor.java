@@ -0,0 +1,46 @@
+package ru.practicum.shareit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Getter
+@AllArgsConstructor
+public class Cursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime time;
+    private final long id;
+
+    public static String encode(long id) {
+        return encode(null, id);
+    }
+
+    public static String encode(LocalDateTime time, long id) {
+        String value = time == null ? String.valueOf(id) : time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Пустая строка означает первую страницу и декодируется в null.
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return new Cursor(null, Long.parseLong(value));
+            }
+            return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IncorrectParameterException("after");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_SIZE = 20;
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    // rows выбираются с запасом в один элемент: его наличие означает, что есть следующая страница,
+    // и позволяет обойтись без COUNT.
+    public static <E, T> CursorPage<T> of(List<E> rows, int size, Function<E, T> mapper,
+                                          Function<E, String> cursor) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        return new CursorPage<>(page.stream().map(mapper).collect(Collectors.toList()),
+                hasNext ? cursor.apply(page.get(page.size() - 1)) : null);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(content);
+    }
+}
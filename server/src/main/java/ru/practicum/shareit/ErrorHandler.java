@@ -2,6 +2,7 @@ package ru.practicum.shareit;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -34,7 +35,8 @@ public class ErrorHandler {
             NoBookingBookerException.class,
             NoBookingOwnerException.class,
             ValidationBelongsItemToUser.class,
-            NoItemRequestException.class})
+            NoItemRequestException.class,
+            NoExportJobException.class})
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleValidationPatchException(Exception e) {
         log.info("404 Not Found");
@@ -69,6 +71,28 @@ public class ErrorHandler {
         return new ErrorResponse("Ошибка с полем: " + e.getParameter());
     }
 
+    @ExceptionHandler({BookingStatusConflictException.class,
+            ObjectOptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConcurrentUpdateException(Exception e) {
+        log.info("409 Conflicting Request");
+        return new ErrorResponse("Неверный запрос: " + e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleExportNotReadyException(ExportNotReadyException e) {
+        log.info("409 Conflicting Request");
+        return new ErrorResponse("Неверный запрос: " + e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ErrorResponse handleExportQueueFullException(ExportQueueFullException e) {
+        log.info("429 Too Many Requests");
+        return new ErrorResponse("Неверный запрос: " + e.getMessage());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleException(Throwable e) {
@@ -2,15 +2,22 @@ package ru.practicum.shareit.booking.controllers;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
 import ru.practicum.shareit.booking.services.BookingService;
 import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.exceptions.WrongStateException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @RestController
@@ -18,6 +25,8 @@ import java.util.Objects;
 @Slf4j
 @RequiredArgsConstructor
 public class BookingController {
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final BookingService bookingService;
 
     @PostMapping
@@ -29,6 +38,18 @@ public class BookingController {
         return bookingService.add(idUser, addBookingDto);
     }
 
+    @PostMapping("/batch")
+    public List<BookingBatchResultDto> addBatch(@RequestBody List<AddBookingDto> addBookingDtoList,
+                                                @RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
+        if (addBookingDtoList.size() > MAX_BATCH_SIZE) {
+            log.info("Размер пакета бронирований {} превышает допустимый {}", addBookingDtoList.size(), MAX_BATCH_SIZE);
+            throw new IncorrectParameterException("bookings");
+        }
+
+        log.info("Запрос пакетного бронирования {} вещей пользователем с id: {}", addBookingDtoList.size(), idUser);
+        return bookingService.addBatch(idUser, addBookingDtoList);
+    }
+
     @PatchMapping("/{bookingId}")
     public BookingDto patch(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
                             @RequestParam(value = "approved") Boolean isApproved,
@@ -39,6 +60,17 @@ public class BookingController {
         return bookingService.patch(bookingId, idUser, isApproved);
     }
 
+    @PatchMapping("/batch")
+    public BookingDecisionResultDto patchBatch(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                               @RequestParam(value = "approved") Boolean isApproved,
+                                               @RequestBody BookingDecisionDto bookingDecisionDto) {
+        checkDecision(bookingDecisionDto);
+
+        log.info("Запрос пакетного подтверждения/отклонения бронирований: {} пользователем с id:{} по условию: {}",
+                isApproved, idUser, bookingDecisionDto);
+        return bookingService.patchBatch(idUser, isApproved, bookingDecisionDto);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingDto getByIdBooking(@PathVariable(value = "bookingId") Long bookingId,
                                      @RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
@@ -52,14 +84,15 @@ public class BookingController {
                                            @RequestParam(value = "state", defaultValue = "ALL", required = false)
                                            String stateString,
                                            @RequestParam(value = "from", required = false) Integer from,
-                                           @RequestParam(value = "size", required = false) Integer size) {
+                                           @RequestParam(value = "size", required = false) Integer size,
+                                           @RequestParam(value = "archived", defaultValue = "false") boolean archived) {
         compareStateAndStringFromJson(stateString);
         checkParameters(from, size);
 
         log.info("Запрос получения списка всех бронирований со статусом: {} пользователя с id: {}",
                 stateString, idUser);
 
-        return bookingService.getAllByIdUser(idUser, State.valueOf(stateString), from, size);
+        return bookingService.getAllByIdUser(idUser, State.valueOf(stateString), from, size, archived);
     }
 
     @GetMapping("/owner")
@@ -67,13 +100,56 @@ public class BookingController {
                                             @RequestParam(value = "state", defaultValue = "ALL", required = false)
                                             String stateString,
                                             @RequestParam(value = "from", required = false) Integer from,
-                                            @RequestParam(value = "size", required = false) Integer size) {
+                                            @RequestParam(value = "size", required = false) Integer size,
+                                            @RequestParam(value = "archived", defaultValue = "false") boolean archived) {
         compareStateAndStringFromJson(stateString);
         checkParameters(from, size);
 
         log.info("Запрос получения списка всех бронирований со статусом: {} вещей владельца с id: {}",
                 stateString, idUser);
-        return bookingService.getAllByIdOwner(idUser, State.valueOf(stateString), from, size);
+        return bookingService.getAllByIdOwner(idUser, State.valueOf(stateString), from, size, archived);
+    }
+
+    @GetMapping("/stats")
+    public Map<State, Long> getStatsByIdUser(@RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
+        log.info("Запрос счетчиков бронирований пользователя с id: {}", idUser);
+        return bookingService.getStats(idUser, false);
+    }
+
+    @GetMapping("/owner/stats")
+    public Map<State, Long> getStatsByIdOwner(@RequestHeader(value = "X-Sharer-User-Id") Long idUser) {
+        log.info("Запрос счетчиков бронирований вещей владельца с id: {}", idUser);
+        return bookingService.getStats(idUser, true);
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<List<BookingDto>> getAllByIdUserAfter(
+            @RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+            @RequestParam(value = "state", defaultValue = "ALL", required = false) String stateString,
+            @RequestParam(value = "after") String after,
+            @RequestParam(value = "size", required = false) Integer size) {
+        compareStateAndStringFromJson(stateString);
+        checkSize(size);
+
+        log.info("Запрос получения страницы бронирований со статусом: {} пользователя с id: {} после курсора: {}",
+                stateString, idUser, after);
+        return bookingService.getAllByIdUserAfter(idUser, State.valueOf(stateString), decodeCursor(after),
+                size == null ? CursorPage.DEFAULT_SIZE : size).toResponseEntity();
+    }
+
+    @GetMapping(value = "/owner", params = "after")
+    public ResponseEntity<List<BookingDto>> getAllByIdOwnerAfter(
+            @RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+            @RequestParam(value = "state", defaultValue = "ALL", required = false) String stateString,
+            @RequestParam(value = "after") String after,
+            @RequestParam(value = "size", required = false) Integer size) {
+        compareStateAndStringFromJson(stateString);
+        checkSize(size);
+
+        log.info("Запрос получения страницы бронирований со статусом: {} вещей владельца с id: {} после курсора: {}",
+                stateString, idUser, after);
+        return bookingService.getAllByIdOwnerAfter(idUser, State.valueOf(stateString), decodeCursor(after),
+                size == null ? CursorPage.DEFAULT_SIZE : size).toResponseEntity();
     }
 
     private void compareStateAndStringFromJson(String stateString) {
@@ -92,10 +168,7 @@ public class BookingController {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
@@ -103,4 +176,32 @@ public class BookingController {
         }
     }
 
+    private void checkDecision(BookingDecisionDto bookingDecisionDto) {
+        List<Long> bookingIds = bookingDecisionDto.getBookingIds();
+        if (bookingIds == null && bookingDecisionDto.getItemId() == null) {
+            log.info("Не заданы ни id бронирований, ни id вещи");
+            throw new IncorrectParameterException("bookingIds или itemId");
+        }
+        if (bookingIds != null && (bookingIds.isEmpty() || bookingIds.size() > MAX_BATCH_SIZE)) {
+            log.info("Задано неправильное количество id бронирований = {}", bookingIds.size());
+            throw new IncorrectParameterException("bookingIds");
+        }
+    }
+
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
+
+    // Бронирования упорядочены по (start, id), поэтому курсор без даты начала к ним неприменим.
+    private Cursor decodeCursor(String after) {
+        Cursor cursor = Cursor.decode(after);
+        if (cursor != null && cursor.getTime() == null) {
+            throw new IncorrectParameterException("after");
+        }
+        return cursor;
+    }
+
 }
\ No newline at end of file
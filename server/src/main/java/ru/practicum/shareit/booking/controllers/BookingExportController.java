@@ -0,0 +1,94 @@
+package ru.practicum.shareit.booking.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.ExportJobDto;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
+import ru.practicum.shareit.booking.exceptions.WrongStateException;
+import ru.practicum.shareit.booking.services.BookingExportService;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/bookings/export")
+@Slf4j
+@RequiredArgsConstructor
+public class BookingExportController {
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final BookingExportService bookingExportService;
+
+    @PostMapping
+    public ResponseEntity<ExportJobDto> start(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                              @RequestParam(value = "owner", defaultValue = "false") Boolean isOwner,
+                                              @RequestParam(value = "state", defaultValue = "ALL") String stateString,
+                                              @RequestParam(value = "format", defaultValue = "NDJSON")
+                                              String formatString,
+                                              @RequestParam(value = "from", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                              @RequestParam(value = "to", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                              @RequestParam(value = "archived", defaultValue = "false")
+                                              boolean archived) {
+        State state = toState(stateString);
+        ExportFormat format = toFormat(formatString);
+        if (from != null && to != null && !from.isBefore(to)) {
+            log.info("Задан неправильный период выгрузки: from = {}, to = {}", from, to);
+            throw new IncorrectParameterException("from или to");
+        }
+
+        log.info("Запрос выгрузки {} бронирований со статусом: {} за период {} - {} пользователем с id: {}, " +
+                "как владельцем: {}, с архивом: {}", format, state, from, to, idUser, isOwner, archived);
+        return ResponseEntity.accepted().body(bookingExportService.start(idUser, isOwner, state, format, from, to,
+                archived));
+    }
+
+    @GetMapping("/{jobId}")
+    public ExportJobDto getById(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                @PathVariable(value = "jobId") String jobId) {
+        log.info("Запрос статуса выгрузки с id: {} пользователем с id: {}", jobId, idUser);
+        return bookingExportService.getById(idUser, jobId);
+    }
+
+    @GetMapping("/{jobId}/file")
+    public ResponseEntity<Resource> getFile(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                            @PathVariable(value = "jobId") String jobId) {
+        log.info("Запрос файла выгрузки с id: {} пользователем с id: {}", jobId, idUser);
+        Path file = bookingExportService.getFile(idUser, jobId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(GZIP);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename("bookings-" + file.getFileName())
+                .build());
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file));
+    }
+
+    private State toState(String stateString) {
+        try {
+            return State.valueOf(stateString);
+        } catch (IllegalArgumentException e) {
+            throw new WrongStateException("Unknown state: UNSUPPORTED_STATUS");
+        }
+    }
+
+    private ExportFormat toFormat(String formatString) {
+        try {
+            return ExportFormat.valueOf(formatString.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.info("Задан неизвестный формат выгрузки = {}", formatString);
+            throw new IncorrectParameterException("format");
+        }
+    }
+}
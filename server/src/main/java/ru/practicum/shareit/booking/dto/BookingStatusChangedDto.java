@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.enums.Status;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingStatusChangedDto {
+    private long id;
+
+    private long itemId;
+
+    private Status status;
+}
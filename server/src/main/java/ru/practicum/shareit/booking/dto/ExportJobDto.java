@@ -0,0 +1,30 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportJobDto {
+    private String id;
+
+    private ExportFormat format;
+
+    private ExportStatus status;
+
+    private long rows;
+
+    private LocalDateTime created;
+
+    private LocalDateTime finished;
+
+    private String error;
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.booking.enums;
+
+public enum ExportStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking.exceptions;
+
+import ru.practicum.shareit.booking.enums.ExportStatus;
+
+public class ExportNotReadyException extends RuntimeException {
+    public ExportNotReadyException(final String jobId, final ExportStatus status) {
+        super("Выгрузка с id: " + jobId + " еще не готова, статус: " + status);
+    }
+}
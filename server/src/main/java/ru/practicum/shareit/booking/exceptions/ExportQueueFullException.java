@@ -0,0 +1,7 @@
+package ru.practicum.shareit.booking.exceptions;
+
+public class ExportQueueFullException extends RuntimeException {
+    public ExportQueueFullException(final int capacity) {
+        super("Очередь выгрузок заполнена, одновременно принимается не более " + capacity + " задач");
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.booking.exceptions;
+
+public class NoExportJobException extends RuntimeException {
+    public NoExportJobException(final String message) {
+        super("Задача выгрузки с id: " + message + " не найдена");
+    }
+}
@@ -1,8 +1,16 @@
 package ru.practicum.shareit.booking.mapper;
 
 import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookerDto;
+import ru.practicum.shareit.booking.dto.BookingItemDto;
+import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
 
 @Component
 public class BookingMapper {
@@ -10,18 +18,29 @@ public class BookingMapper {
         return new BookingDto(booking.getId(),
                 booking.getStart(),
                 booking.getEnd(),
-                booking.getItem(),
-                booking.getBooker(),
+                new BookingItemDto(booking.getItem().getId(), booking.getItem().getName()),
+                new BookerDto(booking.getBooker().getId()),
                 booking.getStatus());
     }
 
-    public Booking toBooking(BookingDto bookingDto) {
-        return new Booking(bookingDto.getId(),
-                bookingDto.getStart(),
-                bookingDto.getEnd(),
-                bookingDto.getItem(),
-                bookingDto.getBooker(),
-                bookingDto.getStatus());
+    public BookingDto toBookingDto(BookingRow bookingRow) {
+        return new BookingDto(bookingRow.getId(),
+                bookingRow.getStart(),
+                bookingRow.getEnd(),
+                new BookingItemDto(bookingRow.getItemId(), bookingRow.getItemName()),
+                new BookerDto(bookingRow.getBookerId()),
+                bookingRow.getStatus());
+    }
+
+    public Booking toBooking(LocalDateTime start, LocalDateTime end, Item item, User booker, Status status) {
+        return Booking.builder()
+                .start(start)
+                .end(end)
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .ownerId(item.getOwner().getId())
+                .build();
     }
 
 }
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.*;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Завершенное бронирование, перенесенное архиватором из bookings. Сохраняет исходный id,
+// поэтому ключ не генерируется.
+@Entity
+@Table(name = "bookings_archive")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@ToString
+public class ArchivedBooking {
+    @Id
+    private long id;
+
+    @Column(name = "start_date")
+    private LocalDateTime start;
+
+    @Column(name = "end_date")
+    private LocalDateTime end;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id")
+    @ToString.Exclude
+    private Item item;
+
+    @Column(name = "booker_id")
+    private long bookerId;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "owner_id")
+    private long ownerId;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
@@ -29,11 +29,12 @@ public class Booking {
     @Column(name = "end_date")
     private LocalDateTime end;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
+    @ToString.Exclude
     private Item item;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booker_id")
     @ToString.Exclude
     private User booker;
@@ -41,6 +42,13 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Comparator;
+
+// Строка таблицы booking_counters: свернутое значение счетчика бронирований пользователя в роли арендатора
+// или владельца. При свертке журнала total - прибавляемая разница.
+@Getter
+@AllArgsConstructor
+public class BookingCounter {
+    public static final Comparator<BookingCounter> KEY_ORDER = Comparator.comparingLong(BookingCounter::getUserId)
+            .thenComparing(BookingCounter::isOwner)
+            .thenComparing(BookingCounter::getType);
+
+    private final long userId;
+    private final boolean owner;
+    private final Type type;
+    private final long total;
+
+    // ALL - все бронирования, включая архив; WAITING и REJECTED - бронирования рабочей таблицы с этим статусом;
+    // STARTED и ENDED - начавшиеся и закончившиеся к моменту чтения. Из них получаются FUTURE, CURRENT и PAST.
+    public enum Type {
+        ALL, WAITING, REJECTED, STARTED, ENDED
+    }
+}
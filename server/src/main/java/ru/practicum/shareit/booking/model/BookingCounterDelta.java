@@ -0,0 +1,26 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Строка журнала booking_counter_log: изменение счетчика, которое учитывается начиная с effectiveAt.
+// Изменения, не зависящие от времени, действуют с IMMEDIATELY. id заполнен только у прочитанных строк.
+@Getter
+@AllArgsConstructor
+public class BookingCounterDelta {
+    public static final LocalDateTime IMMEDIATELY = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final Long id;
+    private final long userId;
+    private final boolean owner;
+    private final BookingCounter.Type type;
+    private final long delta;
+    private final LocalDateTime effectiveAt;
+
+    public BookingCounterDelta(long userId, boolean owner, BookingCounter.Type type, long delta,
+                               LocalDateTime effectiveAt) {
+        this(null, userId, owner, type, delta, effectiveAt);
+    }
+}
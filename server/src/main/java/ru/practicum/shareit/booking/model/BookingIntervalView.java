@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.model;
+
+import java.time.LocalDateTime;
+
+public interface BookingIntervalView {
+    long getId();
+
+    long getItemId();
+
+    long getBookerId();
+
+    long getOwnerId();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+}
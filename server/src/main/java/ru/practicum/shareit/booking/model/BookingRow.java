@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.time.LocalDateTime;
+
+// Плоская строка бронирования для списков и выгрузок: выбирается конструктором прямо в JPQL, поэтому
+// не попадает в контекст персистентности и не тянет за собой вещь, ее владельца и запрос.
+@Getter
+@AllArgsConstructor
+public class BookingRow {
+    private final long id;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final Status status;
+    private final long itemId;
+    private final String itemName;
+    private final long bookerId;
+    private final Long ownerId;
+}
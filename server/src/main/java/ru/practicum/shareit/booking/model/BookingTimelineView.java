@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.model;
+
+import ru.practicum.shareit.booking.enums.Status;
+
+import java.time.LocalDateTime;
+
+public interface BookingTimelineView {
+    long getId();
+
+    long getItemId();
+
+    long getBookerId();
+
+    long getOwnerId();
+
+    Status getStatus();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+}
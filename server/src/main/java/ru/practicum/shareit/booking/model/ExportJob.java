@@ -0,0 +1,69 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.*;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+import ru.practicum.shareit.booking.enums.State;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Задача выгрузки хранится в базе, поэтому ее статус виден всем экземплярам сервиса и переживает перезапуск.
+// Рабочий поток обновляет rows и updated по ходу записи; задача, давно не обновлявшаяся, считается потерянной.
+@Entity
+@Table(name = "export_jobs", schema = "public")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@ToString
+public class ExportJob {
+    @Id
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Column(name = "is_owner", nullable = false)
+    private boolean owner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private State state;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false)
+    private ExportFormat format;
+
+    @Column(name = "start_from")
+    private LocalDateTime startFrom;
+
+    @Column(name = "end_to")
+    private LocalDateTime endTo;
+
+    @Column(name = "archived", nullable = false)
+    private boolean archived;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private ExportStatus status;
+
+    @Column(name = "row_count", nullable = false)
+    private long rows;
+
+    @Column(name = "created", nullable = false)
+    private LocalDateTime created;
+
+    @Column(name = "updated", nullable = false)
+    private LocalDateTime updated;
+
+    @Column(name = "finished")
+    private LocalDateTime finished;
+
+    @Column(name = "error")
+    private String error;
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Последнее и/или следующее бронирование вещи из пакетной выборки для списка вещей владельца.
+@Getter
+@AllArgsConstructor
+public class ItemBookingRow {
+    private final long itemId;
+    private final long id;
+    private final long bookerId;
+    private final boolean last;
+    private final boolean next;
+}
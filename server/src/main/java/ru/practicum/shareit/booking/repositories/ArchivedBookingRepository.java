@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingRow;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO bookings_archive " +
+            "(id, start_date, end_date, item_id, booker_id, status, owner_id, archived_at) " +
+            "SELECT id, start_date, end_date, item_id, booker_id, status, owner_id, ?2 FROM bookings WHERE id IN ?1",
+            nativeQuery = true)
+    int copyFromBookings(Collection<Long> bookingIds, LocalDateTime archivedAt);
+
+    @Query(value = "SELECT new ru.practicum.shareit.booking.model.BookingRow(" +
+            "a.id, a.start, a.end, a.status, i.id, i.name, a.bookerId, a.ownerId) " +
+            "FROM ArchivedBooking a JOIN a.item i WHERE a.bookerId = ?1 ORDER BY a.start DESC, a.id DESC")
+    List<BookingRow> findRowsByBookerId(long bookerId, Pageable pageable);
+
+    @Query(value = "SELECT new ru.practicum.shareit.booking.model.BookingRow(" +
+            "a.id, a.start, a.end, a.status, i.id, i.name, a.bookerId, a.ownerId) " +
+            "FROM ArchivedBooking a JOIN a.item i WHERE a.ownerId = ?1 ORDER BY a.start DESC, a.id DESC")
+    List<BookingRow> findRowsByOwnerId(long ownerId, Pageable pageable);
+
+    boolean existsByBookerId(long bookerId);
+
+    boolean existsByOwnerId(long ownerId);
+
+    boolean existsByItemIdAndBookerIdAndStatus(long itemId, long bookerId, Status status);
+}
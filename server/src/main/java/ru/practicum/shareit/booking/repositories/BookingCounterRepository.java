@@ -0,0 +1,167 @@
+package ru.practicum.shareit.booking.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterDelta;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class BookingCounterRepository {
+    private static final String INSERT_DELTA = "INSERT INTO booking_counter_log " +
+            "(user_id, is_owner, counter, delta, effective_at) " +
+            "VALUES (:userId, :owner, :counter, :delta, :effectiveAt)";
+
+    // Свертку выполняет один экземпляр за раз на каждую порцию: в PostgreSQL строки, заблокированные другим
+    // экземпляром, пропускаются и достаются ему целиком.
+    private static final String POSTGRES_SELECT_EFFECTIVE = "SELECT id, user_id, is_owner, counter, delta, " +
+            "effective_at FROM booking_counter_log WHERE effective_at <= :now ORDER BY effective_at, id " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED";
+    private static final String FALLBACK_SELECT_EFFECTIVE = "SELECT id, user_id, is_owner, counter, delta, " +
+            "effective_at FROM booking_counter_log WHERE effective_at <= :now ORDER BY effective_at, id " +
+            "LIMIT :limit FOR UPDATE";
+
+    private static final String DELETE_LOG = "DELETE FROM booking_counter_log WHERE id IN (:ids)";
+
+    // Разница прибавляется к существующей строке или создает новую. Строки изменяет только свертка журнала
+    // в одном порядке ключей (см. BookingCounter.KEY_ORDER), поэтому экземпляры не блокируют друг друга взаимно.
+    private static final String POSTGRES_ADD = "INSERT INTO booking_counters " +
+            "(user_id, is_owner, counter, total) VALUES (:userId, :owner, :counter, :total) " +
+            "ON CONFLICT (user_id, is_owner, counter) DO UPDATE SET total = booking_counters.total + EXCLUDED.total";
+
+    // В H2 (тесты) нет ON CONFLICT ... DO UPDATE, используется MERGE из стандарта SQL.
+    private static final String FALLBACK_ADD = "MERGE INTO booking_counters c USING (VALUES (" +
+            "CAST(:userId AS BIGINT), CAST(:owner AS BOOLEAN), CAST(:counter AS VARCHAR(20)), " +
+            "CAST(:total AS BIGINT))) d (user_id, is_owner, counter, total) " +
+            "ON c.user_id = d.user_id AND c.is_owner = d.is_owner AND c.counter = d.counter " +
+            "WHEN MATCHED THEN UPDATE SET total = c.total + d.total " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, is_owner, counter, total) " +
+            "VALUES (d.user_id, d.is_owner, d.counter, d.total)";
+
+    // Свернутые значения плюс уже вступившие в силу, но еще не свернутые строки журнала. Последних не больше,
+    // чем накопилось с прошлой свертки: журнал читается по индексу (user_id, is_owner, effective_at).
+    private static final String SUM_BY_USER = "SELECT counter, SUM(total) AS total FROM (" +
+            "SELECT counter, total FROM booking_counters WHERE user_id = :userId AND is_owner = :owner " +
+            "UNION ALL " +
+            "SELECT counter, delta FROM booking_counter_log WHERE user_id = :userId AND is_owner = :owner " +
+            "AND effective_at <= :now) c GROUP BY counter";
+
+    // Вместе с пользователем база каскадно удаляет его бронирования, бронирования его вещей и бронирования вещей,
+    // созданных другими владельцами в ответ на его запросы. Запрос возвращает строки журнала, которые отменяют
+    // вклад этих бронирований в счетчики остальных участников, с теми же моментами вступления в силу.
+    // Счетчики и журнал самого пользователя удаляются внешними ключами.
+    private static final String REMOVED_WITH_USER = "(b.booker_id = :userId OR b.owner_id = :userId " +
+            "OR b.item_id IN (SELECT i.id FROM items i JOIN requests r ON r.id = i.request_id " +
+            "WHERE r.user_id = :userId))";
+
+    private static final String SELECT_REMOVED_WITH_USER = "WITH roles AS (" +
+            "SELECT b.booker_id AS user_id, FALSE AS is_owner, b.status, b.start_date, b.end_date, " +
+            "FALSE AS archived FROM bookings b WHERE " + REMOVED_WITH_USER + " AND b.booker_id <> :userId " +
+            "UNION ALL " +
+            "SELECT b.owner_id, TRUE, b.status, b.start_date, b.end_date, FALSE FROM bookings b " +
+            "WHERE " + REMOVED_WITH_USER + " AND b.owner_id <> :userId " +
+            "UNION ALL " +
+            "SELECT b.booker_id, FALSE, b.status, b.start_date, b.end_date, TRUE FROM bookings_archive b " +
+            "WHERE " + REMOVED_WITH_USER + " AND b.booker_id <> :userId " +
+            "UNION ALL " +
+            "SELECT b.owner_id, TRUE, b.status, b.start_date, b.end_date, TRUE FROM bookings_archive b " +
+            "WHERE " + REMOVED_WITH_USER + " AND b.owner_id <> :userId) " +
+            "SELECT user_id, is_owner, 'ALL' AS counter, -COUNT(*) AS delta, " +
+            "CAST(:immediately AS TIMESTAMP) AS effective_at FROM roles GROUP BY user_id, is_owner " +
+            "UNION ALL " +
+            "SELECT user_id, is_owner, status, -COUNT(*), CAST(:immediately AS TIMESTAMP) FROM roles " +
+            "WHERE NOT archived AND status IN ('WAITING', 'REJECTED') GROUP BY user_id, is_owner, status " +
+            "UNION ALL " +
+            "SELECT user_id, is_owner, 'STARTED', -COUNT(*), start_date FROM roles " +
+            "GROUP BY user_id, is_owner, start_date " +
+            "UNION ALL " +
+            "SELECT user_id, is_owner, 'ENDED', -COUNT(*), end_date FROM roles " +
+            "GROUP BY user_id, is_owner, end_date";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public void appendAll(List<BookingCounterDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_DELTA, deltas.stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("userId", delta.getUserId())
+                        .addValue("owner", delta.isOwner())
+                        .addValue("counter", delta.getType().name())
+                        .addValue("delta", delta.getDelta())
+                        .addValue("effectiveAt", Timestamp.valueOf(delta.getEffectiveAt())))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    public List<BookingCounterDelta> findEffectiveForUpdate(LocalDateTime now, int limit) {
+        return jdbcTemplate.query(isPostgres() ? POSTGRES_SELECT_EFFECTIVE : FALLBACK_SELECT_EFFECTIVE,
+                new MapSqlParameterSource()
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new BookingCounterDelta(rs.getLong("id"), rs.getLong("user_id"),
+                        rs.getBoolean("is_owner"), BookingCounter.Type.valueOf(rs.getString("counter")),
+                        rs.getLong("delta"), rs.getTimestamp("effective_at").toLocalDateTime()));
+    }
+
+    public void deleteLog(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(DELETE_LOG, new MapSqlParameterSource("ids", ids));
+    }
+
+    public void addAll(List<BookingCounter> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(isPostgres() ? POSTGRES_ADD : FALLBACK_ADD, deltas.stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("userId", delta.getUserId())
+                        .addValue("owner", delta.isOwner())
+                        .addValue("counter", delta.getType().name())
+                        .addValue("total", delta.getTotal()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
+    public Map<BookingCounter.Type, Long> sumByUser(long userId, boolean owner, LocalDateTime now) {
+        Map<BookingCounter.Type, Long> totals = new EnumMap<>(BookingCounter.Type.class);
+        jdbcTemplate.query(SUM_BY_USER, new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("owner", owner)
+                .addValue("now", Timestamp.valueOf(now)), rs -> {
+                    totals.put(BookingCounter.Type.valueOf(rs.getString("counter")), rs.getLong("total"));
+                });
+        return totals;
+    }
+
+    public List<BookingCounterDelta> findRemovedWithUser(long userId) {
+        return jdbcTemplate.query(SELECT_REMOVED_WITH_USER, new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("immediately", Timestamp.valueOf(BookingCounterDelta.IMMEDIATELY)),
+                (rs, rowNum) -> new BookingCounterDelta(rs.getLong("user_id"), rs.getBoolean("is_owner"),
+                        BookingCounter.Type.valueOf(rs.getString("counter")), rs.getLong("delta"),
+                        rs.getTimestamp("effective_at").toLocalDateTime()));
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+}
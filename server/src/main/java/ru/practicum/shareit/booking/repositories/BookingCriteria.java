@@ -0,0 +1,34 @@
+package ru.practicum.shareit.booking.repositories;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.practicum.shareit.booking.enums.State;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Getter
+@Builder
+public class BookingCriteria {
+    private final Long bookerId;
+
+    private final Long ownerId;
+
+    @Builder.Default
+    private final State state = State.ALL;
+
+    @Builder.Default
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final LocalDateTime afterStart;
+
+    private final Long afterId;
+
+    private final Collection<Long> bookingIds;
+
+    private final Long itemId;
+
+    private final LocalDateTime startFrom;
+
+    private final LocalDateTime endTo;
+}
@@ -1,34 +1,61 @@
 package ru.practicum.shareit.booking.repositories;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.BookingTimelineView;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
 
-    @Query(value = "SELECT b FROM Booking b WHERE b.item.id IN (SELECT DISTINCT i.id FROM Item i WHERE i.owner.id = ?1 )" +
-            "ORDER BY b.start DESC")
-    List<Booking> findBookingByIdOwner(long idOwner);
+    boolean existsByBookerId(long bookerId);
 
-    @Query(value = "SELECT b FROM Booking b WHERE b.item.id IN (SELECT DISTINCT i.id FROM Item i WHERE i.owner.id = ?1)")
-    Page<Booking> findBookingByIdOwner(long owner, Pageable pageable);
-
-    @Query(value = "SELECT b FROM Booking b WHERE b.booker.id = ?1 ORDER BY b.start DESC")
-    List<Booking> findBookingByIdUserAndSortTime(long idUser);
-
-    @Query(value = "SELECT b FROM Booking b WHERE b.booker.id = ?1")
-    Page<Booking> findBookingByBookerId(long idUser, Pageable pageable);
+    boolean existsByOwnerId(long ownerId);
 
     Booking findFirstBookingByItemIdAndStartAfterOrderByStartAsc(long itemId, LocalDateTime start);
 
     Booking findTopBookingByItemIdOrderByStartAsc(long itemId);
 
     Optional<Booking> findFirstBookingByItemIdAndBookerIdAndStatusOrderByStartAsc(long itemId, long idUser, Status status);
+
+    @Query(value = "SELECT b.status FROM Booking b WHERE b.id = ?1")
+    Status findStatusById(long bookingId);
+
+    @Query(value = "SELECT COUNT(b) > 0 FROM Booking b WHERE b.item.id = ?1 AND b.status = ?4 " +
+            "AND b.start < ?3 AND b.end > ?2")
+    boolean existsIntersection(long itemId, LocalDateTime start, LocalDateTime end, Status status);
+
+    @Query(value = "SELECT b.id AS id, b.item.id AS itemId, b.booker.id AS bookerId, b.ownerId AS ownerId, " +
+            "b.start AS start, b.end AS end FROM Booking b " +
+            "WHERE b.item.id = ?1 AND b.status IN ?4 AND b.start < ?3 AND b.end > ?2 ORDER BY b.start, b.id")
+    List<BookingIntervalView> findIntervalsByItemId(long itemId, LocalDateTime start, LocalDateTime end,
+                                                    Collection<Status> statuses);
+
+    @Query(value = "SELECT DISTINCT b.item.id FROM Booking b WHERE b.status = ?3 AND b.start < ?2 AND b.end > ?1")
+    List<Long> findItemIdsBookedDuring(LocalDateTime start, LocalDateTime end, Status status);
+
+    @Query(value = "SELECT b.id AS id, b.item.id AS itemId, b.booker.id AS bookerId, b.ownerId AS ownerId, " +
+            "b.start AS start, b.end AS end FROM Booking b " +
+            "WHERE b.item.id IN ?1 AND b.status = ?4 AND b.start < ?3 AND b.end > ?2")
+    List<BookingIntervalView> findIntervalsByItemIds(Collection<Long> itemIds, LocalDateTime start,
+                                                     LocalDateTime end, Status status);
+
+    @Query(value = "SELECT MIN(b.start) FROM Booking b WHERE b.status = ?1 AND b.start < ?2")
+    Optional<LocalDateTime> findMinStartByStatusAndStartBefore(Status status, LocalDateTime start);
+
+    @Query(value = "SELECT b.id AS id, b.item.id AS itemId, b.booker.id AS bookerId, b.ownerId AS ownerId, " +
+            "b.status AS status, b.start AS start, b.end AS end FROM Booking b WHERE b.end < ?1 ORDER BY b.end, b.id")
+    List<BookingTimelineView> findTimelinesByEndBefore(LocalDateTime end, Pageable pageable);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = "UPDATE Booking b SET b.status = ?2, b.version = b.version + 1 WHERE b.id IN ?1 AND b.status = ?3")
+    int updateStatus(Collection<Long> bookingIds, Status status, Status expected);
 }
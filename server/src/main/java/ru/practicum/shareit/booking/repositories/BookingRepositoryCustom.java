@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.repositories;
+
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.ItemBookingRow;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookingRepositoryCustom {
+    List<BookingRow> findByCriteria(BookingCriteria criteria, Integer from, Integer size);
+
+    List<BookingIntervalView> findIntervalsByCriteria(BookingCriteria criteria);
+
+    Stream<BookingRow> streamExportRows(BookingCriteria criteria, int fetchSize);
+
+    Stream<BookingRow> streamArchivedExportRows(BookingCriteria criteria, int fetchSize);
+
+    void insertAll(List<Booking> bookings);
+
+    List<ItemBookingRow> findLastAndNextByItemIds(Collection<Long> itemIds, LocalDateTime now);
+
+    List<BookingIntervalView> expireWaitingStartedBefore(LocalDateTime now, int limit);
+}
@@ -0,0 +1,294 @@
+package ru.practicum.shareit.booking.repositories;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.ItemBookingRow;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    private static final String INSERT_BOOKING = "INSERT INTO bookings " +
+            "(start_date, end_date, item_id, booker_id, status, owner_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ROWS = "SELECT new ru.practicum.shareit.booking.model.BookingRow(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, b.booker.id, b.ownerId) " +
+            "FROM Booking b JOIN b.item i WHERE ";
+
+    private static final String SELECT_ARCHIVED_ROWS = "SELECT new ru.practicum.shareit.booking.model.BookingRow(" +
+            "a.id, a.start, a.end, a.status, i.id, i.name, a.bookerId, a.ownerId) " +
+            "FROM ArchivedBooking a JOIN a.item i WHERE ";
+
+    // first_rank выбирает самое раннее бронирование вещи, next_rank - ближайшее из начинающихся после now.
+    // Самое раннее бронирование обычно уже в архиве, поэтому он читается вместе с рабочей таблицей (по индексу
+    // (item_id, start_date, id)); будущих бронирований в архиве нет.
+    private static final String SELECT_LAST_AND_NEXT = "SELECT item_id, id, booker_id, start_date, first_rank, " +
+            "next_rank FROM (SELECT b.item_id, b.id, b.booker_id, b.start_date, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item_id ORDER BY b.start_date, b.id) AS first_rank, " +
+            "ROW_NUMBER() OVER (PARTITION BY b.item_id ORDER BY CASE WHEN b.start_date > :now THEN 0 ELSE 1 END, " +
+            "b.start_date, b.id) AS next_rank " +
+            "FROM (SELECT item_id, id, booker_id, start_date FROM bookings WHERE item_id IN (:itemIds) " +
+            "UNION ALL " +
+            "SELECT item_id, id, booker_id, start_date FROM bookings_archive WHERE item_id IN (:itemIds)) b) ranked " +
+            "WHERE first_rank = 1 OR (next_rank = 1 AND start_date > :now)";
+
+    // Порция выбирается по частичному индексу ожидающих бронирований и обновляется тем же запросом; RETURNING
+    // возвращает ровно те строки, которые перешли в EXPIRED. Строки, заблокированные подтверждением или
+    // отклонением, пропускаются, а повторная проверка WAITING во внешнем UPDATE не дает просрочить бронирование,
+    // статус которого успели изменить.
+    private static final String POSTGRES_EXPIRE = "UPDATE bookings SET status = 'EXPIRED', version = version + 1 " +
+            "WHERE id IN (SELECT id FROM bookings WHERE status = 'WAITING' AND start_date < ? " +
+            "ORDER BY start_date, id LIMIT ? FOR UPDATE SKIP LOCKED) AND status = 'WAITING' " +
+            "RETURNING id, item_id, booker_id, owner_id, start_date, end_date";
+
+    // В H2 (тесты) нет RETURNING, обновленные строки читаются из FINAL TABLE того же UPDATE.
+    private static final String FALLBACK_EXPIRE = "SELECT id, item_id, booker_id, owner_id, start_date, end_date " +
+            "FROM FINAL TABLE (UPDATE bookings SET status = 'EXPIRED', version = version + 1 " +
+            "WHERE id IN (SELECT id FROM bookings WHERE status = 'WAITING' AND start_date < ? " +
+            "ORDER BY start_date, id LIMIT ?) AND status = 'WAITING')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public List<BookingRow> findByCriteria(BookingCriteria criteria, Integer from, Integer size) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT_ROWS);
+        appendConditions(jpql, parameters, criteria);
+        jpql.append(" ORDER BY b.start DESC, b.id DESC");
+
+        TypedQuery<BookingRow> query = entityManager.createQuery(jpql.toString(), BookingRow.class);
+        parameters.forEach(query::setParameter);
+        if (size != null) {
+            query.setFirstResult(from);
+            query.setMaxResults(size);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<BookingIntervalView> findIntervalsByCriteria(BookingCriteria criteria) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT b.id, b.item.id, b.booker.id, b.ownerId, b.start, b.end " +
+                "FROM Booking b WHERE ");
+        appendConditions(jpql, parameters, criteria);
+        jpql.append(" ORDER BY b.start, b.id");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList().stream()
+                .map(row -> new Interval((Long) row[0], (Long) row[1], (Long) row[2], (Long) row[3],
+                        (LocalDateTime) row[4], (LocalDateTime) row[5]))
+                .collect(Collectors.toList());
+    }
+
+    // Строки читаются курсором порциями по fetchSize; поток нужно закрыть внутри транзакции, иначе PostgreSQL
+    // игнорирует fetchSize и отдает весь результат сразу.
+    @Override
+    public Stream<BookingRow> streamExportRows(BookingCriteria criteria, int fetchSize) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT_ROWS);
+        appendConditions(jpql, parameters, criteria);
+        jpql.append(" ORDER BY b.id");
+
+        TypedQuery<BookingRow> query = entityManager.createQuery(jpql.toString(), BookingRow.class);
+        parameters.forEach(query::setParameter);
+        query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        query.setHint(QueryHints.HINT_READONLY, true);
+        return query.getResultStream();
+    }
+
+    // В архиве только завершившиеся бронирования, поэтому из условий критерия применяются лишь пользователь
+    // и период.
+    @Override
+    public Stream<BookingRow> streamArchivedExportRows(BookingCriteria criteria, int fetchSize) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(SELECT_ARCHIVED_ROWS);
+        if (criteria.getOwnerId() != null) {
+            jpql.append("a.ownerId = :ownerId");
+            parameters.put("ownerId", criteria.getOwnerId());
+        } else {
+            jpql.append("a.bookerId = :bookerId");
+            parameters.put("bookerId", criteria.getBookerId());
+        }
+        if (criteria.getStartFrom() != null) {
+            jpql.append(" AND a.start >= :startFrom");
+            parameters.put("startFrom", criteria.getStartFrom());
+        }
+        if (criteria.getEndTo() != null) {
+            jpql.append(" AND a.end <= :endTo");
+            parameters.put("endTo", criteria.getEndTo());
+        }
+        jpql.append(" ORDER BY a.id");
+
+        TypedQuery<BookingRow> query = entityManager.createQuery(jpql.toString(), BookingRow.class);
+        parameters.forEach(query::setParameter);
+        query.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+        query.setHint(QueryHints.HINT_READONLY, true);
+        return query.getResultStream();
+    }
+
+    // Hibernate не группирует вставки сущностей с IDENTITY-ключом, поэтому пакет отправляется через JDBC
+    // одним executeBatch, а сгенерированные id проставляются обратно в переданные объекты.
+    @Override
+    public void insertAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOKING, new String[]{"id"})) {
+                for (Booking booking : bookings) {
+                    statement.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                    statement.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                    statement.setLong(3, booking.getItem().getId());
+                    statement.setLong(4, booking.getBooker().getId());
+                    statement.setString(5, booking.getStatus().name());
+                    statement.setLong(6, booking.getOwnerId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Booking booking : bookings) {
+                        keys.next();
+                        booking.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Последнее и следующее бронирование для всех вещей страницы одним запросом вместо двух запросов на вещь.
+    // Одна строка может оказаться и последним, и следующим бронированием, если у вещи все бронирования в будущем.
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ItemBookingRow> findLastAndNextByItemIds(Collection<Long> itemIds, LocalDateTime now) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> rows = entityManager.createNativeQuery(SELECT_LAST_AND_NEXT)
+                .setParameter("itemIds", itemIds)
+                .setParameter("now", now)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new ItemBookingRow(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue(), ((Number) row[4]).longValue() == 1,
+                        ((Number) row[5]).longValue() == 1 && ((Timestamp) row[3]).toLocalDateTime().isAfter(now)))
+                .collect(Collectors.toList());
+    }
+
+    // Как и updateStatus, сбрасывает изменения в базу до запроса и очищает контекст персистентности после него.
+    @Override
+    public List<BookingIntervalView> expireWaitingStartedBefore(LocalDateTime now, int limit) {
+        entityManager.flush();
+        List<BookingIntervalView> expired = jdbcTemplate.query(isPostgres() ? POSTGRES_EXPIRE : FALLBACK_EXPIRE,
+                (rs, rowNum) -> new Interval(rs.getLong("id"), rs.getLong("item_id"), rs.getLong("booker_id"),
+                        rs.getLong("owner_id"), rs.getTimestamp("start_date").toLocalDateTime(),
+                        rs.getTimestamp("end_date").toLocalDateTime()),
+                Timestamp.valueOf(now), limit);
+        entityManager.clear();
+        return expired;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    private static void appendConditions(StringBuilder jpql, Map<String, Object> parameters, BookingCriteria criteria) {
+        if (criteria.getOwnerId() != null) {
+            jpql.append("b.ownerId = :ownerId");
+            parameters.put("ownerId", criteria.getOwnerId());
+        } else {
+            jpql.append("b.booker.id = :bookerId");
+            parameters.put("bookerId", criteria.getBookerId());
+        }
+
+        switch (criteria.getState()) {
+            case CURRENT:
+                jpql.append(" AND b.start < :now AND b.end > :now");
+                parameters.put("now", criteria.getNow());
+                break;
+            case PAST:
+                jpql.append(" AND b.end < :now");
+                parameters.put("now", criteria.getNow());
+                break;
+            case FUTURE:
+                jpql.append(" AND b.start > :now");
+                parameters.put("now", criteria.getNow());
+                break;
+            case WAITING:
+                jpql.append(" AND b.status = :status");
+                parameters.put("status", Status.WAITING);
+                break;
+            case REJECTED:
+                jpql.append(" AND b.status = :status");
+                parameters.put("status", Status.REJECTED);
+                break;
+            default:
+                break;
+        }
+
+        if (criteria.getAfterId() != null) {
+            jpql.append(" AND (b.start < :afterStart OR (b.start = :afterStart AND b.id < :afterId))");
+            parameters.put("afterStart", criteria.getAfterStart());
+            parameters.put("afterId", criteria.getAfterId());
+        }
+
+        if (criteria.getBookingIds() != null) {
+            jpql.append(" AND b.id IN :bookingIds");
+            parameters.put("bookingIds", criteria.getBookingIds());
+        }
+        if (criteria.getItemId() != null) {
+            jpql.append(" AND b.item.id = :itemId");
+            parameters.put("itemId", criteria.getItemId());
+        }
+        if (criteria.getStartFrom() != null) {
+            jpql.append(" AND b.start >= :startFrom");
+            parameters.put("startFrom", criteria.getStartFrom());
+        }
+        if (criteria.getEndTo() != null) {
+            jpql.append(" AND b.end <= :endTo");
+            parameters.put("endTo", criteria.getEndTo());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Interval implements BookingIntervalView {
+        private final long id;
+        private final long itemId;
+        private final long bookerId;
+        private final long ownerId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+    }
+}
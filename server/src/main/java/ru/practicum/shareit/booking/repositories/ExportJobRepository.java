@@ -0,0 +1,35 @@
+package ru.practicum.shareit.booking.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+import ru.practicum.shareit.booking.model.ExportJob;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface ExportJobRepository extends JpaRepository<ExportJob, String> {
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = ?2, j.updated = ?3 WHERE j.id = ?1 AND j.status = ?4")
+    int updateStatus(String id, ExportStatus status, LocalDateTime updated, ExportStatus expected);
+
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.rows = ?2, j.updated = ?3 WHERE j.id = ?1")
+    int updateProgress(String id, long rows, LocalDateTime updated);
+
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = ?2, j.rows = ?3, j.updated = ?4, j.finished = ?4, j.error = ?5 " +
+            "WHERE j.id = ?1")
+    int finish(String id, ExportStatus status, long rows, LocalDateTime finished, String error);
+
+    @Modifying
+    @Query("UPDATE ExportJob j SET j.status = ?4, j.updated = ?3, j.finished = ?3, j.error = ?5 " +
+            "WHERE j.status IN ?1 AND j.updated < ?2")
+    int failStale(Collection<ExportStatus> statuses, LocalDateTime updatedBefore, LocalDateTime finished,
+                  ExportStatus status, String error);
+
+    @Modifying
+    @Query("DELETE FROM ExportJob j WHERE j.finished < ?1")
+    int deleteByFinishedBefore(LocalDateTime finishedBefore);
+}
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.booking.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingTimelineView;
+import ru.practicum.shareit.booking.repositories.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Переносит бронирования, завершившиеся раньше срока хранения, из bookings в bookings_archive. Рабочая таблица
+// и ее индексы содержат только недавние бронирования, а архив читается лишь по явному запросу.
+@Component
+@ConditionalOnProperty(value = "shareit.archive.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BookingArchiver {
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final BookingCounters bookingCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Counter archivedCounter;
+    private final Timer archiveTimer;
+
+    public BookingArchiver(BookingRepository bookingRepository,
+                           ArchivedBookingRepository archivedBookingRepository,
+                           BookingCounters bookingCounters,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${shareit.archive.retention:P365D}") Duration retention,
+                           @Value("${shareit.archive.batch-size:1000}") int batchSize,
+                           @Value("${shareit.archive.max-batches:20}") int maxBatches) {
+        this.bookingRepository = bookingRepository;
+        this.archivedBookingRepository = archivedBookingRepository;
+        this.bookingCounters = bookingCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+
+        this.archivedCounter = meterRegistry.counter("shareit.bookings.archived");
+        this.archiveTimer = meterRegistry.timer("shareit.bookings.archive.run");
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.archive.interval:PT1H}",
+            initialDelayString = "${shareit.archive.interval:PT1H}")
+    public void archive() {
+        archiveTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime cutoff = now.minus(retention);
+            int archived = 0;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int count = transactionTemplate.execute(status -> archiveBatch(cutoff, now));
+                archived += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+
+            if (archived > 0) {
+                log.info("В архив перенесено {} бронирований, завершившихся до {}", archived, cutoff);
+            }
+        });
+    }
+
+    // Копирование, удаление и запись в журнал счетчиков выполняются в одной транзакции, поэтому бронирование
+    // всегда находится ровно в одной из таблиц.
+    private int archiveBatch(LocalDateTime cutoff, LocalDateTime now) {
+        List<BookingTimelineView> closed = bookingRepository.findTimelinesByEndBefore(cutoff,
+                PageRequest.of(0, batchSize));
+        if (closed.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = closed.stream().map(BookingTimelineView::getId).collect(Collectors.toList());
+        archivedBookingRepository.copyFromBookings(ids, now);
+        bookingRepository.deleteAllByIdInBatch(ids);
+        bookingCounters.archived(closed);
+
+        archivedCounter.increment(closed.size());
+        return closed.size();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.practicum.shareit.booking.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterDelta;
+import ru.practicum.shareit.booking.repositories.BookingCounterRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// Сворачивает вступившие в силу строки журнала booking_counter_log в booking_counters порциями. Строки
+// журнала удаляются в той же транзакции, в которой прибавляются к счетчикам, поэтому чтение в любой момент
+// видит каждое изменение ровно один раз. Строки, которые вступят в силу позже, остаются в журнале до своего
+// времени.
+@Component
+@ConditionalOnProperty(value = "shareit.counters.compaction.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BookingCounterCompactor {
+    private final BookingCounterRepository bookingCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Counter compactedCounter;
+    private final Timer compactionTimer;
+
+    public BookingCounterCompactor(BookingCounterRepository bookingCounterRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${shareit.counters.compaction.batch-size:5000}") int batchSize,
+                                   @Value("${shareit.counters.compaction.max-batches:20}") int maxBatches) {
+        this.bookingCounterRepository = bookingCounterRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+
+        this.compactedCounter = meterRegistry.counter("shareit.bookings.counters.compacted");
+        this.compactionTimer = meterRegistry.timer("shareit.bookings.counters.compaction");
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.counters.compaction.interval:PT10S}",
+            initialDelayString = "${shareit.counters.compaction.interval:PT10S}")
+    public void compact() {
+        compactionTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            int compacted = 0;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int count = transactionTemplate.execute(status -> compactBatch(now));
+                compacted += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+
+            if (compacted > 0) {
+                log.debug("В счетчики бронирований свернуто {} строк журнала", compacted);
+            }
+        });
+    }
+
+    private int compactBatch(LocalDateTime now) {
+        List<BookingCounterDelta> deltas = bookingCounterRepository.findEffectiveForUpdate(now, batchSize);
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Map<BookingCounter, Long> totals = new TreeMap<>(BookingCounter.KEY_ORDER);
+        for (BookingCounterDelta delta : deltas) {
+            totals.merge(new BookingCounter(delta.getUserId(), delta.isOwner(), delta.getType(), 0),
+                    delta.getDelta(), Long::sum);
+        }
+        bookingCounterRepository.addAll(totals.entrySet().stream()
+                .filter(total -> total.getValue() != 0)
+                .map(total -> new BookingCounter(total.getKey().getUserId(), total.getKey().isOwner(),
+                        total.getKey().getType(), total.getValue()))
+                .collect(Collectors.toList()));
+        bookingCounterRepository.deleteLog(deltas.stream()
+                .map(BookingCounterDelta::getId)
+                .collect(Collectors.toList()));
+
+        compactedCounter.increment(deltas.size());
+        return deltas.size();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.shareit.booking.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingCounter;
+import ru.practicum.shareit.booking.model.BookingCounterDelta;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.BookingTimelineView;
+import ru.practicum.shareit.booking.repositories.BookingCounterRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static ru.practicum.shareit.booking.model.BookingCounterDelta.IMMEDIATELY;
+
+// Счетчики бронирований для каждого арендатора и владельца. Транзакции, изменяющие бронирования (создание,
+// смена статуса, просрочка, перенос в архив, удаление пользователя), только добавляют строки в журнал
+// booking_counter_log и не изменяют общих строк, поэтому бронирования вещей одного владельца не ждут друг
+// друга на его счетчиках. BookingCounterCompactor периодически сворачивает журнал в booking_counters.
+// Переходы FUTURE -> CURRENT -> PAST записываются сразу при создании бронирования как строки STARTED и ENDED,
+// вступающие в силу в моменты начала и окончания. Поэтому чтение не зависит от числа бронирований пользователя:
+// свернутые строки плюс строки журнала, вступившие в силу после последней свертки.
+@Component
+@RequiredArgsConstructor
+public class BookingCounters {
+    private final BookingCounterRepository bookingCounterRepository;
+
+    public void created(Collection<Booking> bookings) {
+        List<BookingCounterDelta> deltas = new ArrayList<>();
+        for (Booking booking : bookings) {
+            long bookerId = booking.getBooker().getId();
+            long ownerId = booking.getOwnerId();
+            add(deltas, bookerId, ownerId, BookingCounter.Type.ALL, 1, IMMEDIATELY);
+            addStatus(deltas, bookerId, ownerId, booking.getStatus(), 1);
+            add(deltas, bookerId, ownerId, BookingCounter.Type.STARTED, 1, booking.getStart());
+            add(deltas, bookerId, ownerId, BookingCounter.Type.ENDED, 1, booking.getEnd());
+        }
+        bookingCounterRepository.appendAll(deltas);
+    }
+
+    public void statusChanged(long bookerId, long ownerId, Status from, Status to) {
+        List<BookingCounterDelta> deltas = new ArrayList<>();
+        addStatus(deltas, bookerId, ownerId, from, -1);
+        addStatus(deltas, bookerId, ownerId, to, 1);
+        bookingCounterRepository.appendAll(deltas);
+    }
+
+    public void statusChanged(Collection<? extends BookingIntervalView> bookings, Status from, Status to) {
+        List<BookingCounterDelta> deltas = new ArrayList<>();
+        for (BookingIntervalView booking : bookings) {
+            addStatus(deltas, booking.getBookerId(), booking.getOwnerId(), from, -1);
+            addStatus(deltas, booking.getBookerId(), booking.getOwnerId(), to, 1);
+        }
+        bookingCounterRepository.appendAll(deltas);
+    }
+
+    // В архиве только закончившиеся бронирования, поэтому они остаются в ALL и PAST, а из WAITING и REJECTED
+    // уходят, как и из списков бронирований.
+    public void archived(Collection<? extends BookingTimelineView> bookings) {
+        List<BookingCounterDelta> deltas = new ArrayList<>();
+        for (BookingTimelineView booking : bookings) {
+            addStatus(deltas, booking.getBookerId(), booking.getOwnerId(), booking.getStatus(), -1);
+        }
+        bookingCounterRepository.appendAll(deltas);
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        bookingCounterRepository.appendAll(bookingCounterRepository.findRemovedWithUser(event.getUserId()));
+    }
+
+    public Map<State, Long> getStats(long userId, boolean isOwner) {
+        Map<BookingCounter.Type, Long> totals = bookingCounterRepository.sumByUser(userId, isOwner,
+                LocalDateTime.now());
+        long all = totals.getOrDefault(BookingCounter.Type.ALL, 0L);
+        long started = totals.getOrDefault(BookingCounter.Type.STARTED, 0L);
+        long ended = totals.getOrDefault(BookingCounter.Type.ENDED, 0L);
+
+        Map<State, Long> counts = new EnumMap<>(State.class);
+        counts.put(State.ALL, all);
+        counts.put(State.CURRENT, started - ended);
+        counts.put(State.PAST, ended);
+        counts.put(State.FUTURE, all - started);
+        counts.put(State.WAITING, totals.getOrDefault(BookingCounter.Type.WAITING, 0L));
+        counts.put(State.REJECTED, totals.getOrDefault(BookingCounter.Type.REJECTED, 0L));
+        return counts;
+    }
+
+    private static void addStatus(List<BookingCounterDelta> deltas, long bookerId, long ownerId, Status status,
+                                  long delta) {
+        if (status == Status.WAITING) {
+            add(deltas, bookerId, ownerId, BookingCounter.Type.WAITING, delta, IMMEDIATELY);
+        } else if (status == Status.REJECTED) {
+            add(deltas, bookerId, ownerId, BookingCounter.Type.REJECTED, delta, IMMEDIATELY);
+        }
+    }
+
+    private static void add(List<BookingCounterDelta> deltas, long bookerId, long ownerId, BookingCounter.Type type,
+                            long delta, LocalDateTime effectiveAt) {
+        deltas.add(new BookingCounterDelta(bookerId, false, type, delta, effectiveAt));
+        deltas.add(new BookingCounterDelta(ownerId, true, type, delta, effectiveAt));
+    }
+}
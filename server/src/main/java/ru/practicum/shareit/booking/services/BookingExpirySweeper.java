@@ -0,0 +1,121 @@
+package ru.practicum.shareit.booking.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingStatusChangedDto;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.services.OutboxService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Переводит в EXPIRED ожидающие бронирования, срок начала которых уже прошел. Работает порциями
+// по batchSize, каждая в своей короткой транзакции, чтобы не держать блокировки на большой таблице.
+@Component
+@ConditionalOnProperty(value = "shareit.expiry.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BookingExpirySweeper {
+    private final BookingRepository bookingRepository;
+    private final OutboxService outboxService;
+    private final BookingCounters bookingCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration lagWarning;
+
+    private final Counter expiredCounter;
+    private final Timer sweepTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public BookingExpirySweeper(BookingRepository bookingRepository,
+                                OutboxService outboxService,
+                                BookingCounters bookingCounters,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${shareit.expiry.batch-size:500}") int batchSize,
+                                @Value("${shareit.expiry.max-batches:20}") int maxBatches,
+                                @Value("${shareit.expiry.lag-warning:PT15M}") Duration lagWarning) {
+        this.bookingRepository = bookingRepository;
+        this.outboxService = outboxService;
+        this.bookingCounters = bookingCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.lagWarning = lagWarning;
+
+        this.expiredCounter = meterRegistry.counter("shareit.bookings.expired");
+        this.sweepTimer = meterRegistry.timer("shareit.bookings.expiry.sweep");
+        meterRegistry.gauge("shareit.bookings.expiry.lag.seconds", lagSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.expiry.interval:PT1M}",
+            initialDelayString = "${shareit.expiry.interval:PT1M}")
+    public void sweep() {
+        sweepTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            int expired = 0;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int count = transactionTemplate.execute(status -> expireBatch(now));
+                expired += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+            updateLag(now);
+
+            if (expired > 0) {
+                log.info("Переведено в статус EXPIRED {} просроченных бронирований", expired);
+            }
+        });
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds.get();
+    }
+
+    // Порция выбирается и переводится в EXPIRED одним запросом, который возвращает ровно обновленные строки,
+    // поэтому события уходят только о действительно просроченных бронированиях.
+    private int expireBatch(LocalDateTime now) {
+        List<BookingIntervalView> expired = bookingRepository.expireWaitingStartedBefore(now, batchSize);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        bookingCounters.statusChanged(expired, Status.WAITING, Status.EXPIRED);
+        outboxService.publishAll(OutboxEventType.BOOKING_EXPIRED, expired.stream()
+                .map(interval -> new BookingStatusChangedDto(interval.getId(), interval.getItemId(), Status.EXPIRED))
+                .collect(Collectors.toList()), BookingStatusChangedDto::getId);
+
+        expiredCounter.increment(expired.size());
+        return expired.size();
+    }
+
+    // Отставание - возраст самого старого еще не обработанного бронирования. Растущее значение означает,
+    // что порций за один запуск не хватает и нужно увеличить batch-size, max-batches или частоту запуска.
+    private void updateLag(LocalDateTime now) {
+        long lag = bookingRepository.findMinStartByStatusAndStartBefore(Status.WAITING, now)
+                .map(oldest -> Duration.between(oldest, now).getSeconds())
+                .orElse(0L);
+        lagSeconds.set(lag);
+
+        if (lag > lagWarning.getSeconds()) {
+            log.warn("Отставание обработки просроченных бронирований {} с превышает допустимое {}", lag,
+                    lagWarning);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.services;
+
+import ru.practicum.shareit.booking.dto.ExportJobDto;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.State;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+public interface BookingExportService {
+    ExportJobDto start(long idUser, boolean isOwner, State state, ExportFormat format,
+                       LocalDateTime from, LocalDateTime to, boolean archived);
+
+    ExportJobDto getById(long idUser, String jobId);
+
+    Path getFile(long idUser, String jobId);
+}
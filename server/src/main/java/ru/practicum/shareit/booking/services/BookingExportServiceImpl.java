@@ -0,0 +1,352 @@
+package ru.practicum.shareit.booking.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.ExportJobDto;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.exceptions.ExportNotReadyException;
+import ru.practicum.shareit.booking.exceptions.ExportQueueFullException;
+import ru.practicum.shareit.booking.exceptions.NoExportJobException;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.booking.model.ExportJob;
+import ru.practicum.shareit.booking.repositories.BookingCriteria;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.repositories.ExportJobRepository;
+import ru.practicum.shareit.user.services.UserService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingExportServiceImpl implements BookingExportService {
+    private static final String CSV_HEADER = "id,start,end,status,item_id,item_name,booker_id,owner_id";
+    private static final int THROTTLE_CHECK_ROWS = 1000;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final UserService userService;
+    private final BookingRepository bookingRepository;
+    private final ExportJobRepository exportJobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${shareit.export.dir:${java.io.tmpdir}/shareit-export}")
+    private String directory;
+
+    @Value("${shareit.export.threads:1}")
+    private int threads;
+
+    @Value("${shareit.export.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${shareit.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${shareit.export.rows-per-second:50000}")
+    private int rowsPerSecond;
+
+    @Value("${shareit.export.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${shareit.export.stale-timeout:PT1H}")
+    private Duration staleTimeout;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate jobTransactionTemplate;
+
+    // Выгрузки выполняются небольшим пулом низкоприоритетных потоков с ограниченной очередью: каждая задача
+    // держит соединение с базой на все время чтения, поэтому не должна отнимать пул у интерактивных запросов.
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(directory));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "booking-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        // Статус задачи пишется в отдельной транзакции, чтобы быть видимым другим экземплярам, пока выгрузка
+        // еще читает бронирования в своей транзакции только на чтение.
+        jobTransactionTemplate = new TransactionTemplate(transactionManager);
+        jobTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ExportJobDto start(long idUser, boolean isOwner, State state, ExportFormat format,
+                              LocalDateTime from, LocalDateTime to, boolean archived) {
+        userService.getById(idUser);
+
+        String jobId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        ExportJob job = exportJobRepository.save(ExportJob.builder()
+                .id(jobId)
+                .userId(idUser)
+                .owner(isOwner)
+                .state(state)
+                .format(format)
+                .startFrom(from)
+                .endTo(to)
+                .archived(archived && (state == State.PAST || state == State.ALL))
+                .fileName(jobId + "." + format.name().toLowerCase() + ".gz")
+                .status(ExportStatus.QUEUED)
+                .created(now)
+                .updated(now)
+                .build());
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            exportJobRepository.deleteById(jobId);
+            log.info("Очередь выгрузок заполнена, запрос пользователя с id: {} отклонен", idUser);
+            throw new ExportQueueFullException(queueCapacity);
+        }
+
+        log.info("Поставлена в очередь выгрузка {} бронирований со статусом: {} пользователя с id: {}, id задачи: {}",
+                format, state, idUser, jobId);
+        return toExportJobDto(job);
+    }
+
+    @Override
+    public ExportJobDto getById(long idUser, String jobId) {
+        return toExportJobDto(getJob(idUser, jobId));
+    }
+
+    // Каталог выгрузок должен быть общим для всех экземпляров сервиса: файл пишет тот экземпляр, который
+    // принял задачу, а скачать его можно через любой.
+    @Override
+    public Path getFile(long idUser, String jobId) {
+        ExportJob job = getJob(idUser, jobId);
+        if (job.getStatus() != ExportStatus.DONE) {
+            throw new ExportNotReadyException(jobId, job.getStatus());
+        }
+        Path file = fileOf(job);
+        if (!Files.exists(file)) {
+            log.warn("Файл выгрузки с id: {} не найден в каталоге {}", jobId, directory);
+            throw new NoExportJobException(jobId);
+        }
+        return file;
+    }
+
+    // Удаляет задачи и файлы старше срока хранения, а задачи, переставшие обновляться (например, после
+    // перезапуска принявшего их экземпляра), помечает ошибочными. Файлы удаляются по времени изменения,
+    // поэтому вместе с файлами завершенных задач удаляются и брошенные недописанные части.
+    @Scheduled(fixedDelayString = "${shareit.export.cleanup-interval:PT10M}",
+            initialDelayString = "${shareit.export.cleanup-interval:PT10M}")
+    public void removeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minusHours(ttlHours);
+        int stale = jobTransactionTemplate.execute(status -> exportJobRepository.failStale(
+                List.of(ExportStatus.QUEUED, ExportStatus.RUNNING), now.minus(staleTimeout), now,
+                ExportStatus.FAILED, "Выгрузка прервана"));
+        int expired = jobTransactionTemplate.execute(status -> exportJobRepository.deleteByFinishedBefore(
+                expiredBefore));
+
+        FileTime modifiedBefore = FileTime.from(expiredBefore.atZone(ZoneId.systemDefault()).toInstant());
+        int files = 0;
+        try (Stream<Path> paths = Files.list(Paths.get(directory))) {
+            for (Path file : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).compareTo(modifiedBefore) < 0) {
+                    deleteFile(file);
+                    files++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось просмотреть каталог выгрузок {}", directory, e);
+        }
+
+        if (stale + expired + files > 0) {
+            log.info("Очистка выгрузок: прервано {} задач, удалено {} задач и {} файлов", stale, expired, files);
+        }
+    }
+
+    private ExportJob getJob(long idUser, String jobId) {
+        return exportJobRepository.findById(jobId)
+                .filter(job -> job.getUserId() == idUser)
+                .orElseThrow(() -> new NoExportJobException(jobId));
+    }
+
+    private void run(ExportJob job) {
+        Integer started = jobTransactionTemplate.execute(status -> exportJobRepository.updateStatus(job.getId(),
+                ExportStatus.RUNNING, LocalDateTime.now(), ExportStatus.QUEUED));
+        if (started == null || started == 0) {
+            log.info("Выгрузка с id: {} уже прервана и не будет выполнена", job.getId());
+            return;
+        }
+
+        Path file = fileOf(job);
+        Path partFile = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            long rows = transactionTemplate.execute(transactionStatus -> write(job, partFile));
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+            finish(job, ExportStatus.DONE, rows, null);
+            log.info("Выгрузка с id: {} завершена, записано {} бронирований", job.getId(), rows);
+        } catch (RuntimeException | IOException e) {
+            deleteFile(partFile);
+
+            String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            finish(job, ExportStatus.FAILED, job.getRows(),
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            log.warn("Выгрузка с id: {} завершилась ошибкой", job.getId(), e);
+        }
+    }
+
+    private void finish(ExportJob job, ExportStatus status, long rows, String error) {
+        jobTransactionTemplate.executeWithoutResult(transactionStatus -> exportJobRepository.finish(job.getId(),
+                status, rows, LocalDateTime.now(), error));
+    }
+
+    // Строки читаются из курсора по одной и сразу сжимаются в файл, так что расход памяти не зависит
+    // от объема истории. Архив дополняет только PAST и ALL и читается после рабочей таблицы в той же транзакции.
+    private long write(ExportJob job, Path partFile) {
+        long startedAt = System.nanoTime();
+        long reportedAt = startedAt;
+        BookingCriteria criteria = criteriaOf(job);
+        try (Stream<BookingRow> rows = job.isArchived()
+                ? Stream.concat(bookingRepository.streamExportRows(criteria, fetchSize),
+                bookingRepository.streamArchivedExportRows(criteria, fetchSize))
+                : bookingRepository.streamExportRows(criteria, fetchSize);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(partFile)), StandardCharsets.UTF_8))) {
+            if (job.getFormat() == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            Iterator<BookingRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                BookingRow row = iterator.next();
+                writer.write(job.getFormat() == ExportFormat.CSV ? toCsvLine(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+
+                job.setRows(job.getRows() + 1);
+                if (job.getRows() % THROTTLE_CHECK_ROWS == 0) {
+                    throttle(job.getRows(), startedAt);
+                    if (System.nanoTime() - reportedAt >= PROGRESS_INTERVAL_NANOS) {
+                        reportedAt = System.nanoTime();
+                        jobTransactionTemplate.executeWithoutResult(status -> exportJobRepository.updateProgress(
+                                job.getId(), job.getRows(), LocalDateTime.now()));
+                    }
+                }
+            }
+            return job.getRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Выравнивает скорость чтения до rowsPerSecond, чтобы выгрузка не забирала диск и процессор базы.
+    private void throttle(long written, long startedAt) {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long aheadMillis = written * 1000 / rowsPerSecond - (System.nanoTime() - startedAt) / 1_000_000;
+        if (aheadMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(aheadMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Выгрузка прервана");
+        }
+    }
+
+    private Path fileOf(ExportJob job) {
+        return Paths.get(directory, job.getFileName());
+    }
+
+    private static BookingCriteria criteriaOf(ExportJob job) {
+        return BookingCriteria.builder()
+                .ownerId(job.isOwner() ? job.getUserId() : null)
+                .bookerId(job.isOwner() ? null : job.getUserId())
+                .state(job.getState())
+                .startFrom(job.getStartFrom())
+                .endTo(job.getEndTo())
+                .build();
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить файл выгрузки {}", file, e);
+        }
+    }
+
+    private static String toCsvLine(BookingRow row) {
+        return row.getId() + "," + row.getStart() + "," + row.getEnd() + "," + row.getStatus() + "," +
+                row.getItemId() + "," + escapeCsv(row.getItemName()) + "," + row.getBookerId() + "," +
+                row.getOwnerId();
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static ExportJobDto toExportJobDto(ExportJob job) {
+        return ExportJobDto.builder()
+                .id(job.getId())
+                .format(job.getFormat())
+                .status(job.getStatus())
+                .rows(job.getRows())
+                .created(job.getCreated())
+                .finished(job.getFinished())
+                .error(job.getError())
+                .build();
+    }
+}
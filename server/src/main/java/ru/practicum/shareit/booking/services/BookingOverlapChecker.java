@@ -0,0 +1,55 @@
+package ru.practicum.shareit.booking.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.ValidationBookingDtoException;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Проверка пересечения бронирования одной вещи с уже подтвержденными. Методы вызываются под блокировкой
+// строки вещи, поэтому проверка по базе учитывает бронирования, подтвержденные на любом экземпляре сервиса.
+// Поиск ограничен одной вещью и идет по индексу (item_id, end_date, ...), а не по всем бронированиям.
+// Индекс интервалов в памяти, который раньше отвечал на этот вопрос, убран: его не видели другие экземпляры,
+// очистка просроченных и архивирование, и он расходился с базой.
+@Component
+@RequiredArgsConstructor
+public class BookingOverlapChecker {
+    private final BookingRepository bookingRepository;
+
+    // Для нового бронирования сообщение уточняет, какая из дат попала в подтвержденное бронирование.
+    public void checkNewBooking(AddBookingDto addBookingDto) {
+        List<BookingIntervalView> overlaps = bookingRepository.findIntervalsByItemId(addBookingDto.getItemId(),
+                addBookingDto.getStart(), addBookingDto.getEnd(), List.of(Status.APPROVED));
+        if (overlaps.isEmpty()) {
+            return;
+        }
+
+        BookingIntervalView approved = overlaps.get(0);
+        if (addBookingDto.getStart().isAfter(approved.getStart()) &
+                addBookingDto.getStart().isBefore(approved.getEnd())) {
+            throw new ValidationBookingDtoException("Дата начала бронирования пересекается с уже" +
+                    " подтвержденным бронированием для вещи с id = " + addBookingDto.getItemId());
+        }
+
+        if (addBookingDto.getEnd().isAfter(approved.getStart()) &
+                addBookingDto.getEnd().isBefore(approved.getEnd())) {
+            throw new ValidationBookingDtoException("Дата окончания бронирования пересекается с уже" +
+                    " подтвержденным бронированием для вещи с id = " + addBookingDto.getItemId());
+        }
+
+        throw new ValidationBookingDtoException("На эти даты вещь c id = " + addBookingDto.getItemId() +
+                " уже забронирована другим пользователем");
+    }
+
+    public void checkApproval(long itemId, LocalDateTime start, LocalDateTime end) {
+        if (bookingRepository.existsIntersection(itemId, start, end, Status.APPROVED)) {
+            throw new ValidationBookingDtoException("На эти даты вещь c id = " + itemId +
+                    " уже забронирована другим пользователем");
+        }
+    }
+}
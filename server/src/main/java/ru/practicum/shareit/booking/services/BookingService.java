@@ -1,19 +1,39 @@
 package ru.practicum.shareit.booking.services;
 
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
     BookingDto add(long idUser, AddBookingDto addBookingDto);
 
+    List<BookingBatchResultDto> addBatch(long idUser, List<AddBookingDto> addBookingDtoList);
+
     BookingDto patch(long bookingId, long idUser, Boolean isApproved);
 
+    BookingDecisionResultDto patchBatch(long idUser, Boolean isApproved, BookingDecisionDto bookingDecisionDto);
+
     BookingDto getByIdBooking(long bookingId, long idUser);
 
     List<BookingDto> getAllByIdUser(long idUser, State state, Integer from, Integer size);
 
+    List<BookingDto> getAllByIdUser(long idUser, State state, Integer from, Integer size, boolean archived);
+
     List<BookingDto> getAllByIdOwner(long idUser, State state, Integer from, Integer size);
+
+    List<BookingDto> getAllByIdOwner(long idUser, State state, Integer from, Integer size, boolean archived);
+
+    CursorPage<BookingDto> getAllByIdUserAfter(long idUser, State state, Cursor after, int size);
+
+    CursorPage<BookingDto> getAllByIdOwnerAfter(long idUser, State state, Cursor after, int size);
+
+    Map<State, Long> getStats(long idUser, boolean isOwner);
 }
@@ -2,30 +2,51 @@ package ru.practicum.shareit.booking.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusChangedDto;
 import ru.practicum.shareit.booking.exceptions.*;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.booking.repositories.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repositories.BookingCriteria;
 import ru.practicum.shareit.booking.repositories.BookingRepository;
 import ru.practicum.shareit.item.repositories.ItemRepository;
 import ru.practicum.shareit.item.exceptions.NoItemException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.services.OutboxService;
 import ru.practicum.shareit.user.exceptions.NoUserException;
 import ru.practicum.shareit.user.services.UserService;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,45 +57,96 @@ public class BookingServiceImpl implements BookingService {
     private final UserService userService;
 
     private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
     private final ItemRepository itemRepository;
+    private final OutboxService outboxService;
+    private final BookingCounters bookingCounters;
+    private final BookingOverlapChecker bookingOverlapChecker;
 
     private final BookingMapper bookingMapper;
     private final UserMapper userMapper;
 
-    private static final Sort SORT_START_DATE_DESC = Sort.by(Sort.Direction.DESC, "start");
+    private static final Comparator<BookingRow> ROW_ORDER = Comparator.comparing(BookingRow::getStart)
+            .thenComparingLong(BookingRow::getId)
+            .reversed();
 
     @Override
     public BookingDto add(long idUser, AddBookingDto addBookingDto) {
-        Item item = itemRepository.findById(addBookingDto.getItemId()).orElseThrow(() ->
+        Item item = itemRepository.findByIdForUpdate(addBookingDto.getItemId()).orElseThrow(() ->
                 new NoItemException(addBookingDto.getItemId()));
 
-        User owner = userMapper.toUser(userService.getById(item.getOwner().getId()));
         User booker = userMapper.toUser(userService.getById(idUser));
 
-        if (idUser == owner.getId()) {
-            throw new ValidationBelongsItemToUser("Пользователь не может взять вещь сам у себя в аренду");
-        }
+        checkNewBooking(idUser, item, addBookingDto);
+        bookingOverlapChecker.checkNewBooking(addBookingDto);
 
-        if (!item.getAvailable()) {
-            throw new ValidationBookingDtoException("Вещь с id: " + addBookingDto.getItemId() + " сейчас не доступна" +
-                    " для бронирования");
+        Booking booking = bookingRepository.save(toWaitingBooking(addBookingDto, item, booker));
+        bookingCounters.created(List.of(booking));
+
+        BookingDto bookingDto = bookingMapper.toBookingDto(booking);
+        outboxService.publish(OutboxEventType.BOOKING_CREATED, booking.getId(), bookingDto);
+
+        log.info("Сохранен запрос бронирования с id: {}", booking.getId());
+        return bookingDto;
+    }
+
+    @Override
+    public List<BookingBatchResultDto> addBatch(long idUser, List<AddBookingDto> addBookingDtoList) {
+        User booker = userMapper.toUser(userService.getById(idUser));
+        if (addBookingDtoList.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        checkBookingTime(addBookingDto);
-        checkIntersectionsByBookingTime(addBookingDto);
+        // Вещи пакета блокируются одним запросом в порядке id, поэтому пакеты с общими вещами
+        // не могут взаимно заблокировать друг друга.
+        Map<Long, Item> items = itemRepository.findAllByIdForUpdate(addBookingDtoList.stream()
+                        .map(AddBookingDto::getItemId)
+                        .collect(Collectors.toCollection(TreeSet::new))).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        Map<Long, List<BookingIntervalView>> approvedByItem = findApprovedForBatch(items.keySet(), addBookingDtoList);
+
+        BookingBatchResultDto[] results = new BookingBatchResultDto[addBookingDtoList.size()];
+        Map<Long, List<Integer>> acceptedByItem = new HashMap<>();
+        List<Booking> bookings = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        for (int i = 0; i < addBookingDtoList.size(); i++) {
+            AddBookingDto addBookingDto = addBookingDtoList.get(i);
+            Item item = items.get(addBookingDto.getItemId());
+            try {
+                if (item == null) {
+                    throw new NoItemException(addBookingDto.getItemId());
+                }
+                checkNewBooking(idUser, item, addBookingDto);
+                checkBatchIntersections(addBookingDto, addBookingDtoList,
+                        approvedByItem.getOrDefault(item.getId(), Collections.emptyList()),
+                        acceptedByItem.getOrDefault(item.getId(), Collections.emptyList()));
+            } catch (NoItemException | ValidationBelongsItemToUser | ValidationBookingDtoException e) {
+                results[i] = new BookingBatchResultDto(i, null, e.getMessage());
+                continue;
+            }
 
-        BookingDto bookingDto = new BookingDto();
+            acceptedByItem.computeIfAbsent(item.getId(), id -> new ArrayList<>()).add(i);
+            bookings.add(toWaitingBooking(addBookingDto, item, booker));
+            positions.add(i);
+        }
 
-        bookingDto.setStart(addBookingDto.getStart());
-        bookingDto.setEnd(addBookingDto.getEnd());
-        bookingDto.setItem(item);
-        bookingDto.setBooker(booker);
-        bookingDto.setStatus(Status.WAITING);
+        bookingRepository.insertAll(bookings);
+        bookingCounters.created(bookings);
+        List<BookingDto> created = new ArrayList<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
 
-        Booking booking = bookingRepository.save(bookingMapper.toBooking(bookingDto));
+            BookingDto bookingDto = bookingMapper.toBookingDto(booking);
+            created.add(bookingDto);
+            int position = positions.get(i);
+            results[position] = new BookingBatchResultDto(position, bookingDto, null);
+        }
+        outboxService.publishAll(OutboxEventType.BOOKING_CREATED, created, BookingDto::getId);
 
-        log.info("Сохранен запрос бронирования с id: {}", booking.getId());
-        return bookingMapper.toBookingDto(booking);
+        log.info("Сохранено {} из {} бронирований пакета пользователя с id: {}", bookings.size(),
+                addBookingDtoList.size(), idUser);
+        return Arrays.asList(results);
     }
 
     @Override
@@ -83,33 +155,121 @@ public class BookingServiceImpl implements BookingService {
                 new NoBookingException(bookingId));
 
         Item item = booking.getItem();
-        User owner = userMapper.toUser(userService.getById(item.getOwner().getId()));
+        long ownerId = booking.getOwnerId();
+        long bookerId = booking.getBooker().getId();
 
-        if (idUser != owner.getId()) {
+        if (idUser != ownerId) {
             throw new ValidationBookingByOwnerItemOrBooker("Вещь с id= " + item.getId() + " не принадлежит пользователю " +
-                    "с id= " + owner.getId());
+                    "с id= " + ownerId);
         }
 
         if (booking.getStatus().equals(Status.APPROVED)) {
-            throw new ValidationStatusException("Владелец вещи с id= " + owner.getId() + " уже подтвердил брованирование" +
+            throw new ValidationStatusException("Владелец вещи с id= " + ownerId + " уже подтвердил брованирование" +
                     " с id= " + bookingId);
         }
 
         if (booking.getStatus().equals(Status.REJECTED)) {
-            throw new ValidationStatusException("Владелец вещи с id= " + owner.getId() + " уже отклонил брованирование" +
+            throw new ValidationStatusException("Владелец вещи с id= " + ownerId + " уже отклонил брованирование" +
                     " с id= " + bookingId);
         }
 
+        // Ожидающее бронирование, начало которого уже наступило, считается просроченным, даже если
+        // BookingExpirySweeper еще не успел перевести его в EXPIRED.
+        if (booking.getStatus().equals(Status.EXPIRED) || !booking.getStart().isAfter(LocalDateTime.now())) {
+            throw new ValidationStatusException("Бронирование с id= " + bookingId + " не было рассмотрено до даты" +
+                    " начала и просрочено");
+        }
+
+        Status status = isApproved ? Status.APPROVED : Status.REJECTED;
         if (isApproved) {
-            booking.setStatus(Status.APPROVED);
-            log.info("Владелец вещи с id= {} подвердил бронирование с id={}", idUser, bookingId);
-        } else {
-            booking.setStatus(Status.REJECTED);
-            log.info("Владелец вещи с id= {} отклонил бронирование с id={}", idUser, bookingId);
+            itemRepository.findByIdForUpdate(item.getId());
+            // Под блокировкой вещи статус перечитывается из базы: если параллельный запрос уже подтвердил это же
+            // бронирование, проверка пересечений иначе нашла бы его само.
+            if (bookingRepository.findStatusById(bookingId) != Status.WAITING) {
+                throw new BookingStatusConflictException("Статус бронирования с id= " + bookingId +
+                        " был изменен параллельно, повторите запрос");
+            }
+            bookingOverlapChecker.checkApproval(item.getId(), booking.getStart(), booking.getEnd());
         }
 
-        bookingRepository.save(booking);
-        return bookingMapper.toBookingDto(booking);
+        // DTO собирается до UPDATE: запрос очищает контекст персистентности, и ленивая вещь бронирования
+        // после него уже не загрузится.
+        BookingDto bookingDto = bookingMapper.toBookingDto(booking);
+
+        // Строка бронирования не блокируется: переход выполняется условным UPDATE только из WAITING,
+        // и если параллельный запрос успел изменить статус, обновится ноль строк.
+        int updated;
+        try {
+            updated = bookingRepository.updateStatus(List.of(bookingId), status, Status.WAITING);
+        } catch (DataIntegrityViolationException e) {
+            throw new ValidationBookingDtoException("На эти даты вещь c id = " + item.getId() +
+                    " уже забронирована другим пользователем");
+        }
+        if (updated == 0) {
+            throw new BookingStatusConflictException("Статус бронирования с id= " + bookingId +
+                    " был изменен параллельно, повторите запрос");
+        }
+        bookingCounters.statusChanged(bookerId, ownerId, Status.WAITING, status);
+
+        bookingDto.setStatus(status);
+        outboxService.publish(toEventType(status), bookingId,
+                new BookingStatusChangedDto(bookingId, item.getId(), status));
+
+        log.info("Владелец вещи с id= {} перевел бронирование с id={} в статус {}", idUser, bookingId, status);
+        return bookingDto;
+    }
+
+    @Override
+    public BookingDecisionResultDto patchBatch(long idUser, Boolean isApproved, BookingDecisionDto bookingDecisionDto) {
+        if (!userService.isExistUser(idUser)) {
+            throw new NoUserException(idUser);
+        }
+
+        List<BookingIntervalView> waiting = bookingRepository.findIntervalsByCriteria(BookingCriteria.builder()
+                .ownerId(idUser)
+                .state(State.WAITING)
+                .bookingIds(bookingDecisionDto.getBookingIds())
+                .itemId(bookingDecisionDto.getItemId())
+                .startFrom(bookingDecisionDto.getStart())
+                .endTo(bookingDecisionDto.getEnd())
+                .build());
+
+        // Бронирования, начало которых уже наступило, пропускаются как просроченные (см. patch).
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingIntervalView> open = waiting.stream()
+                .filter(interval -> interval.getStart().isAfter(now))
+                .collect(Collectors.toList());
+        List<BookingIntervalView> decided = isApproved ? selectApprovable(open) : open;
+        Status status = isApproved ? Status.APPROVED : Status.REJECTED;
+        List<Long> changed = decided.stream().map(BookingIntervalView::getId).collect(Collectors.toList());
+
+        int updated;
+        try {
+            updated = changed.isEmpty() ? 0 : bookingRepository.updateStatus(changed, status, Status.WAITING);
+        } catch (DataIntegrityViolationException e) {
+            throw new ValidationBookingDtoException("На эти даты часть вещей владельца с id = " + idUser +
+                    " уже забронирована другими пользователями");
+        }
+        if (updated != changed.size()) {
+            throw new BookingStatusConflictException("Статус части бронирований владельца вещей с id= " + idUser +
+                    " был изменен параллельно, повторите запрос");
+        }
+        bookingCounters.statusChanged(decided, Status.WAITING, status);
+        outboxService.publishAll(toEventType(status), decided.stream()
+                .map(interval -> new BookingStatusChangedDto(interval.getId(), interval.getItemId(), status))
+                .collect(Collectors.toList()), BookingStatusChangedDto::getId);
+
+        Set<Long> changedIds = new HashSet<>(changed);
+        List<Long> skipped = (bookingDecisionDto.getBookingIds() != null
+                ? bookingDecisionDto.getBookingIds().stream()
+                : waiting.stream().map(BookingIntervalView::getId))
+                .filter(bookingId -> !changedIds.contains(bookingId))
+                .distinct()
+                .collect(Collectors.toList());
+
+        log.info("Владелец вещей с id= {} перевел в статус {} бронирования {}, пропущены {}", idUser, status,
+                changed, skipped);
+        return new BookingDecisionResultDto(status, changed, skipped);
     }
 
     @Override
@@ -117,7 +277,7 @@ public class BookingServiceImpl implements BookingService {
         Booking booking = bookingRepository.findById(bookingId).orElseThrow(() ->
                 new NoBookingException(bookingId));
 
-        if (idUser != booking.getBooker().getId() & idUser != booking.getItem().getOwner().getId()) {
+        if (idUser != booking.getBooker().getId() && idUser != booking.getOwnerId()) {
             throw new ValidationBookingByOwnerItemOrBooker("Пользователь с id= " + idUser + " не является владельцем или" +
                     " арендатором вещи с id= " + booking.getItem().getId());
         }
@@ -127,126 +287,238 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public List<BookingDto> getAllByIdUser(long idUser, State state, Integer from, Integer size) {
+        return getAllByIdUser(idUser, state, from, size, false);
+    }
+
+    @Override
+    public List<BookingDto> getAllByIdUser(long idUser, State state, Integer from, Integer size, boolean archived) {
         if (!userService.isExistUser(idUser)) {
             throw new NoUserException(idUser);
         }
-        if (size == null) {
-            List<Booking> bookingList = bookingRepository.findBookingByIdUserAndSortTime(idUser);
-
-            if (bookingList.isEmpty()) {
-                throw new NoBookingBookerException(idUser);
-            }
 
-            List<Booking> curBookingList = getFilteredBookingListByState(bookingList, state);
+        BookingCriteria criteria = BookingCriteria.builder()
+                .bookerId(idUser)
+                .state(state)
+                .build();
+        boolean withArchive = archived && isArchivable(state);
+        List<BookingRow> bookingList = withArchive
+                ? findWithArchive(criteria, page -> archivedBookingRepository.findRowsByBookerId(idUser, page),
+                from, size)
+                : bookingRepository.findByCriteria(criteria, from, size);
+
+        if (bookingList.isEmpty() && (state == State.ALL || !bookingRepository.existsByBookerId(idUser)
+                && !(withArchive && archivedBookingRepository.existsByBookerId(idUser)))) {
+            throw new NoBookingBookerException(idUser);
+        }
 
-            log.info("Возвращены все бронирования пользователя с id={} со статусом {}", idUser, state);
-            return curBookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
+        log.info("Возвращены все бронирования пользователя с id={} со статусом {} c пагинацией от элемента {} размером {}",
+                idUser, state, from, size);
+        return bookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
+    }
 
-        } else {
+    @Override
+    public List<BookingDto> getAllByIdOwner(long idUser, State state, Integer from, Integer size) {
+        return getAllByIdOwner(idUser, state, from, size, false);
+    }
 
-            Pageable pageable = PageRequest.of(from / size, size, SORT_START_DATE_DESC);
-            Page<Booking> bookingPage = bookingRepository.findBookingByBookerId(idUser, pageable);
+    @Override
+    public List<BookingDto> getAllByIdOwner(long idUser, State state, Integer from, Integer size, boolean archived) {
+        if (!userService.isExistUser(idUser)) {
+            throw new NoUserException(idUser);
+        }
 
-            if (bookingPage.getContent().isEmpty()) {
-                throw new NoBookingBookerException(idUser);
-            }
+        BookingCriteria criteria = BookingCriteria.builder()
+                .ownerId(idUser)
+                .state(state)
+                .build();
+        boolean withArchive = archived && isArchivable(state);
+        List<BookingRow> bookingList = withArchive
+                ? findWithArchive(criteria, page -> archivedBookingRepository.findRowsByOwnerId(idUser, page),
+                from, size)
+                : bookingRepository.findByCriteria(criteria, from, size);
+
+        if (bookingList.isEmpty() && (state == State.ALL || !bookingRepository.existsByOwnerId(idUser)
+                && !(withArchive && archivedBookingRepository.existsByOwnerId(idUser)))) {
+            throw new NoBookingOwnerException(idUser);
+        }
 
-            List<Booking> curBookingList = getFilteredBookingListByState(bookingPage.getContent(), state);
+        log.info("Возвращены все бронирования вещей хозяина с id={} со статусом {} и пагаинацией от {}, размером {}",
+                idUser, state, from, size);
+        return bookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
+    }
 
-            log.info("Возвращены все бронирования пользователя с id={} со статусом {} c пагинацией от элемента {} размером {}",
-                    idUser, state, from, size);
-            return curBookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
+    @Override
+    public CursorPage<BookingDto> getAllByIdUserAfter(long idUser, State state, Cursor after, int size) {
+        if (!userService.isExistUser(idUser)) {
+            throw new NoUserException(idUser);
         }
+
+        List<BookingRow> bookingList = bookingRepository.findByCriteria(BookingCriteria.builder()
+                .bookerId(idUser)
+                .state(state)
+                .afterStart(after == null ? null : after.getTime())
+                .afterId(after == null ? null : after.getId())
+                .build(), 0, size + 1);
+
+        log.info("Возвращена страница бронирований пользователя с id={} со статусом {} после курсора размером {}",
+                idUser, state, size);
+        return toCursorPage(bookingList, size);
     }
 
     @Override
-    public List<BookingDto> getAllByIdOwner(long idUser, State state, Integer from, Integer size) {
+    public CursorPage<BookingDto> getAllByIdOwnerAfter(long idUser, State state, Cursor after, int size) {
         if (!userService.isExistUser(idUser)) {
             throw new NoUserException(idUser);
         }
 
-        if (size == null) {
+        List<BookingRow> bookingList = bookingRepository.findByCriteria(BookingCriteria.builder()
+                .ownerId(idUser)
+                .state(state)
+                .afterStart(after == null ? null : after.getTime())
+                .afterId(after == null ? null : after.getId())
+                .build(), 0, size + 1);
 
-            List<Booking> bookingList = bookingRepository.findBookingByIdOwner(idUser);
+        log.info("Возвращена страница бронирований вещей хозяина с id={} со статусом {} после курсора размером {}",
+                idUser, state, size);
+        return toCursorPage(bookingList, size);
+    }
 
-            if (bookingList.isEmpty()) {
-                throw new NoBookingOwnerException(idUser);
-            }
+    private CursorPage<BookingDto> toCursorPage(List<BookingRow> bookingList, int size) {
+        return CursorPage.of(bookingList, size, bookingMapper::toBookingDto,
+                bookingRow -> Cursor.encode(bookingRow.getStart(), bookingRow.getId()));
+    }
 
-            List<Booking> curBookingList = getFilteredBookingListByState(bookingList, state);
+    private void checkNewBooking(long idUser, Item item, AddBookingDto addBookingDto) {
+        if (idUser == item.getOwner().getId()) {
+            throw new ValidationBelongsItemToUser("Пользователь не может взять вещь сам у себя в аренду");
+        }
 
-            log.info("Возвращены все бронирования вещей хозяина с id={} со статусом {}", idUser, state);
-            return curBookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
+        if (!item.getAvailable()) {
+            throw new ValidationBookingDtoException("Вещь с id: " + addBookingDto.getItemId() + " сейчас не доступна" +
+                    " для бронирования");
+        }
 
-        } else {
-            Pageable pageable = PageRequest.of(from / size, size, SORT_START_DATE_DESC);
-            Page<Booking> bookingPage = bookingRepository.findBookingByIdOwner(idUser, pageable);
+        checkBookingTime(addBookingDto);
+    }
 
-            if (bookingPage.getContent().isEmpty()) {
-                throw new NoBookingOwnerException(idUser);
-            }
+    @Override
+    public Map<State, Long> getStats(long idUser, boolean isOwner) {
+        if (!userService.isExistUser(idUser)) {
+            throw new NoUserException(idUser);
+        }
 
-            List<Booking> curBookingList = getFilteredBookingListByState(bookingPage.getContent(), state);
+        Map<State, Long> counts = bookingCounters.getStats(idUser, isOwner);
+        log.info("Возвращены счетчики бронирований {} с id= {}", isOwner ? "владельца" : "арендатора", idUser);
+        return counts;
+    }
 
-            log.info("Возвращены все бронирования вещей хозяина с id={} со статусом {} и пагаинацией от {}, размером {}",
-                    idUser, state, from, size);
-            return curBookingList.stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
-        }
+    // В архиве только бронирования, завершившиеся раньше срока хранения, поэтому он дополняет лишь PAST и ALL.
+    private static boolean isArchivable(State state) {
+        return state == State.PAST || state == State.ALL;
+    }
 
+    // Длинное бронирование из рабочей таблицы может начаться раньше архивного, поэтому страница собирается
+    // слиянием первых from + size строк обоих источников в общем порядке списка.
+    private List<BookingRow> findWithArchive(BookingCriteria criteria, Function<Pageable, List<BookingRow>> archive,
+                                             Integer from, Integer size) {
+        Integer limit = size == null ? null : from + size;
+        List<BookingRow> rows = new ArrayList<>(bookingRepository.findByCriteria(criteria, limit == null ? null : 0,
+                limit));
+        rows.addAll(archive.apply(limit == null ? Pageable.unpaged() : PageRequest.of(0, limit)));
+        rows.sort(ROW_ORDER);
+        return limit == null ? rows : rows.subList(Math.min(from, rows.size()), Math.min(limit, rows.size()));
     }
 
-    private List<Booking> getFilteredBookingListByState(List<Booking> bookingList, State state) {
-        switch (state) {
-            case CURRENT:
-                return bookingList.stream().filter(booking -> booking.getStart().isBefore(LocalDateTime.now()) &
-                        booking.getEnd().isAfter(LocalDateTime.now())).collect(Collectors.toList());
-            case PAST:
-                return bookingList.stream().filter(booking -> booking.getEnd().isBefore(LocalDateTime.now()))
-                        .collect(Collectors.toList());
-            case FUTURE:
-                return bookingList.stream().filter(booking -> booking.getStart().isAfter(LocalDateTime.now()))
-                        .collect(Collectors.toList());
-            case WAITING:
-                return bookingList.stream().filter(booking -> booking.getStatus().equals(Status.WAITING))
-                        .collect(Collectors.toList());
-            case REJECTED:
-                return bookingList.stream().filter(booking -> booking.getStatus().equals(Status.REJECTED))
-                        .collect(Collectors.toList());
-            default:
-                return bookingList;
-        }
+    private static OutboxEventType toEventType(Status status) {
+        return status == Status.APPROVED ? OutboxEventType.BOOKING_APPROVED : OutboxEventType.BOOKING_REJECTED;
     }
 
-    private void checkIntersectionsByBookingTime(AddBookingDto addBookingDto) {
-        List<BookingDto> bookingDtoList = getAllBooking();
-        for (BookingDto bookingDto : bookingDtoList) {
-            if (addBookingDto.getStart().isAfter(bookingDto.getStart()) &
-                    addBookingDto.getStart().isBefore(bookingDto.getEnd()) &
-                    addBookingDto.getItemId() == bookingDto.getItem().getId() &
-                    bookingDto.getStatus().equals(Status.APPROVED)) {
-                throw new ValidationBookingDtoException("Дата начала бронирования пересекается с уже" +
-                        " подтвержденным бронированием для вещи с id = " + addBookingDto.getItemId());
-            }
+    private Booking toWaitingBooking(AddBookingDto addBookingDto, Item item, User booker) {
+        return bookingMapper.toBooking(addBookingDto.getStart(), addBookingDto.getEnd(), item, booker, Status.WAITING);
+    }
 
-            if (addBookingDto.getEnd().isAfter(bookingDto.getStart()) &
-                    addBookingDto.getEnd().isBefore(bookingDto.getEnd()) &
-                    addBookingDto.getItemId() == bookingDto.getItem().getId() &
-                    bookingDto.getStatus().equals(Status.APPROVED)) {
-                throw new ValidationBookingDtoException("Дата окончания бронирования пересекается с уже" +
-                        " подтвержденным бронированием для вещи с id = " + addBookingDto.getItemId());
+    // Подтвержденные бронирования вещей пакета, попадающие в общий для всего пакета период,
+    // выбираются одним запросом вместо проверки каждого бронирования по отдельности.
+    private Map<Long, List<BookingIntervalView>> findApprovedForBatch(Set<Long> itemIds,
+                                                                      List<AddBookingDto> addBookingDtoList) {
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        for (AddBookingDto addBookingDto : addBookingDtoList) {
+            if (addBookingDto.getStart() == null || addBookingDto.getEnd() == null) {
+                continue;
             }
+            start = start == null || addBookingDto.getStart().isBefore(start) ? addBookingDto.getStart() : start;
+            end = end == null || addBookingDto.getEnd().isAfter(end) ? addBookingDto.getEnd() : end;
+        }
+        return findApprovedIntervals(itemIds, start, end);
+    }
 
-            if (addBookingDto.getStart().isBefore(bookingDto.getStart()) &
-                    addBookingDto.getEnd().isAfter(bookingDto.getEnd()) &
-                    addBookingDto.getItemId() == bookingDto.getItem().getId() &
-                    bookingDto.getStatus().equals(Status.APPROVED)) {
+    private Map<Long, List<BookingIntervalView>> findApprovedIntervals(Set<Long> itemIds, LocalDateTime start,
+                                                                       LocalDateTime end) {
+        if (itemIds.isEmpty() || start == null) {
+            return Collections.emptyMap();
+        }
+
+        return bookingRepository.findIntervalsByItemIds(itemIds, start, end, Status.APPROVED).stream()
+                .collect(Collectors.groupingBy(BookingIntervalView::getItemId));
+    }
+
+    private void checkBatchIntersections(AddBookingDto addBookingDto, List<AddBookingDto> addBookingDtoList,
+                                         List<BookingIntervalView> approved, List<Integer> accepted) {
+        for (BookingIntervalView interval : approved) {
+            if (isIntersected(addBookingDto.getStart(), addBookingDto.getEnd(), interval.getStart(), interval.getEnd())) {
                 throw new ValidationBookingDtoException("На эти даты вещь c id = " + addBookingDto.getItemId() +
                         " уже забронирована другим пользователем");
             }
         }
+
+        for (int position : accepted) {
+            AddBookingDto other = addBookingDtoList.get(position);
+            if (isIntersected(addBookingDto.getStart(), addBookingDto.getEnd(), other.getStart(), other.getEnd())) {
+                throw new ValidationBookingDtoException("Бронирование пересекается с бронированием " + position +
+                        " этого же пакета для вещи с id = " + addBookingDto.getItemId());
+            }
+        }
+    }
+
+    private boolean isIntersected(LocalDateTime start, LocalDateTime end,
+                                  LocalDateTime otherStart, LocalDateTime otherEnd) {
+        return start.isBefore(otherEnd) && otherStart.isBefore(end);
+    }
+
+    // Кандидаты упорядочены по началу: из пересекающихся между собой бронирований подтверждается более раннее,
+    // остальные остаются в ожидании. Вещи блокируются так же, как при одиночном подтверждении.
+    private List<BookingIntervalView> selectApprovable(List<BookingIntervalView> waiting) {
+        if (waiting.isEmpty()) {
+            return waiting;
+        }
+
+        Set<Long> itemIds = waiting.stream().map(BookingIntervalView::getItemId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        itemRepository.findAllByIdForUpdate(itemIds);
+        Map<Long, List<BookingIntervalView>> approvedByItem = findApprovedIntervals(itemIds,
+                waiting.stream().map(BookingIntervalView::getStart).min(LocalDateTime::compareTo).get(),
+                waiting.stream().map(BookingIntervalView::getEnd).max(LocalDateTime::compareTo).get());
+
+        List<BookingIntervalView> approvable = new ArrayList<>();
+        for (BookingIntervalView candidate : waiting) {
+            List<BookingIntervalView> approved = approvedByItem.computeIfAbsent(candidate.getItemId(),
+                    id -> new ArrayList<>());
+            boolean intersected = approved.stream().anyMatch(interval ->
+                    isIntersected(candidate.getStart(), candidate.getEnd(), interval.getStart(), interval.getEnd()));
+            if (!intersected) {
+                approved.add(candidate);
+                approvable.add(candidate);
+            }
+        }
+        return approvable;
     }
 
     private void checkBookingTime(AddBookingDto addBookingDto) {
+        if (addBookingDto.getStart() == null || addBookingDto.getEnd() == null) {
+            throw new ValidationBookingDtoException("Не заданы даты начала или окончания бронирования");
+        }
+
         if (addBookingDto.getEnd().isBefore(addBookingDto.getStart())) {
             throw new ValidationBookingDtoException("Дата окончания бронирования раньше даты начала бронирования");
         }
@@ -259,8 +531,4 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationBookingDtoException("Дата окончания бронирования в прошлом");
         }
     }
-
-    private List<BookingDto> getAllBooking() {
-        return bookingRepository.findAll().stream().map(bookingMapper::toBookingDto).collect(Collectors.toList());
-    }
 }
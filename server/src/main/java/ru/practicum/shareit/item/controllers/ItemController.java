@@ -2,17 +2,24 @@ package ru.practicum.shareit.item.controllers;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.Create;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
 import ru.practicum.shareit.item.dto.AddCommentDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.exceptions.EmptyCommentException;
 import ru.practicum.shareit.item.services.ItemService;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 import ru.practicum.shareit.item.exceptions.ValidationItemDtoException;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 
@@ -21,6 +28,7 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class ItemController {
+    private static final int SUGGEST_DEFAULT_SIZE = 10;
     private final ItemService itemService;
 
     @PostMapping
@@ -49,6 +57,24 @@ public class ItemController {
         return itemService.getById(itemId, idUser);
     }
 
+    @GetMapping("/{itemId}/availability")
+    public ItemAvailabilityDto getAvailability(@PathVariable(value = "itemId") Long itemId,
+                                               @RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                               @RequestParam(value = "from")
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                               @RequestParam(value = "to")
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                               @RequestParam(value = "includeWaiting", defaultValue = "false")
+                                               Boolean includeWaiting) {
+        if (!from.isBefore(to)) {
+            log.info("Задан неправильный период занятости с {} по {}", from, to);
+            throw new IncorrectParameterException("from или to");
+        }
+
+        log.info("Запрос занятости вещи с id: {} с {} по {} пользователем с id={}", itemId, from, to, idUser);
+        return itemService.getAvailability(itemId, from, to, includeWaiting);
+    }
+
     @GetMapping
     public List<ItemDto> getAllByIdUser(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
                                         @RequestParam(value = "from", required = false) Integer from,
@@ -61,14 +87,71 @@ public class ItemController {
     @GetMapping("/search")
     public List<ItemDto> search(@RequestParam(name = "text") String text,
                                 @RequestParam(value = "from", required = false) Integer from,
-                                @RequestParam(value = "size", required = false) Integer size) {
+                                @RequestParam(value = "size", required = false) Integer size,
+                                @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+                                @RequestParam(value = "ownerId", required = false) Long ownerId,
+                                @RequestParam(value = "withRequest", required = false) Boolean withRequest,
+                                @RequestParam(value = "start", required = false)
+                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                @RequestParam(value = "end", required = false)
+                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
         log.info("Поиск свободных вещей по строке: {}", text);
         if (text.isBlank()) {
             log.info("Пустой запрос. Возвращен пустой список");
             return Collections.emptyList();
         }
         checkParameters(from, size);
-        return itemService.search(text, from, size);
+        checkPeriod(start, end);
+        return itemService.search(text, from, size, fuzzy, new ItemSearchFilter(ownerId, withRequest, start, end));
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggest(@RequestParam(name = "prefix") String prefix,
+                                @RequestParam(value = "size", required = false) Integer size) {
+        log.info("Подсказки названий вещей по префиксу: {}", prefix);
+        if (prefix.isBlank()) {
+            log.info("Пустой префикс. Возвращен пустой список");
+            return Collections.emptyList();
+        }
+        checkSize(size);
+        return itemService.suggest(prefix, size == null ? SUGGEST_DEFAULT_SIZE : size);
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<List<ItemDto>> getAllByIdUserAfter(@RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+                                                             @RequestParam(value = "after") String after,
+                                                             @RequestParam(value = "size", required = false)
+                                                             Integer size) {
+        checkSize(size);
+        log.info("Запрос страницы вещей пользователя с id: {} после курсора: {}", idUser, after);
+        return itemService.getAllByIdUserAfter(idUser, Cursor.decode(after),
+                size == null ? CursorPage.DEFAULT_SIZE : size).toResponseEntity();
+    }
+
+    @GetMapping(value = "/search", params = "after")
+    public ResponseEntity<List<ItemDto>> searchAfter(@RequestParam(name = "text") String text,
+                                                     @RequestParam(value = "after") String after,
+                                                     @RequestParam(value = "size", required = false) Integer size,
+                                                     @RequestParam(value = "fuzzy", defaultValue = "false")
+                                                     boolean fuzzy,
+                                                     @RequestParam(value = "ownerId", required = false) Long ownerId,
+                                                     @RequestParam(value = "withRequest", required = false)
+                                                     Boolean withRequest,
+                                                     @RequestParam(value = "start", required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                     LocalDateTime start,
+                                                     @RequestParam(value = "end", required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                     LocalDateTime end) {
+        log.info("Поиск страницы свободных вещей по строке: {} после курсора: {}", text, after);
+        if (text.isBlank()) {
+            log.info("Пустой запрос. Возвращен пустой список");
+            return ResponseEntity.ok(Collections.emptyList());
+        }
+        checkSize(size);
+        checkPeriod(start, end);
+        return itemService.searchAfter(text, Cursor.decode(after), size == null ? CursorPage.DEFAULT_SIZE : size,
+                fuzzy, new ItemSearchFilter(ownerId, withRequest, start, end)).toResponseEntity();
     }
 
     @PostMapping("/{itemId}/comment")
@@ -97,14 +180,25 @@ public class ItemController {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
             throw new IncorrectParameterException("size или from");
         }
     }
-}
\ No newline at end of file
+
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
+
+    private void checkPeriod(LocalDateTime start, LocalDateTime end) {
+        if ((start == null) != (end == null) || (start != null && !start.isBefore(end))) {
+            log.info("Задан неправильный период поиска свободных вещей с {} по {}", start, end);
+            throw new IncorrectParameterException("start или end");
+        }
+    }
+}
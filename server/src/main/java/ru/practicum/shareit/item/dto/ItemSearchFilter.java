@@ -0,0 +1,32 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Необязательные фильтры поиска вещей; null означает, что фильтр не задан. Период [start, end) оставляет
+// только вещи без подтвержденных бронирований, пересекающихся с ним.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSearchFilter {
+    private Long ownerId;
+    private Boolean withRequest;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    public ItemSearchFilter(Long ownerId, Boolean withRequest) {
+        this.ownerId = ownerId;
+        this.withRequest = withRequest;
+    }
+
+    public boolean hasFacets() {
+        return ownerId != null || withRequest != null;
+    }
+
+    public boolean hasPeriod() {
+        return start != null && end != null;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.shareit.item.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemOwnerView;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Владельцы вещей и число вещей у каждого владельца в хеш-таблицах примитивов для проверок прав без запросов
+// к базе. Владелец вещи после создания не меняется, поэтому индекс пополняется только при добавлении вещей
+// и очищается при удалении пользователя. Вещи, записанные в базу в обход сервиса или на другом экземпляре,
+// в индекс не попадают до перестроения, поэтому отрицательные ответы перепроверяются запросом.
+// Положительные ответы не перепроверяются: после удаления владельца на другом экземпляре здесь остаются его
+// вещи. Это безопасно, пока id вещей не переиспользуются (identity только растет): удаленную вещь сервис
+// не находит в базе раньше, чем доходит до проверки владельца, и ее владелец ни с кем не совпадет.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemOwnerIndex {
+    public static final long NO_OWNER = 0;
+
+    private final ItemRepository itemRepository;
+
+    @Value("${shareit.items.owner-index.page-size:10000}")
+    private int pageSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongLongMap ownerByItem = new LongLongMap();
+    private LongLongMap itemCountByOwner = new LongLongMap();
+
+    // Вещи читаются порциями по id сразу в новые таблицы, без общего списка всех строк, и без блокировки:
+    // проверки продолжают работать по прежним таблицам, которые подменяются целиком в конце. Вещи, добавленные
+    // во время перестроения после прочитанной порции, перепроверяются запросом, как и любые отсутствующие.
+    @PostConstruct
+    public void rebuild() {
+        LongLongMap owners = new LongLongMap();
+        LongLongMap counts = new LongLongMap();
+        long afterId = 0;
+        List<ItemOwnerView> page;
+        do {
+            page = itemRepository.findOwnerViewsAfter(afterId, PageRequest.of(0, pageSize));
+            for (ItemOwnerView view : page) {
+                add(owners, counts, view.getId(), view.getOwnerId());
+                afterId = view.getId();
+            }
+        } while (page.size() == pageSize);
+
+        lock.writeLock().lock();
+        try {
+            ownerByItem = owners;
+            itemCountByOwner = counts;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс владельцев вещей перестроен: {} вещей, {} владельцев", owners.size(), counts.size());
+    }
+
+    public void index(Item item) {
+        long itemId = item.getId();
+        long ownerId = item.getOwner().getId();
+        lock.writeLock().lock();
+        try {
+            add(itemId, ownerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(itemId, ownerId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        long ownerId = event.getUserId();
+        List<Long> itemIds = itemRepository.findIdsByOwnerId(ownerId);
+        lock.writeLock().lock();
+        try {
+            itemIds.forEach(itemId -> remove(itemId, ownerId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                itemIds.forEach(itemId -> add(itemId, ownerId));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Идентификатор владельца вещи или NO_OWNER, если такой вещи нет.
+    public long ownerOf(long itemId) {
+        long ownerId;
+        lock.readLock().lock();
+        try {
+            ownerId = ownerByItem.get(itemId, NO_OWNER);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ownerId != NO_OWNER) {
+            return ownerId;
+        }
+        return itemRepository.findOwnerIdById(itemId).orElse(NO_OWNER);
+    }
+
+    public long countItems(long ownerId) {
+        lock.readLock().lock();
+        try {
+            return itemCountByOwner.get(ownerId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasItems(long ownerId) {
+        return countItems(ownerId) > 0 || itemRepository.existsByOwnerId(ownerId);
+    }
+
+    private void add(long itemId, long ownerId) {
+        add(ownerByItem, itemCountByOwner, itemId, ownerId);
+    }
+
+    private static void add(LongLongMap owners, LongLongMap counts, long itemId, long ownerId) {
+        if (owners.get(itemId, NO_OWNER) == NO_OWNER) {
+            owners.put(itemId, ownerId);
+            counts.add(ownerId, 1);
+        }
+    }
+
+    private void remove(long itemId, long ownerId) {
+        if (ownerByItem.get(itemId, NO_OWNER) != NO_OWNER) {
+            ownerByItem.remove(itemId);
+            itemCountByOwner.add(ownerId, -1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.item.index;
+
+// Хеш-таблица long -> long с открытой адресацией и линейным пробированием в двух массивах примитивов:
+// без объектов на каждую запись, 16 байт на ячейку при заполнении не больше 3/4. Ключ 0 зарезервирован
+// под пустую ячейку, идентификаторы сущностей начинаются с 1.
+final class LongLongMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LongLongMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(long key, long missing) {
+        int slot = find(key);
+        return slot < 0 ? missing : values[slot];
+    }
+
+    void put(long key, long value) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 4 * 3) {
+            resize(keys.length * 2);
+        }
+    }
+
+    // Прибавляет delta к значению ключа (отсутствующий ключ считается нулем) и удаляет ключ, если значение
+    // стало нулевым. Возвращает новое значение.
+    long add(long key, long delta) {
+        long value = get(key, 0) + delta;
+        if (value == 0) {
+            remove(key);
+        } else {
+            put(key, value);
+        }
+        return value;
+    }
+
+    // Удаление без надгробий: следующие записи той же цепочки сдвигаются назад на освободившееся место.
+    void remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        size--;
+        int next = (slot + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = 0;
+        values[slot] = 0;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Последовательные идентификаторы перемешиваются, чтобы не образовывать длинных занятых серий.
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+}
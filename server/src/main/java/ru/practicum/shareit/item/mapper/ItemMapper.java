@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemDetail;
 import ru.practicum.shareit.item.model.LastBooking;
 import ru.practicum.shareit.item.model.NextBooking;
 import ru.practicum.shareit.request.model.ItemRequest;
@@ -47,6 +48,16 @@ public class ItemMapper {
                 comments);
     }
 
+    public ItemDto toItemDto(ItemDetail itemDetail, boolean withBookings) {
+        return new ItemDto(itemDetail.getId(),
+                itemDetail.getName(),
+                itemDetail.getDescription(),
+                itemDetail.getAvailable(),
+                withBookings ? itemDetail.getLastBooking() : null,
+                withBookings ? itemDetail.getNextBooking() : null,
+                itemDetail.getComments());
+    }
+
     public Item toItem(ItemDto itemDto, User owner) {
         return new Item(itemDto.getId(),
                 itemDto.getName(),
@@ -56,11 +67,13 @@ public class ItemMapper {
     }
 
     public Item toItemWithRequest(ItemDto itemDto, User owner, ItemRequest itemRequest) {
-        return new Item(itemDto.getId(),
-                itemDto.getName(),
-                itemDto.getDescription(),
-                itemDto.getAvailable(),
-                owner,
-                itemRequest);
+        return Item.builder()
+                .id(itemDto.getId())
+                .name(itemDto.getName())
+                .description(itemDto.getDescription())
+                .available(itemDto.getAvailable())
+                .owner(owner)
+                .itemRequest(itemRequest)
+                .build();
     }
 }
@@ -40,6 +40,10 @@ public class Item {
     @ToString.Exclude
     private ItemRequest itemRequest;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     public Item(long id, String name, String description, Boolean available, User owner) {
         this.id = id;
         this.name = name;
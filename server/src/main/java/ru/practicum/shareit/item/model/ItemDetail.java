@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.shareit.item.dto.CommentDto;
+
+import java.util.List;
+
+// Карточка вещи, собранная одним SQL-запросом: поля вещи, id последнего и следующего бронирования
+// и отзывы с именами авторов, без загрузки сущностей владельца, запроса и арендаторов. В карточке из кэша
+// бронирований нет (withBookings = false), их нужно досчитать отдельно.
+@Getter
+@AllArgsConstructor
+public class ItemDetail {
+    private final long id;
+    private final String name;
+    private final String description;
+    private final Boolean available;
+    private final long ownerId;
+    private final LastBooking lastBooking;
+    private final NextBooking nextBooking;
+    private final List<CommentDto> comments;
+    private final boolean withBookings;
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.item.model;
+
+public interface ItemOwnerView {
+    long getId();
+
+    long getOwnerId();
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.item.model;
+
+public interface ItemSearchView {
+    long getId();
+
+    long getOwnerId();
+
+    Long getRequestId();
+
+    String getName();
+
+    String getDescription();
+
+    Boolean getAvailable();
+}
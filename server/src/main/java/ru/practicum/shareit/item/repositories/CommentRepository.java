@@ -1,10 +1,18 @@
 package ru.practicum.shareit.item.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findCommentsByItemId(long itemId);
+
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author JOIN FETCH c.item WHERE c.item.id IN ?1 ORDER BY c.id")
+    List<Comment> findCommentsByItemIdIn(Collection<Long> itemIds);
+
+    @Query("SELECT DISTINCT c.item.id FROM Comment c WHERE c.author.id = ?1")
+    List<Long> findItemIdsByAuthorId(long authorId);
 }
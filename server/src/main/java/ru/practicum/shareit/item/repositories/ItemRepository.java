@@ -1,30 +1,76 @@
 package ru.practicum.shareit.item.repositories;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemOwnerView;
+import ru.practicum.shareit.item.model.ItemSearchView;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
-    @Query(value = "SELECT i FROM Item i WHERE (LOWER(i.name) LIKE %:text% OR LOWER (i.description) LIKE %:text%) " +
-            "AND i.available = true")
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
+    @Query(value = "SELECT i FROM Item i WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%'))) AND i.available = true")
     List<Item> search(@Param("text") String text);
 
-    @Query(value = "SELECT i FROM Item i WHERE (LOWER(i.name) LIKE %:text% OR LOWER (i.description) LIKE %:text%) " +
-            "AND i.available = true")
-    Page<Item> search(@Param("text") String text, Pageable pageable);
+    @Query(value = "SELECT i FROM Item i WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%'))) AND i.available = true")
+    Slice<Item> search(@Param("text") String text, Pageable pageable);
 
+    // Владелец и запросы подтягиваются в том же запросе, иначе EAGER-связи дочитываются отдельно для каждой вещи.
+    @EntityGraph(attributePaths = {"owner", "itemRequest", "itemRequest.user"})
     List<Item> findByOwnerIdOrderById(long idUser);
 
-    Page<Item> findByOwnerIdOrderById(long idUser, Pageable pageable);
+    @EntityGraph(attributePaths = {"owner", "itemRequest", "itemRequest.user"})
+    Slice<Item> findByOwnerIdOrderById(long idUser, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "itemRequest", "itemRequest.user"})
+    List<Item> findByOwnerIdAndIdGreaterThanOrderById(long idUser, long afterId, Pageable pageable);
+
+    boolean existsByOwnerId(long idUser);
+
+    @Query(value = "SELECT i.id AS id, i.owner.id AS ownerId, r.id AS requestId, i.name AS name, " +
+            "i.description AS description, i.available AS available FROM Item i LEFT JOIN i.itemRequest r")
+    List<ItemSearchView> findAllSearchViews();
+
+    @Query(value = "SELECT i.id AS id, i.owner.id AS ownerId, r.id AS requestId, i.name AS name, " +
+            "i.description AS description, i.available AS available FROM Item i LEFT JOIN i.itemRequest r " +
+            "WHERE i.owner.id = ?1")
+    List<ItemSearchView> findSearchViewsByOwnerId(long ownerId);
 
     @Query(value = "SELECT i.owner.id FROM Item i WHERE i.id = ?1")
     long findOwnerByIdItem(long itemId);
 
+    @Query(value = "SELECT i.owner.id FROM Item i WHERE i.id = ?1")
+    Optional<Long> findOwnerIdById(long itemId);
+
+    // Владельцы вещей порцией по возрастанию id начиная после afterId.
+    @Query(value = "SELECT i.id AS id, i.owner.id AS ownerId FROM Item i WHERE i.id > ?1 ORDER BY i.id")
+    List<ItemOwnerView> findOwnerViewsAfter(long afterId, Pageable pageable);
+
+    @Query(value = "SELECT i.id FROM Item i WHERE i.owner.id = ?1")
+    List<Long> findIdsByOwnerId(long ownerId);
+
+    // Вещи, которые каскадно удаляются вместе с пользователем: его собственные и добавленные по его запросам.
+    @Query(value = "SELECT i.id FROM Item i LEFT JOIN i.itemRequest r WHERE i.owner.id = ?1 OR r.user.id = ?1")
+    List<Long> findIdsRemovedWithUser(long userId);
+
     @Query(value = "SELECT i FROM Item i WHERE i.itemRequest.id = ?1")
     List<Item> findByItemRequestIdOrderById(long requestId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT i FROM Item i WHERE i.id = ?1")
+    Optional<Item> findByIdForUpdate(long itemId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "SELECT i FROM Item i WHERE i.id IN ?1 ORDER BY i.id")
+    List<Item> findAllByIdForUpdate(Collection<Long> itemIds);
 }
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item.repositories;
+
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.ItemDetail;
+import ru.practicum.shareit.item.search.ItemSearchScope;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemRepositoryCustom {
+    Optional<ItemDetail> findDetailById(long itemId, LocalDateTime now);
+
+    List<ItemDto> searchAvailable(String text, ItemSearchScope scope, Integer from, Integer size);
+
+    List<ItemDto> searchAvailableAfter(String text, ItemSearchScope scope, long afterId, int limit);
+}
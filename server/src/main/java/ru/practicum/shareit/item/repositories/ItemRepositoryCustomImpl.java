@@ -0,0 +1,187 @@
+package ru.practicum.shareit.item.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.ItemDetail;
+import ru.practicum.shareit.item.model.LastBooking;
+import ru.practicum.shareit.item.model.NextBooking;
+import ru.practicum.shareit.item.search.ItemSearchScope;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+    // Последнее и следующее бронирование выбираются в CTE по индексу (item_id, start_date) и присоединяются
+    // к единственной строке вещи, а отзывы - обычным LEFT JOIN: по строке на отзыв, поля вещи в них повторяются.
+    // Самое раннее бронирование ищется и в архиве, следующее - только в рабочей таблице.
+    private static final String SELECT_DETAIL = "WITH last_booking AS (" +
+            "SELECT id, booker_id FROM (" +
+            "SELECT b.id, b.booker_id, b.start_date FROM bookings b WHERE b.item_id = :itemId " +
+            "UNION ALL " +
+            "SELECT a.id, a.booker_id, a.start_date FROM bookings_archive a WHERE a.item_id = :itemId) u " +
+            "ORDER BY start_date, id LIMIT 1), " +
+            "next_booking AS (" +
+            "SELECT b.id, b.booker_id FROM bookings b WHERE b.item_id = :itemId AND b.start_date > :now " +
+            "ORDER BY b.start_date, b.id LIMIT 1) " +
+            "SELECT i.id, i.name, i.description, i.is_available, i.owner_id, lb.id AS last_id, " +
+            "lb.booker_id AS last_booker_id, nb.id AS next_id, nb.booker_id AS next_booker_id, " +
+            "c.id AS comment_id, c.text, c.created, a.name AS author_name " +
+            "FROM items i " +
+            "LEFT JOIN last_booking lb ON TRUE " +
+            "LEFT JOIN next_booking nb ON TRUE " +
+            "LEFT JOIN comments c ON c.item_id = i.id " +
+            "LEFT JOIN users a ON a.id = c.author_id " +
+            "WHERE i.id = :itemId ORDER BY c.id";
+
+    // В PostgreSQL слова ищутся по сгенерированному столбцу search_vector (GIN), а подстроки - по триграммным
+    // индексам на LOWER(name) и LOWER(description); выдача упорядочена по релевантности. Схема в schema-postgresql.sql.
+    private static final String POSTGRES_MATCH = "FROM items i, websearch_to_tsquery('russian', :text) q " +
+            "WHERE i.is_available = true AND (i.search_vector @@ q " +
+            "OR LOWER(i.name) LIKE :pattern ESCAPE '\\' OR LOWER(i.description) LIKE :pattern ESCAPE '\\')";
+    private static final String POSTGRES_RELEVANCE = " ORDER BY ts_rank(i.search_vector, q) DESC, " +
+            "similarity(LOWER(i.name), :text) DESC, i.id";
+
+    // В H2 (тесты) остается поиск подстроки без индексов; совпадение в названии ставится выше совпадения в описании.
+    private static final String FALLBACK_MATCH = "FROM items i WHERE i.is_available = true " +
+            "AND (LOWER(i.name) LIKE :pattern ESCAPE '\\' OR LOWER(i.description) LIKE :pattern ESCAPE '\\')";
+    private static final String FALLBACK_RELEVANCE = " ORDER BY CASE WHEN LOWER(i.name) LIKE :pattern ESCAPE '\\' " +
+            "THEN 0 ELSE 1 END, i.id";
+
+    private static final String SELECT_ITEM = "SELECT i.id, i.name, i.description, i.is_available ";
+
+    // Вещь свободна в периоде, если у нее нет пересекающихся с ним подтвержденных бронирований; подзапрос
+    // идет по индексу (item_id, end_date, start_date, status) и не читает прошедшие бронирования вещи.
+    private static final String FREE_DURING = " AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.item_id = i.id " +
+            "AND b.status = 'APPROVED' AND b.start_date < :freeTo AND b.end_date > :freeFrom)";
+
+    // Фильтры по владельцу и запросу проверяются по самим строкам items, поэтому видят вещи, добавленные
+    // на любом экземпляре сервиса. Выбор только вещей владельца идет по индексу (owner_id, id).
+    private static final String OWNER_FILTER = " AND i.owner_id = :ownerId";
+    private static final String WITH_REQUEST_FILTER = " AND i.request_id IS NOT NULL";
+    private static final String WITHOUT_REQUEST_FILTER = " AND i.request_id IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<ItemDetail> findDetailById(long itemId, LocalDateTime now) {
+        List<Object[]> rows = entityManager.createNativeQuery(SELECT_DETAIL)
+                .setParameter("itemId", itemId)
+                .setParameter("now", now)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] first = rows.get(0);
+        List<CommentDto> comments = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (row[9] != null) {
+                comments.add(new CommentDto(toLong(row[9]), (String) row[10], (String) row[12],
+                        row[11] == null ? null : ((Timestamp) row[11]).toLocalDateTime()));
+            }
+        }
+        return Optional.of(new ItemDetail(toLong(first[0]), (String) first[1], (String) first[2],
+                (Boolean) first[3], toLong(first[4]),
+                first[5] == null ? null : new LastBooking(toLong(first[5]), toLong(first[6])),
+                first[7] == null ? null : new NextBooking(toLong(first[7]), toLong(first[8])),
+                comments, true));
+    }
+
+    @Override
+    public List<ItemDto> searchAvailable(String text, ItemSearchScope scope, Integer from, Integer size) {
+        String sql = SELECT_ITEM + (isPostgres() ? POSTGRES_MATCH : FALLBACK_MATCH) + filtersOf(scope) +
+                (isPostgres() ? POSTGRES_RELEVANCE : FALLBACK_RELEVANCE);
+        Query query = createSearchQuery(sql, text, scope);
+        if (size != null) {
+            query.setFirstResult(from);
+            query.setMaxResults(size);
+        }
+        return toItemDtoList(query);
+    }
+
+    // Страницы по курсору идут в порядке id, иначе курсор нельзя продолжить; релевантность здесь не учитывается.
+    @Override
+    public List<ItemDto> searchAvailableAfter(String text, ItemSearchScope scope, long afterId, int limit) {
+        String sql = SELECT_ITEM + (isPostgres() ? POSTGRES_MATCH : FALLBACK_MATCH) + filtersOf(scope) +
+                " AND i.id > :afterId ORDER BY i.id";
+        Query query = createSearchQuery(sql, text, scope)
+                .setParameter("afterId", afterId);
+        return toItemDtoList(query.setMaxResults(limit));
+    }
+
+    private static String filtersOf(ItemSearchScope scope) {
+        StringBuilder filters = new StringBuilder();
+        if (scope.getOwnerId() != null) {
+            filters.append(OWNER_FILTER);
+        }
+        if (scope.getWithRequest() != null) {
+            filters.append(scope.getWithRequest() ? WITH_REQUEST_FILTER : WITHOUT_REQUEST_FILTER);
+        }
+        if (scope.hasPeriod()) {
+            filters.append(FREE_DURING);
+        }
+        return filters.toString();
+    }
+
+    private Query createSearchQuery(String sql, String text, ItemSearchScope scope) {
+        String lowerText = text.toLowerCase();
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("pattern", "%" + escapeLike(lowerText) + "%");
+        if (isPostgres()) {
+            query.setParameter("text", lowerText);
+        }
+        if (scope.getOwnerId() != null) {
+            query.setParameter("ownerId", scope.getOwnerId());
+        }
+        if (scope.hasPeriod()) {
+            query.setParameter("freeFrom", scope.getFreeFrom())
+                    .setParameter("freeTo", scope.getFreeTo());
+        }
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ItemDto> toItemDtoList(Query query) {
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(ItemRepositoryCustomImpl::toItemDto)
+                .collect(Collectors.toList());
+    }
+
+    private static ItemDto toItemDto(Object[] row) {
+        return new ItemDto(toLong(row[0]), (String) row[1], (String) row[2], (Boolean) row[3]);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+}
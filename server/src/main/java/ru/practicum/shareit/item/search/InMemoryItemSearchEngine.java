@@ -0,0 +1,375 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchView;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.item.search.ItemTokenizer.tokenize;
+
+// Инвертированный индекс по словам названия и описания. Каждой вещи присваивается плотный номер документа,
+// списки документов по словам хранятся отсортированными массивами int. Слова запроса объединяются по И,
+// каждое совпадает с любым словом вещи, которое с него начинается; выше ранжируются вещи, у которых
+// совпадения приходятся на название.
+@Component
+@ConditionalOnProperty(value = "shareit.search.engine", havingValue = "memory")
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryItemSearchEngine implements ItemSearchEngine {
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt((Hit hit) -> hit.score).reversed()
+            .thenComparingLong(hit -> hit.itemId);
+
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemFacetIndex itemFacetIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Long, Integer> documentByItemId = new HashMap<>();
+    private final NavigableMap<String, Postings> nameTerms = new TreeMap<>();
+    private final NavigableMap<String, Postings> descriptionTerms = new TreeMap<>();
+    private final BitSet available = new BitSet();
+
+    // Номера документов при перестроении выдаются заново, так что удаленные вещи не оставляют дыр.
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documentByItemId.clear();
+            nameTerms.clear();
+            descriptionTerms.clear();
+            available.clear();
+            for (ItemSearchView view : itemRepository.findAllSearchViews()) {
+                put(new Document(view.getId(), view.getOwnerId(), view.getName(), view.getDescription(),
+                        Boolean.TRUE.equals(view.getAvailable())));
+            }
+            log.info("Поисковый индекс вещей перестроен: {} вещей, {} слов", documentByItemId.size(),
+                    nameTerms.size() + descriptionTerms.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        itemSearchCache.clear();
+    }
+
+    @Override
+    public List<ItemDto> search(String text, ItemSearchScope scope, Integer from, Integer size) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> booked = bookedDuring(scope);
+        Roaring64Bitmap allowed = itemFacetIndex.select(scope);
+        lock.readLock().lock();
+        try {
+            List<BitSet> nameMatches = new ArrayList<>();
+            BitSet matches = match(tokens, nameMatches);
+            restrict(matches, allowed, booked);
+            int limit = size == null ? Integer.MAX_VALUE : from + size;
+
+            // Куча держит только limit лучших совпадений, ее вершина - худшее из них.
+            PriorityQueue<Hit> top = new PriorityQueue<>(RANKING.reversed());
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                int score = 0;
+                for (BitSet nameMatch : nameMatches) {
+                    if (nameMatch.get(doc)) {
+                        score++;
+                    }
+                }
+                top.add(new Hit(doc, documents.get(doc).itemId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return toItemDtoList(size == null ? hits : hits.subList(Math.min(from, hits.size()), hits.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ItemDto> searchAfter(String text, ItemSearchScope scope, long afterId, int limit) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> booked = bookedDuring(scope);
+        Roaring64Bitmap allowed = itemFacetIndex.select(scope);
+        lock.readLock().lock();
+        try {
+            BitSet matches = match(tokens, new ArrayList<>());
+            restrict(matches, allowed, booked);
+            PriorityQueue<Hit> first = new PriorityQueue<>(Comparator.comparingLong((Hit hit) -> hit.itemId)
+                    .reversed());
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                long itemId = documents.get(doc).itemId;
+                if (itemId > afterId) {
+                    first.add(new Hit(doc, itemId, 0));
+                    if (first.size() > limit) {
+                        first.poll();
+                    }
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(first);
+            hits.sort(Comparator.comparingLong(hit -> hit.itemId));
+            return toItemDtoList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Item item) {
+        Document document = new Document(item.getId(), item.getOwner().getId(), item.getName(),
+                item.getDescription(), Boolean.TRUE.equals(item.getAvailable()));
+        Document previous;
+        lock.writeLock().lock();
+        try {
+            previous = put(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (previous == null) {
+            itemFacetIndex.index(item);
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                if (previous == null) {
+                    remove(document.itemId);
+                } else {
+                    put(previous);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Вещи удаляемого пользователя удаляются из базы каскадно вместе с ним.
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        long ownerId = event.getUserId();
+        List<Document> removed = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (int doc : documentByItemId.values()) {
+                if (documents.get(doc).ownerId == ownerId) {
+                    removed.add(documents.get(doc));
+                }
+            }
+            for (Document document : removed) {
+                remove(document.itemId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                removed.forEach(this::put);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private BitSet match(List<String> tokens, List<BitSet> nameMatches) {
+        BitSet matches = (BitSet) available.clone();
+        for (String token : tokens) {
+            BitSet nameMatch = collect(nameTerms, token);
+            BitSet tokenMatch = collect(descriptionTerms, token);
+            tokenMatch.or(nameMatch);
+            matches.and(tokenMatch);
+            nameMatches.add(nameMatch);
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    // Пересечение совпадений по тексту с вещами, прошедшими фильтры: обходится меньшее из двух множеств.
+    // Вещи, занятые в периоде поиска, исключаются по списку из базы.
+    private void restrict(BitSet matches, Roaring64Bitmap allowed, List<Long> booked) {
+        for (long itemId : booked) {
+            Integer doc = documentByItemId.get(itemId);
+            if (doc != null) {
+                matches.clear(doc);
+            }
+        }
+        if (allowed != null && allowed.getLongCardinality() < matches.cardinality()) {
+            BitSet allowedDocs = new BitSet();
+            allowed.forEach(itemId -> {
+                Integer doc = documentByItemId.get(itemId);
+                if (doc != null) {
+                    allowedDocs.set(doc);
+                }
+            });
+            matches.and(allowedDocs);
+            allowed = null;
+        }
+        if (allowed == null) {
+            return;
+        }
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            if (!allowed.contains(documents.get(doc).itemId)) {
+                matches.clear(doc);
+            }
+        }
+    }
+
+    private List<Long> bookedDuring(ItemSearchScope scope) {
+        return scope.hasPeriod()
+                ? bookingRepository.findItemIdsBookedDuring(scope.getFreeFrom(), scope.getFreeTo(), Status.APPROVED)
+                : List.of();
+    }
+
+    private static BitSet collect(NavigableMap<String, Postings> terms, String prefix) {
+        BitSet docs = new BitSet();
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            postings.addTo(docs);
+        }
+        return docs;
+    }
+
+    private List<ItemDto> toItemDtoList(List<Hit> hits) {
+        return hits.stream()
+                .map(hit -> {
+                    Document document = documents.get(hit.doc);
+                    return new ItemDto(document.itemId, document.name, document.description, true);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Document put(Document document) {
+        Integer doc = documentByItemId.get(document.itemId);
+        Document previous = null;
+        if (doc == null) {
+            doc = documents.size();
+            documents.add(document);
+            documentByItemId.put(document.itemId, doc);
+        } else {
+            previous = documents.get(doc);
+            unindex(doc, previous);
+            documents.set(doc, document);
+        }
+        index(doc, document);
+        return previous;
+    }
+
+    private void remove(long itemId) {
+        Integer doc = documentByItemId.remove(itemId);
+        if (doc != null) {
+            unindex(doc, documents.get(doc));
+        }
+    }
+
+    private void index(int doc, Document document) {
+        tokenize(document.name).forEach(term -> nameTerms.computeIfAbsent(term, t -> new Postings()).add(doc));
+        tokenize(document.description).forEach(term ->
+                descriptionTerms.computeIfAbsent(term, t -> new Postings()).add(doc));
+        available.set(doc, document.available);
+    }
+
+    private void unindex(int doc, Document document) {
+        tokenize(document.name).forEach(term -> removePosting(nameTerms, term, doc));
+        tokenize(document.description).forEach(term -> removePosting(descriptionTerms, term, doc));
+        available.clear(doc);
+    }
+
+    private static void removePosting(Map<String, Postings> terms, String term, int doc) {
+        Postings postings = terms.get(term);
+        if (postings != null && postings.remove(doc)) {
+            terms.remove(term);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Document {
+        private final long itemId;
+        private final long ownerId;
+        private final String name;
+        private final String description;
+        private final boolean available;
+    }
+
+    @AllArgsConstructor
+    private static final class Hit {
+        private final int doc;
+        private final long itemId;
+        private final int score;
+    }
+
+    // Отсортированный список номеров документов; новые документы получают растущие номера, поэтому
+    // вставка почти всегда идет в конец массива.
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        // Возвращает true, если список опустел и слово можно убрать из словаря.
+        boolean remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(docs[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchView;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Сжатые битовые карты (Roaring) идентификаторов вещей для фильтров поиска в памяти: по одной на владельца и общая
+// для вещей, созданных в ответ на запрос. Владелец и запрос вещи после создания не меняются, поэтому
+// карты пополняются только при добавлении вещей. Фильтр поиска сводится к пересечению карт, результат
+// которого движок поиска пересекает с вещами, подходящими по тексту.
+// Карты, как и сам индекс в памяти, видят только вещи, добавленные на этом экземпляре сервиса, поэтому
+// используются лишь движком memory; движок jpa проверяет фильтры условиями в запросе к базе.
+@Component
+@ConditionalOnProperty(value = "shareit.search.engine", havingValue = "memory")
+@RequiredArgsConstructor
+@Slf4j
+public class ItemFacetIndex {
+    private final ItemRepository itemRepository;
+    private final ItemSearchCache itemSearchCache;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Roaring64Bitmap> byOwner = new HashMap<>();
+    private final Roaring64Bitmap withRequest = new Roaring64Bitmap();
+    private final Roaring64Bitmap all = new Roaring64Bitmap();
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            byOwner.clear();
+            withRequest.clear();
+            all.clear();
+            for (ItemSearchView view : itemRepository.findAllSearchViews()) {
+                add(view.getId(), view.getOwnerId(), view.getRequestId() != null);
+            }
+            byOwner.values().forEach(Roaring64Bitmap::runOptimize);
+            withRequest.runOptimize();
+            all.runOptimize();
+            log.info("Фильтры поиска вещей перестроены: {} вещей, {} владельцев", all.getLongCardinality(),
+                    byOwner.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        itemSearchCache.clear();
+    }
+
+    public void index(Item item) {
+        long itemId = item.getId();
+        long ownerId = item.getOwner().getId();
+        lock.writeLock().lock();
+        try {
+            add(itemId, ownerId, item.getItemRequest() != null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                Roaring64Bitmap owned = byOwner.get(ownerId);
+                if (owned != null) {
+                    owned.removeLong(itemId);
+                }
+                withRequest.removeLong(itemId);
+                all.removeLong(itemId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        long ownerId = event.getUserId();
+        Roaring64Bitmap owned;
+        Roaring64Bitmap ownedWithRequest;
+        lock.writeLock().lock();
+        try {
+            owned = byOwner.remove(ownerId);
+            if (owned == null) {
+                return;
+            }
+            ownedWithRequest = Roaring64Bitmap.and(owned, withRequest);
+            withRequest.andNot(owned);
+            all.andNot(owned);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                byOwner.put(ownerId, owned);
+                withRequest.or(ownedWithRequest);
+                all.or(owned);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Идентификаторы вещей, проходящих все заданные фильтры, или null, если фильтры не заданы.
+    public Roaring64Bitmap select(ItemSearchScope scope) {
+        if (!scope.hasFacets()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = null;
+            if (scope.getOwnerId() != null) {
+                Roaring64Bitmap owned = byOwner.get(scope.getOwnerId());
+                result = owned == null ? new Roaring64Bitmap() : owned.clone();
+            }
+            if (scope.getWithRequest() != null) {
+                Roaring64Bitmap base = result == null ? all : result;
+                result = scope.getWithRequest() ? Roaring64Bitmap.and(base, withRequest)
+                        : Roaring64Bitmap.andNot(base, withRequest);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(long itemId, long ownerId, boolean hasRequest) {
+        byOwner.computeIfAbsent(ownerId, id -> new Roaring64Bitmap()).addLong(itemId);
+        if (hasRequest) {
+            withRequest.addLong(itemId);
+        }
+        all.addLong(itemId);
+    }
+}
@@ -0,0 +1,307 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchView;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Подсказки названий доступных вещей по началу строки. Названия хранятся в сжатом префиксном дереве (radix
+// tree): цепочки узлов с одним потомком склеены в одно ребро. Кроме полного названия в дерево добавляется
+// его хвост от начала каждого следующего слова, поэтому "дрель ударная" находится и по "уда".
+// Каждый узел хранит готовый список лучших maxSize названий своего поддерева (по числу доступных вещей с таким
+// названием). При изменении названия списки пересчитываются только для узлов на пути от корня, снизу вверх,
+// а запрос подсказок лишь спускается до узла префикса и читает его список. Чтения берут блокировку на чтение
+// и не ждут друг друга, блокировку на запись держат только локальные изменения и замена дерева.
+// Дерево заполняется изменениями, сделанными через этот экземпляр. Изменения с других экземпляров приложения
+// попадают в него при периодической перестройке (ItemSearchIndexRefresher): новое дерево строится без
+// блокировки и подменяет старое целиком.
+@Component
+@Slf4j
+public class ItemNameSuggester {
+    private static final Comparator<Suggestion> BY_COUNT_DESC = Comparator
+            .comparingInt((Suggestion suggestion) -> suggestion.count).reversed()
+            .thenComparing(suggestion -> suggestion.name);
+
+    private final ItemRepository itemRepository;
+    private final int maxSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node("");
+
+    public ItemNameSuggester(ItemRepository itemRepository,
+                             @Value("${shareit.suggest.max-size:20}") int maxSize) {
+        this.itemRepository = itemRepository;
+        this.maxSize = maxSize;
+    }
+
+    // Название вещи для подсказок или null, если вещь недоступна и подсказываться не должна.
+    public static String nameOf(Item item) {
+        return Boolean.TRUE.equals(item.getAvailable()) ? item.getName() : null;
+    }
+
+    // Локальные изменения, закоммиченные между чтением вещей и подменой дерева, до следующей перестройки
+    // могут в нем не отразиться.
+    @PostConstruct
+    public void rebuild() {
+        Node rebuilt = new Node("");
+        int count = 0;
+        for (ItemSearchView view : itemRepository.findAllSearchViews()) {
+            if (Boolean.TRUE.equals(view.getAvailable())) {
+                for (String key : keysOf(view.getName())) {
+                    insert(rebuilt, key, view.getName());
+                }
+                count++;
+            }
+        }
+        refreshAll(rebuilt);
+
+        lock.writeLock().lock();
+        try {
+            root = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Дерево подсказок названий вещей перестроено: {} доступных вещей", count);
+    }
+
+    // previousName - название до изменения, name - после; null, если вещь не подсказывается.
+    public void replace(String previousName, String name) {
+        lock.writeLock().lock();
+        try {
+            apply(previousName, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(name, previousName);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        for (ItemSearchView view : itemRepository.findSearchViewsByOwnerId(event.getUserId())) {
+            if (Boolean.TRUE.equals(view.getAvailable())) {
+                replace(view.getName(), null);
+            }
+        }
+    }
+
+    public List<String> suggest(String prefix, int size) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Suggestion> top;
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            top = node == null ? List.of() : node.top;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.stream()
+                .limit(Math.min(size, maxSize))
+                .map(suggestion -> suggestion.name)
+                .collect(Collectors.toList());
+    }
+
+    private void apply(String previousName, String name) {
+        if (previousName != null && previousName.equals(name)) {
+            return;
+        }
+        if (previousName != null) {
+            for (String key : keysOf(previousName)) {
+                remove(key, previousName);
+            }
+        }
+        if (name != null) {
+            for (String key : keysOf(name)) {
+                refreshPath(insert(root, key, name));
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static Set<String> keysOf(String name) {
+        String normalized = normalize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (!Character.isLetterOrDigit(normalized.charAt(i - 1))
+                    && Character.isLetterOrDigit(normalized.charAt(i))) {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    // Путь от корня до узла ключа; узлы и ребра создаются по необходимости. Списки лучших названий на пути
+    // не пересчитываются: это делает вызывающий.
+    private static List<Node> insert(Node root, String key, String name) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        String rest = key;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                child = new Node(rest);
+                node.children.put(rest.charAt(0), child);
+            } else {
+                int common = commonPrefix(child.label, rest);
+                if (common < child.label.length()) {
+                    child = split(node, child, common);
+                }
+            }
+            path.add(child);
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        node.names.merge(name, 1, Integer::sum);
+        return path;
+    }
+
+    // Опустевшие узлы не удаляются и не склеиваются обратно: на ответы они не влияют, а дерево
+    // уплотняется при следующей перестройке.
+    private void remove(String key, String name) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        String rest = key;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null || !rest.startsWith(child.label)) {
+                return;
+            }
+            path.add(child);
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        if (!node.names.containsKey(name)) {
+            return;
+        }
+        node.names.computeIfPresent(name, (ignored, count) -> count == 1 ? null : count - 1);
+        refreshPath(path);
+    }
+
+    // Ребро child делится после common символов: общая часть становится новым промежуточным узлом.
+    private static Node split(Node parent, Node child, int common) {
+        Node middle = new Node(child.label.substring(0, common));
+        child.label = child.label.substring(common);
+        middle.children.put(child.label.charAt(0), child);
+        parent.children.put(middle.label.charAt(0), middle);
+        return middle;
+    }
+
+    // Узел, все ключи поддерева которого начинаются с prefix; префикс может заканчиваться посреди ребра.
+    private Node find(String prefix) {
+        Node node = root;
+        String rest = prefix;
+        while (!rest.isEmpty()) {
+            Node child = node.children.get(rest.charAt(0));
+            if (child == null) {
+                return null;
+            }
+            int common = commonPrefix(child.label, rest);
+            if (common == rest.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            rest = rest.substring(common);
+            node = child;
+        }
+        return node;
+    }
+
+    private void refreshPath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            refresh(path.get(i));
+        }
+    }
+
+    private void refreshAll(Node node) {
+        for (Node child : node.children.values()) {
+            refreshAll(child);
+        }
+        refresh(node);
+    }
+
+    // Одно название может попасть в поддерево несколькими ключами (полностью и с начала слова),
+    // поэтому при слиянии списков потомков дубликаты отбрасываются. Списки потомков уже должны быть посчитаны.
+    private void refresh(Node node) {
+        Map<String, Integer> counts = new HashMap<>(node.names);
+        for (Node child : node.children.values()) {
+            for (Suggestion suggestion : child.top) {
+                counts.merge(suggestion.name, suggestion.count, Math::max);
+            }
+        }
+        node.top = counts.entrySet().stream()
+                .map(entry -> new Suggestion(entry.getKey(), entry.getValue()))
+                .sorted(BY_COUNT_DESC)
+                .limit(maxSize)
+                .collect(Collectors.toList());
+    }
+
+    private static int commonPrefix(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private final Map<Character, Node> children = new TreeMap<>();
+        private final Map<String, Integer> names = new HashMap<>();
+        private List<Suggestion> top = List.of();
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Suggestion {
+        private final String name;
+        private final int count;
+
+        private Suggestion(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package ru.practicum.shareit.item.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Кэш страниц результатов поиска вещей (Caffeine, вытеснение W-TinyLFU). Размер кэша ограничен суммарным
+// числом вещей в сохраненных страницах. При изменении текста или доступности вещи сбрасываются только поиски,
+// на которые она может повлиять: те, в выдаче которых она уже есть, и те, которые могут найти ее по старому
+// или новому тексту. Проверка намеренно шире любого из движков: запрос подходит, если он входит в текст
+// подстрокой или какое-то его слово совпадает со словом текста по первым STEM_PREFIX буквам. Основа слова
+// при стемминге - начало слова, поэтому так находятся и совпадения полнотекстового поиска ("дрели" - "дрель"),
+// и совпадения по префиксу. Сбрасываются все страницы поиска сразу: появление или пропажа вещи сдвигает
+// соседние страницы. Сброс повторяется после завершения транзакции, чтобы не оставить в кэше страницу,
+// прочитанную параллельным запросом до фиксации изменений.
+// Чтобы сброс не перебирал весь кэш, сохраненные страницы проиндексированы по id вещей в выдаче, а поиски -
+// по первым STEM_PREFIX буквам запроса и его слов. Измененный текст дает кандидатов по своим подстрокам
+// и началам слов, и полная проверка выполняется только для них.
+// Сброс действует только на этом экземпляре сервиса: другие экземпляры отдают устаревшую выдачу до истечения
+// ttl, поэтому он короткий (shareit.search.cache.ttl, по умолчанию минута).
+@Component
+public class ItemSearchCache {
+    private static final int STEM_PREFIX = 3;
+
+    private final ItemRepository itemRepository;
+    private final Cache<Key, Page> cache;
+
+    // Индексы меняются вместе с кэшем: страница добавляется в них при загрузке и удаляется при вытеснении
+    // или сбросе. Поиск остается в индексах по началам слов, пока в кэше есть хотя бы одна его страница.
+    private final Map<Long, Set<Page>> pagesByItemId = new ConcurrentHashMap<>();
+    private final Map<Search, Set<Page>> pagesBySearch = new ConcurrentHashMap<>();
+    // Ключ - первые STEM_PREFIX букв (или все, если их меньше) запроса целиком и каждого его слова.
+    private final Map<String, Set<Search>> searchesByPrefix = new ConcurrentHashMap<>();
+    // Первые одна и две буквы слов запроса длиннее STEM_PREFIX: с ними совпадают короткие слова текста.
+    private final Map<String, Set<Search>> searchesByShortPrefix = new ConcurrentHashMap<>();
+
+    public ItemSearchCache(ItemRepository itemRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${shareit.search.cache.max-items:100000}") long maxItems,
+                           @Value("${shareit.search.cache.ttl:PT1M}") Duration ttl) {
+        this.itemRepository = itemRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .weigher((Key key, Page page) -> 1 + page.items.size())
+                .expireAfterWrite(ttl)
+                .evictionListener((Key key, Page page, RemovalCause cause) -> unindex(page))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "itemSearch");
+    }
+
+    // Текст вещи, по которому ее можно найти, или null, если вещь недоступна и в поиск не попадает.
+    public static String textOf(Item item) {
+        return Boolean.TRUE.equals(item.getAvailable()) ? item.getName() + " " + item.getDescription() : null;
+    }
+
+    // Поиск не различает регистр, поэтому запросы, отличающиеся только регистром, делят одну запись кэша.
+    public static String normalize(String query) {
+        return query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public List<ItemDto> get(Key key, Supplier<List<ItemDto>> search) {
+        return new ArrayList<>(cache.get(key, k -> index(new Page(k, search.get()))).items);
+    }
+
+    // previousText и text - тексты вещи до и после изменения в смысле textOf.
+    public void invalidate(long itemId, String previousText, String text) {
+        if (previousText == null ? text == null : previousText.equals(text)) {
+            return;
+        }
+        List<Long> itemIds = List.of(itemId);
+        List<String> texts = Stream.of(previousText, text).filter(Objects::nonNull).collect(Collectors.toList());
+        evict(itemIds, texts);
+        TransactionCallbacks.onCompletion(() -> evict(itemIds, texts));
+    }
+
+    // Вызывается при перестроении индексов поиска: после него результаты могут измениться для любых запросов.
+    public void clear() {
+        for (Key key : List.copyOf(cache.asMap().keySet())) {
+            remove(key);
+        }
+    }
+
+    // Вместе с пользователем удаляются его вещи и вещи, добавленные по его запросам. Новых совпадений это
+    // не создает, поэтому сбрасываются только поиски, в выдаче которых есть удаляемые вещи.
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        List<Long> itemIds = itemRepository.findIdsRemovedWithUser(event.getUserId());
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        evict(itemIds, List.of());
+        TransactionCallbacks.onCompletion(() -> evict(itemIds, List.of()));
+    }
+
+    private void evict(Collection<Long> itemIds, List<String> texts) {
+        Set<Search> stale = new HashSet<>();
+        for (long itemId : itemIds) {
+            for (Page page : pagesByItemId.getOrDefault(itemId, Set.of())) {
+                stale.add(page.key.search);
+            }
+        }
+
+        List<String> lowerTexts = texts.stream().map(text -> text.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        List<List<String>> textTokens = lowerTexts.stream().map(ItemTokenizer::tokenize)
+                .collect(Collectors.toList());
+        for (Search search : candidates(lowerTexts, textTokens)) {
+            if (!stale.contains(search) && mayMatch(search.query, lowerTexts, textTokens)) {
+                stale.add(search);
+            }
+        }
+
+        for (Search search : stale) {
+            for (Page page : pagesBySearch.getOrDefault(search, Set.of())) {
+                remove(page.key);
+            }
+        }
+    }
+
+    // Поиски, которые могут совпасть с текстом: запрос - подстрока текста, только если начало запроса
+    // встречается в тексте, а слово запроса совпадает со словом текста, только если у них общее начало.
+    private Set<Search> candidates(List<String> lowerTexts, List<List<String>> textTokens) {
+        Set<Search> candidates = new HashSet<>();
+        for (String text : lowerTexts) {
+            for (int i = 0; i < text.length(); i++) {
+                for (int end = i + 1; end <= Math.min(text.length(), i + STEM_PREFIX); end++) {
+                    candidates.addAll(searchesByPrefix.getOrDefault(text.substring(i, end), Set.of()));
+                }
+            }
+        }
+        for (List<String> tokens : textTokens) {
+            for (String token : tokens) {
+                for (int end = 1; end <= Math.min(token.length(), STEM_PREFIX); end++) {
+                    candidates.addAll(searchesByPrefix.getOrDefault(token.substring(0, end), Set.of()));
+                }
+                if (token.length() < STEM_PREFIX) {
+                    candidates.addAll(searchesByShortPrefix.getOrDefault(token, Set.of()));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void remove(Key key) {
+        Page page = cache.asMap().remove(key);
+        if (page != null) {
+            unindex(page);
+        }
+    }
+
+    private Page index(Page page) {
+        for (long itemId : page.ids) {
+            pagesByItemId.compute(itemId, (id, pages) -> with(pages, page));
+        }
+        pagesBySearch.compute(page.key.search, (search, pages) -> {
+            if (pages == null) {
+                forEachPrefix(search, (index, prefix) -> index.compute(prefix, (key, searches) ->
+                        with(searches, search)));
+            }
+            return with(pages, page);
+        });
+        return page;
+    }
+
+    private void unindex(Page page) {
+        for (long itemId : page.ids) {
+            pagesByItemId.computeIfPresent(itemId, (id, pages) -> without(pages, page));
+        }
+        pagesBySearch.computeIfPresent(page.key.search, (search, pages) -> {
+            Set<Page> rest = without(pages, page);
+            if (rest == null) {
+                forEachPrefix(search, (index, prefix) -> index.computeIfPresent(prefix, (key, searches) ->
+                        without(searches, search)));
+            }
+            return rest;
+        });
+    }
+
+    private void forEachPrefix(Search search, BiConsumer<Map<String, Set<Search>>, String> action) {
+        action.accept(searchesByPrefix, prefixOf(search.query));
+        for (String term : ItemTokenizer.tokenize(search.query)) {
+            action.accept(searchesByPrefix, prefixOf(term));
+            for (int end = 1; end < STEM_PREFIX && end < term.length(); end++) {
+                action.accept(searchesByShortPrefix, term.substring(0, end));
+            }
+        }
+    }
+
+    private static String prefixOf(String text) {
+        return text.substring(0, Math.min(STEM_PREFIX, text.length()));
+    }
+
+    private static <T> Set<T> with(Set<T> values, T value) {
+        Set<T> result = values == null ? ConcurrentHashMap.newKeySet() : values;
+        result.add(value);
+        return result;
+    }
+
+    private static <T> Set<T> without(Set<T> values, T value) {
+        values.remove(value);
+        return values.isEmpty() ? null : values;
+    }
+
+    private static boolean mayMatch(String query, List<String> lowerTexts, List<List<String>> textTokens) {
+        for (String text : lowerTexts) {
+            if (text.contains(query)) {
+                return true;
+            }
+        }
+        for (String term : ItemTokenizer.tokenize(query)) {
+            for (List<String> tokens : textTokens) {
+                for (String token : tokens) {
+                    int length = Math.min(STEM_PREFIX, Math.min(term.length(), token.length()));
+                    if (term.regionMatches(0, token, 0, length)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Страница поиска: смещение и размер для обычных страниц или курсор для постраничного обхода по id.
+    @EqualsAndHashCode
+    public static final class Key {
+        private final Search search;
+        private final Integer from;
+        private final Integer size;
+        private final Long afterId;
+
+        private Key(Search search, Integer from, Integer size, Long afterId) {
+            this.search = search;
+            this.from = from;
+            this.size = size;
+            this.afterId = afterId;
+        }
+
+        public static Key page(String query, ItemSearchFilter filter, Integer from, Integer size) {
+            return new Key(new Search(query, filter.getOwnerId(), filter.getWithRequest()), from, size, null);
+        }
+
+        public static Key cursor(String query, ItemSearchFilter filter, long afterId, int limit) {
+            return new Key(new Search(query, filter.getOwnerId(), filter.getWithRequest()), null, limit, afterId);
+        }
+    }
+
+    // Запрос с фильтрами без разбиения на страницы: все его страницы сбрасываются вместе.
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Search {
+        private final String query;
+        private final Long ownerId;
+        private final Boolean withRequest;
+    }
+
+    // Страницы сравниваются по ссылке: в индексах должна остаться именно та, что лежит в кэше, даже если
+    // ее ключ уже загружен заново.
+    private static final class Page {
+        private final Key key;
+        private final List<ItemDto> items;
+        private final long[] ids;
+
+        private Page(Key key, List<ItemDto> items) {
+            this.key = key;
+            this.items = items;
+            this.ids = items.stream().mapToLong(ItemDto::getId).toArray();
+        }
+    }
+}
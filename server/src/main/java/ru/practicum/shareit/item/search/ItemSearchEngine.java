@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+// Поиск доступных вещей. Реализация выбирается свойством shareit.search.engine: jpa - запросом к базе,
+// memory - по инвертированному индексу в памяти, который сервисы обновляют при сохранении вещей.
+public interface ItemSearchEngine {
+    List<ItemDto> search(String text, ItemSearchScope scope, Integer from, Integer size);
+
+    List<ItemDto> searchAfter(String text, ItemSearchScope scope, long afterId, int limit);
+
+    void index(Item item);
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Периодически перестраивает из базы структуры поиска, которые каждый экземпляр приложения держит в памяти
+// и пополняет только своими изменениями. Изменения вещей, сделанные на других экземплярах, становятся видны
+// в подсказках и исправлении опечаток не позже чем через shareit.search.refresh.interval.
+@Component
+@ConditionalOnProperty(value = "shareit.search.refresh.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ItemSearchIndexRefresher {
+    private final ItemNameSuggester itemNameSuggester;
+    private final ItemTermDictionary itemTermDictionary;
+
+    private final Timer refreshTimer;
+
+    public ItemSearchIndexRefresher(ItemNameSuggester itemNameSuggester,
+                                    ItemTermDictionary itemTermDictionary,
+                                    MeterRegistry meterRegistry) {
+        this.itemNameSuggester = itemNameSuggester;
+        this.itemTermDictionary = itemTermDictionary;
+
+        this.refreshTimer = meterRegistry.timer("shareit.items.search.refresh");
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.search.refresh.interval:PT5M}",
+            initialDelayString = "${shareit.search.refresh.interval:PT5M}")
+    public void refresh() {
+        refreshTimer.record(() -> {
+            itemNameSuggester.rebuild();
+            itemTermDictionary.rebuild();
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Ограничения поиска сверх совпадения по тексту: владелец вещи, наличие у нее запроса и период, в котором у вещи
+// не должно быть подтвержденных бронирований. Каждый движок поиска проверяет их по своим данным: jpa - условиями
+// в запросе к базе, memory - по битовым картам ItemFacetIndex. null означает отсутствие ограничения.
+@Getter
+@RequiredArgsConstructor
+public class ItemSearchScope {
+    private final Long ownerId;
+    private final Boolean withRequest;
+    private final LocalDateTime freeFrom;
+    private final LocalDateTime freeTo;
+
+    public boolean hasFacets() {
+        return ownerId != null || withRequest != null;
+    }
+
+    public boolean hasPeriod() {
+        return freeFrom != null && freeTo != null;
+    }
+}
@@ -0,0 +1,214 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchView;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.practicum.shareit.item.search.ItemTokenizer.tokenize;
+
+// Словарь слов из названий и описаний вещей для нечеткого поиска: для каждого слова хранится число вещей,
+// в которых оно встречается. Отсортированный словарь обходится как префиксное дерево, и для каждого префикса
+// считается строка матрицы Левенштейна относительно слова запроса (по сути, автомат Левенштейна). Если все
+// значения строки больше допустимого расстояния, все слова с этим префиксом пропускаются одним переходом.
+// Первая буква слова считается набранной верно, поэтому обходится только поддерево словаря на эту букву,
+// а сам обход ограничен maxVisits строками матрицы: время исправления слова не растет вместе со словарем.
+// Словарь пополняется изменениями, сделанными через этот экземпляр, а слова, добавленные на других экземплярах
+// приложения, появляются в нем при периодической перестройке (ItemSearchIndexRefresher). До нее такое слово
+// может быть исправлено на похожее.
+@Component
+@Slf4j
+public class ItemTermDictionary {
+    private final ItemRepository itemRepository;
+    private final int maxVisits;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private NavigableMap<String, Integer> frequencies = new TreeMap<>();
+
+    public ItemTermDictionary(ItemRepository itemRepository,
+                              @Value("${shareit.search.fuzzy.max-visits:20000}") int maxVisits) {
+        this.itemRepository = itemRepository;
+        this.maxVisits = maxVisits;
+    }
+
+    public static String textOf(Item item) {
+        return item.getName() + " " + item.getDescription();
+    }
+
+    // Новый словарь строится без блокировки и подменяет старый целиком, поиск во время перестройки не ждет.
+    @PostConstruct
+    public void rebuild() {
+        NavigableMap<String, Integer> rebuilt = new TreeMap<>();
+        for (ItemSearchView view : itemRepository.findAllSearchViews()) {
+            apply(rebuilt, null, view.getName() + " " + view.getDescription());
+        }
+
+        lock.writeLock().lock();
+        try {
+            frequencies = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Словарь поиска вещей перестроен: {} слов", rebuilt.size());
+    }
+
+    // previousText - текст вещи до изменения (null для новой), text - после (null для удаленной).
+    public void replace(String previousText, String text) {
+        lock.writeLock().lock();
+        try {
+            apply(frequencies, previousText, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.onRollback(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(frequencies, text, previousText);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        for (ItemSearchView view : itemRepository.findSearchViewsByOwnerId(event.getUserId())) {
+            replace(view.getName() + " " + view.getDescription(), null);
+        }
+    }
+
+    // Слово запроса остается как есть, если с него начинается хотя бы одно слово словаря, иначе заменяется
+    // ближайшим по расстоянию Левенштейна в пределах maxDistance, а при равенстве - самым частым.
+    public String correct(String text) {
+        List<String> corrected = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String token : tokenize(text)) {
+                corrected.add(isKnownPrefix(token) ? token : nearest(token));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return String.join(" ", corrected);
+    }
+
+    private static int maxDistance(String token) {
+        if (token.length() < 3) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    private boolean isKnownPrefix(String token) {
+        String ceiling = frequencies.ceilingKey(token);
+        return ceiling != null && ceiling.startsWith(token);
+    }
+
+    // Строки матрицы для общего префикса соседних слов словаря не пересчитываются.
+    private String nearest(String token) {
+        int maxDistance = maxDistance(token);
+        if (maxDistance == 0) {
+            return token;
+        }
+
+        List<int[]> rows = new ArrayList<>();
+        int[] first = new int[token.length() + 1];
+        for (int j = 0; j <= token.length(); j++) {
+            first[j] = j;
+        }
+        rows.add(first);
+
+        String best = null;
+        int bestDistance = maxDistance + 1;
+        int bestFrequency = 0;
+        int visits = 0;
+        String previous = "";
+        int validDepth = 0;
+        String firstLetter = token.substring(0, 1);
+        String term = frequencies.ceilingKey(firstLetter);
+        while (term != null && term.startsWith(firstLetter) && visits < maxVisits) {
+            int depth = Math.min(validDepth, commonPrefix(previous, term));
+            String skipPrefix = null;
+            while (depth < term.length()) {
+                int[] row = nextRow(rows.get(depth), token, term.charAt(depth));
+                visits++;
+                depth++;
+                if (rows.size() > depth) {
+                    rows.set(depth, row);
+                } else {
+                    rows.add(row);
+                }
+                if (min(row) > maxDistance) {
+                    skipPrefix = term.substring(0, depth);
+                    break;
+                }
+            }
+            previous = term;
+            validDepth = depth;
+
+            if (skipPrefix != null) {
+                term = frequencies.higherKey(skipPrefix + Character.MAX_VALUE);
+                continue;
+            }
+            int distance = rows.get(depth)[token.length()];
+            int frequency = frequencies.get(term);
+            if (distance < bestDistance || distance == bestDistance && frequency > bestFrequency) {
+                best = term;
+                bestDistance = distance;
+                bestFrequency = frequency;
+            }
+            term = frequencies.higherKey(term);
+        }
+        return best == null ? token : best;
+    }
+
+    private static int[] nextRow(int[] previous, String token, char letter) {
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        for (int j = 1; j < row.length; j++) {
+            int substitution = previous[j - 1] + (token.charAt(j - 1) == letter ? 0 : 1);
+            row[j] = Math.min(substitution, Math.min(previous[j], row[j - 1]) + 1);
+        }
+        return row;
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int commonPrefix(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == second.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void apply(NavigableMap<String, Integer> frequencies, String removedText, String addedText) {
+        for (String term : tokenize(removedText)) {
+            frequencies.computeIfPresent(term, (key, count) -> count == 1 ? null : count - 1);
+        }
+        for (String term : tokenize(addedText)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Разбивает текст на различные слова в нижнем регистре; разделителем считается все, кроме букв и цифр.
+public final class ItemTokenizer {
+    private ItemTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+
+import java.util.List;
+
+// Индексы поиска поддерживает сама база, поэтому сохранение вещей здесь ничего не делает.
+@Component
+@ConditionalOnProperty(value = "shareit.search.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaItemSearchEngine implements ItemSearchEngine {
+    private final ItemRepository itemRepository;
+
+    @Override
+    public List<ItemDto> search(String text, ItemSearchScope scope, Integer from, Integer size) {
+        return itemRepository.searchAvailable(text, scope, from, size);
+    }
+
+    @Override
+    public List<ItemDto> searchAfter(String text, ItemSearchScope scope, long afterId, int limit) {
+        return itemRepository.searchAvailableAfter(text, scope, afterId, limit);
+    }
+
+    @Override
+    public void index(Item item) {
+    }
+}
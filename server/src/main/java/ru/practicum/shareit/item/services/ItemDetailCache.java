@@ -0,0 +1,98 @@
+package ru.practicum.shareit.item.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.TransactionCallbacks;
+import ru.practicum.shareit.item.model.ItemDetail;
+import ru.practicum.shareit.item.repositories.CommentRepository;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+import ru.practicum.shareit.user.events.UserRenamedEvent;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+// Карточки вещей без бронирований: поля вещи, владелец и отзывы. Они меняются только при изменении вещи,
+// новом отзыве, а также при переименовании или удалении авторов отзывов, и сбрасываются по этим событиям.
+// Бронирования зависят от текущего времени и в кэш не попадают: при промахе владелец получает прочитанные
+// вместе с карточкой, при попадании они досчитываются отдельно.
+// Сброс повторяется после завершения транзакции, чтобы не оставить в кэше карточку, прочитанную
+// параллельным запросом до фиксации изменений.
+// Сброс действует только на этом экземпляре сервиса. Кэш рассчитан на один экземпляр; при нескольких другие
+// показывают устаревшую карточку до истечения ttl, поэтому он короткий (shareit.item.cache.ttl).
+@Component
+public class ItemDetailCache {
+    private final ItemRepository itemRepository;
+    private final CommentRepository commentRepository;
+    private final Cache<Long, ItemDetail> cache;
+
+    public ItemDetailCache(ItemRepository itemRepository,
+                           CommentRepository commentRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${shareit.item.cache.max-size:10000}") long maxSize,
+                           @Value("${shareit.item.cache.ttl:PT1M}") Duration ttl) {
+        this.itemRepository = itemRepository;
+        this.commentRepository = commentRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "itemDetail");
+    }
+
+    // Карточка из кэша (без бронирований) или загруженная load при промахе - вместе с прочитанными тем же
+    // запросом бронированиями, чтобы владельцу не читать их повторно; null, если вещи нет.
+    public ItemDetail get(long itemId, LongFunction<ItemDetail> load) {
+        ItemDetail[] loaded = new ItemDetail[1];
+        ItemDetail cached = cache.get(itemId, id -> {
+            loaded[0] = load.apply(id);
+            return withoutBookings(loaded[0]);
+        });
+        return loaded[0] != null ? loaded[0] : cached;
+    }
+
+    public void invalidate(long itemId) {
+        cache.invalidate(itemId);
+        TransactionCallbacks.onCompletion(() -> cache.invalidate(itemId));
+    }
+
+    public void invalidateAll(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(itemIds);
+        TransactionCallbacks.onCompletion(() -> cache.invalidateAll(itemIds));
+    }
+
+    @EventListener
+    public void onUserRenamed(UserRenamedEvent event) {
+        invalidateAll(commentRepository.findItemIdsByAuthorId(event.getUserId()));
+    }
+
+    // Вместе с пользователем удаляются его вещи, вещи по его запросам и его отзывы на чужих вещах.
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        Set<Long> itemIds = new HashSet<>(itemRepository.findIdsRemovedWithUser(event.getUserId()));
+        itemIds.addAll(commentRepository.findItemIdsByAuthorId(event.getUserId()));
+        invalidateAll(itemIds);
+    }
+
+    private static ItemDetail withoutBookings(ItemDetail itemDetail) {
+        if (itemDetail == null) {
+            return null;
+        }
+        return new ItemDetail(itemDetail.getId(), itemDetail.getName(), itemDetail.getDescription(),
+                itemDetail.getAvailable(), itemDetail.getOwnerId(), null, null, List.copyOf(itemDetail.getComments()),
+                false);
+    }
+}
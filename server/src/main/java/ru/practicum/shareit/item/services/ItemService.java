@@ -1,9 +1,14 @@
 package ru.practicum.shareit.item.services;
 
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.item.dto.AddCommentDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -17,5 +22,21 @@ public interface ItemService {
 
     List<ItemDto> search(String text, Integer from, Integer size);
 
+    List<ItemDto> search(String text, Integer from, Integer size, boolean fuzzy);
+
+    List<ItemDto> search(String text, Integer from, Integer size, boolean fuzzy, ItemSearchFilter filter);
+
+    List<String> suggest(String prefix, int size);
+
+    CursorPage<ItemDto> getAllByIdUserAfter(long idUser, Cursor after, int size);
+
+    CursorPage<ItemDto> searchAfter(String text, Cursor after, int size);
+
+    CursorPage<ItemDto> searchAfter(String text, Cursor after, int size, boolean fuzzy);
+
+    CursorPage<ItemDto> searchAfter(String text, Cursor after, int size, boolean fuzzy, ItemSearchFilter filter);
+
+    ItemAvailabilityDto getAvailability(long itemId, LocalDateTime from, LocalDateTime to, boolean includeWaiting);
+
     CommentDto addComment(long idUser, long itemId, AddCommentDto addCommentDto);
 }
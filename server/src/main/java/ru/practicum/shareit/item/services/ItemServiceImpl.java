@@ -2,14 +2,24 @@ package ru.practicum.shareit.item.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
+import ru.practicum.shareit.booking.repositories.ArchivedBookingRepository;
 import ru.practicum.shareit.booking.repositories.BookingRepository;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.model.ItemBookingRow;
 import ru.practicum.shareit.item.dto.AddCommentDto;
+import ru.practicum.shareit.item.dto.AvailabilityIntervalDto;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.exceptions.CommentFutureException;
 import ru.practicum.shareit.item.exceptions.NoBookingCommentException;
@@ -17,12 +27,23 @@ import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.repositories.CommentRepository;
 import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.search.ItemNameSuggester;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchScope;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
+import ru.practicum.shareit.item.search.ItemTermDictionary;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 import ru.practicum.shareit.item.exceptions.NoItemException;
+import ru.practicum.shareit.item.index.ItemOwnerIndex;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemDetail;
 import ru.practicum.shareit.item.model.LastBooking;
 import ru.practicum.shareit.item.model.NextBooking;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.services.OutboxService;
 import ru.practicum.shareit.request.exception.NoItemRequestException;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repositories.ItemRequestRepository;
@@ -31,47 +52,85 @@ import ru.practicum.shareit.user.exceptions.ValidationNotFoundIdUserException;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional
 public class ItemServiceImpl implements ItemService {
     private final UserService userService;
     private final ItemRepository itemRepository;
     private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final OutboxService outboxService;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ItemTermDictionary itemTermDictionary;
+    private final ItemNameSuggester itemNameSuggester;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemOwnerIndex itemOwnerIndex;
+    private final ItemDetailCache itemDetailCache;
     private final ItemMapper itemMapper;
     private final UserMapper userMapper;
     private final CommentMapper commentMapper;
     private static final Sort SORT_ID_ASC = Sort.by(Sort.Direction.ASC, "id");
 
+    @Value("${shareit.search.min-length:3}")
+    private int searchMinLength;
+
+    @Value("${shareit.search.free.max-period:P366D}")
+    private Duration freeSearchMaxPeriod;
+
     @Override
     public ItemDto add(long idUser, ItemDto itemDto) {
         User user = userMapper.toUser(userService.getById(idUser));
 
         if (itemDto.getRequestId() == null) {
             Item item = itemRepository.save(itemMapper.toItem(itemDto, user));
+            indexCreated(item);
+            ItemDto savedItemDto = itemMapper.toItemDtoWithoutBooking(item);
+            outboxService.publish(OutboxEventType.ITEM_CREATED, item.getId(), savedItemDto);
             log.info("Сохранена вещь с id: {} пользователя с id: {}", item.getId(), idUser);
-            return itemMapper.toItemDtoWithoutBooking(item);
+            return savedItemDto;
         } else {
             ItemRequest itemRequest = itemRequestRepository.findItemRequestById(itemDto.getRequestId()).orElseThrow(()
                     -> new NoItemRequestException(itemDto.getRequestId()));
 
             Item item = itemRepository.save(itemMapper.toItemWithRequest(itemDto, user, itemRequest));
-            return itemMapper.toItemDtoWithoutBookingWithRequest(item);
+            indexCreated(item);
+            ItemDto savedItemDto = itemMapper.toItemDtoWithoutBookingWithRequest(item);
+            outboxService.publish(OutboxEventType.ITEM_CREATED, item.getId(), savedItemDto);
+            return savedItemDto;
         }
 
     }
 
+    // Новая вещь попадает во все индексы поиска, а закэшированные выдачи, которые она могла бы пополнить, сбрасываются.
+    private void indexCreated(Item item) {
+        itemSearchEngine.index(item);
+        itemOwnerIndex.index(item);
+        itemTermDictionary.replace(null, ItemTermDictionary.textOf(item));
+        itemNameSuggester.replace(null, ItemNameSuggester.nameOf(item));
+        itemSearchCache.invalidate(item.getId(), null, ItemSearchCache.textOf(item));
+    }
+
     @Override
     public ItemDto patch(long idUser, long itemId, ItemDto itemDto) {
         Item curItem = itemRepository.findById(itemId).orElseThrow(() -> new NoItemException(itemId));
         checkUserForSaveItems(idUser);
         checkUserForSaveCertainItem(idUser, itemId);
+        String previousText = ItemTermDictionary.textOf(curItem);
+        String previousName = ItemNameSuggester.nameOf(curItem);
+        String previousSearchText = ItemSearchCache.textOf(curItem);
         if (itemDto.getName() != null && !itemDto.getName().isBlank()) {
             curItem.setName(itemDto.getName());
         }
@@ -82,43 +141,43 @@ public class ItemServiceImpl implements ItemService {
             curItem.setAvailable(itemDto.getAvailable());
         }
         Item item = itemRepository.save(curItem);
+        itemSearchEngine.index(item);
+        itemTermDictionary.replace(previousText, ItemTermDictionary.textOf(item));
+        itemNameSuggester.replace(previousName, ItemNameSuggester.nameOf(item));
+        itemSearchCache.invalidate(itemId, previousSearchText, ItemSearchCache.textOf(item));
+        itemDetailCache.invalidate(itemId);
+        ItemDto savedItemDto = itemMapper.toItemDtoWithoutBooking(item);
+        outboxService.publish(OutboxEventType.ITEM_UPDATED, item.getId(), savedItemDto);
         log.info("Обновлена вещь с id: {} пользователя с id: {}", item.getId(), idUser);
-        return itemMapper.toItemDtoWithoutBooking(item);
+        return savedItemDto;
     }
 
+    // Карточка вещи без бронирований берется из кэша, при промахе читается одним запросом вместе
+    // с бронированиями. Бронирования показываются только владельцу; при попадании в кэш они досчитываются
+    // для него отдельным запросом. Попадание в кэш не открывает транзакцию, запросы к базе при промахе
+    // выполняются в транзакциях репозиториев только на чтение.
     @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public ItemDto getById(long itemId, long idUser) {
-        Item item = itemRepository.findById(itemId).orElseThrow(() -> new NoItemException(itemId));
-        List<CommentDto> comments = commentsToCommentsDto(commentRepository.findCommentsByItemId(itemId));
-
-        if (item.getOwner().getId() == idUser) {
-            Booking bookingNext = bookingRepository.findFirstBookingByItemIdAndStartAfterOrderByStartAsc(itemId,
-                    LocalDateTime.now());
-            Booking bookingLast = bookingRepository.findTopBookingByItemIdOrderByStartAsc(itemId);
-
-            if (bookingNext == null & bookingLast == null) {
-                log.info("Возвращена вещь с id: {}", itemId);
-                return itemMapper.toItemDtoWithoutBookingWithComments(item, comments);
-            }
+        ItemDetail itemDetail = itemDetailCache.get(itemId,
+                id -> itemRepository.findDetailById(id, LocalDateTime.now()).orElse(null));
+        if (itemDetail == null) {
+            throw new NoItemException(itemId);
+        }
 
-            LastBooking lastBooking = null;
-            NextBooking nextBooking = null;
-            if (bookingLast != null) {
-                lastBooking = new LastBooking(bookingLast.getId(), bookingLast.getBooker().getId());
-            }
-            if (bookingNext != null) {
-                nextBooking = new NextBooking(bookingNext.getId(), bookingNext.getBooker().getId());
+        boolean isOwner = itemDetail.getOwnerId() == idUser;
+        ItemDto itemDto = itemMapper.toItemDto(itemDetail, isOwner && itemDetail.isWithBookings());
+        if (isOwner) {
+            if (!itemDetail.isWithBookings()) {
+                addBookings(Map.of(itemId, itemDto));
             }
-
             log.info("Возвращена вещь с id: {} и следующими бронированиями с id={} и {}", itemId,
-                    lastBooking != null ? lastBooking.getId() : null,
-                    nextBooking != null ? nextBooking.getId() : null);
-            return itemMapper.toItemDtoWithBookingWithComments(item, lastBooking, nextBooking, comments);
-
-        } else {
-            log.info("Возвращена вещь с id: {}", itemId);
-            return itemMapper.toItemDtoWithoutBookingWithComments(item, comments);
+                    itemDto.getLastBooking() != null ? itemDto.getLastBooking().getId() : null,
+                    itemDto.getNextBooking() != null ? itemDto.getNextBooking().getId() : null);
+            return itemDto;
         }
+        log.info("Возвращена вещь с id: {}", itemId);
+        return itemDto;
     }
 
     @Override
@@ -138,22 +197,7 @@ public class ItemServiceImpl implements ItemService {
                     .collect(Collectors.toList());
         }
 
-        for (ItemDto itemDto : itemDtoList) {
-            Booking bookingNext = bookingRepository.findFirstBookingByItemIdAndStartAfterOrderByStartAsc(itemDto.getId(),
-                    LocalDateTime.now());
-            Booking bookingLast = bookingRepository.findTopBookingByItemIdOrderByStartAsc(itemDto.getId());
-            itemDto.setComments(commentsToCommentsDto(commentRepository.findCommentsByItemId(itemDto.getId())));
-
-            if (bookingNext != null) {
-                NextBooking nextBooking = new NextBooking(bookingNext.getId(), bookingNext.getBooker().getId());
-                itemDto.setNextBooking(nextBooking);
-            }
-
-            if (bookingLast != null) {
-                LastBooking lastBooking = new LastBooking(bookingLast.getId(), bookingLast.getBooker().getId());
-                itemDto.setLastBooking(lastBooking);
-            }
-        }
+        addBookingsAndComments(itemDtoList);
 
         log.info("Возвращены все вещи пользователя с id= {}", idUser);
         return itemDtoList;
@@ -161,52 +205,215 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public List<ItemDto> search(String text, Integer from, Integer size) {
-        List<ItemDto> searchList;
-        if (size == null) {
-            searchList = itemsToItemsDto(itemRepository.search(text.toLowerCase()));
-        } else {
-            Pageable pageable = PageRequest.of(from / size, size, SORT_ID_ASC);
-            searchList = itemsToItemsDto(itemRepository.search(text, pageable).getContent());
+        return search(text, from, size, false);
+    }
+
+    @Override
+    public List<ItemDto> search(String text, Integer from, Integer size, boolean fuzzy) {
+        return search(text, from, size, fuzzy, new ItemSearchFilter());
+    }
+
+    @Override
+    public List<ItemDto> search(String text, Integer from, Integer size, boolean fuzzy, ItemSearchFilter filter) {
+        String query = isTooShort(text) ? null : prepareQuery(text, fuzzy);
+        if (isTooShort(query)) {
+            log.info("Слишком короткий запрос: {}. Возвращен пустой список", text);
+            return new ArrayList<>();
         }
+        ItemSearchScope scope = scopeOf(filter);
+        List<ItemDto> searchList = filter.hasPeriod() ? itemSearchEngine.search(query, scope, from, size)
+                : itemSearchCache.get(ItemSearchCache.Key.page(query, filter, from, size),
+                        () -> itemSearchEngine.search(query, scope, from, size));
         log.info("Возвращен список доступных вещей по запросу: {}", text);
         return searchList;
     }
 
+    @Override
+    public List<String> suggest(String prefix, int size) {
+        List<String> names = itemNameSuggester.suggest(prefix, size);
+        log.info("Возвращено {} подсказок названий вещей по префиксу: {}", names.size(), prefix);
+        return names;
+    }
+
+    @Override
+    public CursorPage<ItemDto> getAllByIdUserAfter(long idUser, Cursor after, int size) {
+        userService.isExistUser(idUser);
+        checkUserForSaveItems(idUser);
+
+        List<Item> items = itemRepository.findByOwnerIdAndIdGreaterThanOrderById(idUser,
+                after == null ? 0 : after.getId(), PageRequest.of(0, size + 1));
+        CursorPage<ItemDto> page = CursorPage.of(items, size, itemMapper::toItemDtoWithoutBooking,
+                item -> Cursor.encode(item.getId()));
+        addBookingsAndComments(page.getContent());
+
+        log.info("Возвращена страница вещей пользователя с id= {} размером {}", idUser, size);
+        return page;
+    }
+
+    @Override
+    public CursorPage<ItemDto> searchAfter(String text, Cursor after, int size) {
+        return searchAfter(text, after, size, false);
+    }
+
+    @Override
+    public CursorPage<ItemDto> searchAfter(String text, Cursor after, int size, boolean fuzzy) {
+        return searchAfter(text, after, size, fuzzy, new ItemSearchFilter());
+    }
+
+    @Override
+    public CursorPage<ItemDto> searchAfter(String text, Cursor after, int size, boolean fuzzy,
+                                           ItemSearchFilter filter) {
+        String query = isTooShort(text) ? null : prepareQuery(text, fuzzy);
+        if (isTooShort(query)) {
+            log.info("Слишком короткий запрос: {}. Возвращена пустая страница", text);
+            return new CursorPage<>(new ArrayList<>(), null);
+        }
+        ItemSearchScope scope = scopeOf(filter);
+        long afterId = after == null ? 0 : after.getId();
+        List<ItemDto> items = filter.hasPeriod() ? itemSearchEngine.searchAfter(query, scope, afterId, size + 1)
+                : itemSearchCache.get(ItemSearchCache.Key.cursor(query, filter, afterId, size + 1),
+                        () -> itemSearchEngine.searchAfter(query, scope, afterId, size + 1));
+
+        log.info("Возвращена страница доступных вещей по запросу: {}", text);
+        return CursorPage.of(items, size, Function.identity(), itemDto -> Cursor.encode(itemDto.getId()));
+    }
+
+    @Override
+    public ItemAvailabilityDto getAvailability(long itemId, LocalDateTime from, LocalDateTime to,
+                                               boolean includeWaiting) {
+        if (!itemRepository.existsById(itemId)) {
+            throw new NoItemException(itemId);
+        }
+
+        List<Status> statuses = includeWaiting ? List.of(Status.APPROVED, Status.WAITING) : List.of(Status.APPROVED);
+        List<BookingIntervalView> intervals = bookingRepository.findIntervalsByItemId(itemId, from, to, statuses);
+
+        List<AvailabilityIntervalDto> busy = new ArrayList<>();
+        for (BookingIntervalView interval : intervals) {
+            LocalDateTime start = interval.getStart().isBefore(from) ? from : interval.getStart();
+            LocalDateTime end = interval.getEnd().isAfter(to) ? to : interval.getEnd();
+
+            AvailabilityIntervalDto last = busy.isEmpty() ? null : busy.get(busy.size() - 1);
+            if (last != null && !start.isAfter(last.getEnd())) {
+                if (end.isAfter(last.getEnd())) {
+                    last.setEnd(end);
+                }
+            } else {
+                busy.add(new AvailabilityIntervalDto(start, end));
+            }
+        }
+
+        List<AvailabilityIntervalDto> free = new ArrayList<>();
+        LocalDateTime freeStart = from;
+        for (AvailabilityIntervalDto interval : busy) {
+            if (freeStart.isBefore(interval.getStart())) {
+                free.add(new AvailabilityIntervalDto(freeStart, interval.getStart()));
+            }
+            freeStart = interval.getEnd();
+        }
+        if (freeStart.isBefore(to)) {
+            free.add(new AvailabilityIntervalDto(freeStart, to));
+        }
+
+        log.info("Возвращена занятость вещи с id: {} с {} по {}: {} занятых и {} свободных интервалов", itemId,
+                from, to, busy.size(), free.size());
+        return new ItemAvailabilityDto(itemId, from, to, busy, free);
+    }
+
     @Override
     public CommentDto addComment(long idUser, long itemId, AddCommentDto addCommentDto) {
         User author = userMapper.toUser(userService.getById(idUser));
         Item item = itemRepository.findById(itemId).orElseThrow(() -> new NoItemException(itemId));
-        Booking booking = bookingRepository.findFirstBookingByItemIdAndBookerIdAndStatusOrderByStartAsc(itemId, idUser,
-                Status.APPROVED).orElseThrow(() ->
-                new NoBookingCommentException("Пользователь еще не арендовал эту вещь"));
+        Optional<Booking> booking = bookingRepository.findFirstBookingByItemIdAndBookerIdAndStatusOrderByStartAsc(
+                itemId, idUser, Status.APPROVED);
 
-        if (booking.getStart().isAfter(LocalDateTime.now())) {
+        // Аренды старше срока хранения перенесены в архив и тоже дают право оставить отзыв.
+        boolean rented = booking.map(b -> !b.getStart().isAfter(LocalDateTime.now())).orElse(false)
+                || archivedBookingRepository.existsByItemIdAndBookerIdAndStatus(itemId, idUser, Status.APPROVED);
+        if (!rented) {
+            if (booking.isEmpty()) {
+                throw new NoBookingCommentException("Пользователь еще не арендовал эту вещь");
+            }
             throw new CommentFutureException("Нельзя делать отзыв к еще не взятой в аренду вещи");
         }
 
         Comment comment = commentRepository.save(commentMapper.toComment(addCommentDto, author, item,
                 LocalDateTime.now()));
+        itemDetailCache.invalidate(itemId);
+        CommentDto commentDto = commentMapper.toCommentDto(comment);
+        outboxService.publish(OutboxEventType.COMMENT_ADDED, itemId, commentDto);
         log.info("Сохранен отзыв для вещи с id= {} от пользователя с id={}", itemId, idUser);
 
-        return commentMapper.toCommentDto(comment);
+        return commentDto;
     }
 
-    private List<ItemDto> itemsToItemsDto(List<Item> items) {
-        return items.stream().map(itemMapper::toItemDtoWithoutBooking).collect(Collectors.toList());
+    // Бронирования и отзывы для всей страницы выбираются двумя запросами, независимо от числа вещей на ней.
+    private void addBookingsAndComments(List<ItemDto> itemDtoList) {
+        if (itemDtoList.isEmpty()) {
+            return;
+        }
+        Map<Long, ItemDto> itemDtoById = itemDtoList.stream()
+                .collect(Collectors.toMap(ItemDto::getId, Function.identity()));
+        addBookings(itemDtoById);
+
+        Map<Long, List<CommentDto>> commentsByItemId = commentRepository.findCommentsByItemIdIn(itemDtoById.keySet())
+                .stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(),
+                        Collectors.mapping(commentMapper::toCommentDto, Collectors.toList())));
+        for (ItemDto itemDto : itemDtoList) {
+            itemDto.setComments(commentsByItemId.getOrDefault(itemDto.getId(), new ArrayList<>()));
+        }
     }
 
-    private List<CommentDto> commentsToCommentsDto(List<Comment> comments) {
-        return comments.stream().map(commentMapper::toCommentDto).collect(Collectors.toList());
+    private void addBookings(Map<Long, ItemDto> itemDtoById) {
+        for (ItemBookingRow row : bookingRepository.findLastAndNextByItemIds(itemDtoById.keySet(),
+                LocalDateTime.now())) {
+            ItemDto itemDto = itemDtoById.get(row.getItemId());
+            if (row.isLast()) {
+                itemDto.setLastBooking(new LastBooking(row.getId(), row.getBookerId()));
+            }
+            if (row.isNext()) {
+                itemDto.setNextBooking(new NextBooking(row.getId(), row.getBookerId()));
+            }
+        }
+    }
+
+    // Запросы короче трех символов совпадают почти со всеми вещами и не могут использовать триграммный индекс.
+    // Фильтры по владельцу, запросу и свободности в периоде движок поиска проверяет сам.
+    private ItemSearchScope scopeOf(ItemSearchFilter filter) {
+        if (filter.hasPeriod()
+                && Duration.between(filter.getStart(), filter.getEnd()).compareTo(freeSearchMaxPeriod) > 0) {
+            log.info("Период поиска свободных вещей длиннее {}: с {} по {}", freeSearchMaxPeriod,
+                    filter.getStart(), filter.getEnd());
+            throw new IncorrectParameterException("start или end");
+        }
+        return new ItemSearchScope(filter.getOwnerId(), filter.getWithRequest(), filter.getStart(), filter.getEnd());
+    }
+
+    private boolean isTooShort(String text) {
+        return text == null || text.trim().length() < searchMinLength;
+    }
+
+    // В нечетком режиме слова с опечатками заменяются ближайшими словами из словаря вещей, дальше запрос
+    // выполняется выбранным движком поиска как обычный. Исправленный запрос может оказаться пустым, если в нем
+    // не нашлось ни одного слова, поэтому длина проверяется еще раз уже после исправления.
+    private String prepareQuery(String text, boolean fuzzy) {
+        if (!fuzzy) {
+            return ItemSearchCache.normalize(text);
+        }
+        String corrected = itemTermDictionary.correct(text);
+        log.info("Запрос {} исправлен на {}", text, corrected);
+        return corrected;
     }
 
     private void checkUserForSaveItems(long idUser) {
-        if (itemRepository.findByOwnerIdOrderById(idUser).isEmpty()) {
+        if (!itemOwnerIndex.hasItems(idUser)) {
             throw new ValidationNotFoundIdUserException("У пользователя с id: " + idUser + " пока нет вещей для шеринга");
         }
     }
 
     private void checkUserForSaveCertainItem(long idUser, long itemId) {
-        if (itemRepository.findOwnerByIdItem(itemId) != idUser) {
+        if (itemOwnerIndex.ownerOf(itemId) != idUser) {
             throw new ValidationNotFoundIdUserException("Вещь c id: " + itemId +
                     " не принадлежит пользователю с id: " + idUser);
         }
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.outbox.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum OutboxEventType {
+    BOOKING_CREATED(AggregateType.BOOKING),
+    BOOKING_APPROVED(AggregateType.BOOKING),
+    BOOKING_REJECTED(AggregateType.BOOKING),
+    BOOKING_EXPIRED(AggregateType.BOOKING),
+    ITEM_CREATED(AggregateType.ITEM),
+    ITEM_UPDATED(AggregateType.ITEM),
+    COMMENT_ADDED(AggregateType.ITEM),
+    ITEM_REQUEST_CREATED(AggregateType.ITEM_REQUEST);
+
+    private final AggregateType aggregateType;
+}
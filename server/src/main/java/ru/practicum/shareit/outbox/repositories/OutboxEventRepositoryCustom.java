@@ -0,0 +1,9 @@
+package ru.practicum.shareit.outbox.repositories;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxEventRepositoryCustom {
+    void insertAll(List<OutboxEvent> events);
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit.outbox.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OutboxEventRepositoryCustomImpl implements OutboxEventRepositoryCustom {
+    private static final String INSERT_EVENT = "INSERT INTO outbox_events " +
+            "(aggregate_type, aggregate_id, event_type, payload, created) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // События пакетных операций пишутся так же, как и сами бронирования пакета: одним executeBatch
+    // в текущей транзакции, иначе каждая вставка с IDENTITY-ключом уходила бы в базу отдельно.
+    @Override
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_EVENT, new String[]{"id"})) {
+                for (OutboxEvent event : events) {
+                    statement.setString(1, event.getAggregateType().name());
+                    statement.setLong(2, event.getAggregateId());
+                    statement.setString(3, event.getEventType().name());
+                    statement.setString(4, event.getPayload());
+                    statement.setTimestamp(5, Timestamp.valueOf(event.getCreated()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (OutboxEvent event : events) {
+                        keys.next();
+                        event.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.shareit.outbox.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.repositories.OutboxEventRepository;
+import ru.practicum.shareit.outbox.sinks.OutboxSink;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Вычитывает outbox порциями в порядке id и передает их получателям. Строки удаляются в той же транзакции
+// только после успешной отправки всем получателям; при сбое порция остается и уходит повторно в следующий запуск.
+// Порции не обгоняют друг друга, поэтому события одного агрегата доставляются в порядке записи.
+@Component
+@ConditionalOnProperty(value = "shareit.outbox.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxDispatcher {
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration lagWarning;
+
+    private final Counter dispatchedCounter;
+    private final Counter failuresCounter;
+    private final Timer dispatchTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            List<OutboxSink> sinks,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${shareit.outbox.batch-size:200}") int batchSize,
+                            @Value("${shareit.outbox.max-batches:50}") int maxBatches,
+                            @Value("${shareit.outbox.lag-warning:PT5M}") Duration lagWarning) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.lagWarning = lagWarning;
+
+        this.dispatchedCounter = meterRegistry.counter("shareit.outbox.dispatched");
+        this.failuresCounter = meterRegistry.counter("shareit.outbox.failures");
+        this.dispatchTimer = meterRegistry.timer("shareit.outbox.dispatch");
+        meterRegistry.gauge("shareit.outbox.lag.seconds", lagSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.interval:PT1S}",
+            initialDelayString = "${shareit.outbox.interval:PT1S}")
+    public void dispatch() {
+        dispatchTimer.record(() -> {
+            int dispatched = 0;
+            try {
+                for (int batch = 0; batch < maxBatches; batch++) {
+                    int count = transactionTemplate.execute(status -> dispatchBatch());
+                    dispatched += count;
+                    if (count < batchSize) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                failuresCounter.increment();
+                log.warn("Не удалось доставить порцию событий outbox, она будет отправлена повторно", e);
+            }
+            updateLag();
+
+            if (dispatched > 0) {
+                log.debug("Доставлено {} событий outbox", dispatched);
+            }
+        });
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds.get();
+    }
+
+    // Порция блокируется на время отправки, чтобы второй экземпляр приложения не отправил ее параллельно
+    // и не нарушил порядок событий.
+    private int dispatchBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findBatchForUpdate(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        for (OutboxSink sink : sinks) {
+            sink.send(events);
+        }
+        outboxEventRepository.deleteAllByIdInBatch(events.stream()
+                .map(OutboxEvent::getId)
+                .collect(Collectors.toList()));
+
+        dispatchedCounter.increment(events.size());
+        return events.size();
+    }
+
+    // Отставание - возраст самого старого недоставленного события.
+    private void updateLag() {
+        LocalDateTime now = LocalDateTime.now();
+        long lag = outboxEventRepository.findMinCreated()
+                .map(oldest -> Duration.between(oldest, now).getSeconds())
+                .orElse(0L);
+        lagSeconds.set(lag);
+
+        if (lag > lagWarning.getSeconds()) {
+            log.warn("Отставание доставки событий outbox {} с превышает допустимое {}", lag, lagWarning);
+        }
+    }
+}
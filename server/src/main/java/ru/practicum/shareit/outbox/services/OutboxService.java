@@ -0,0 +1,12 @@
+package ru.practicum.shareit.outbox.services;
+
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+public interface OutboxService {
+    void publish(OutboxEventType eventType, long aggregateId, Object payload);
+
+    <T> void publishAll(OutboxEventType eventType, List<T> payloads, ToLongFunction<T> aggregateId);
+}
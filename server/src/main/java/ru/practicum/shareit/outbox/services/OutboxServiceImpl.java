@@ -0,0 +1,53 @@
+package ru.practicum.shareit.outbox.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.repositories.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+// События пишутся только внутри транзакции изменяющей операции: строка outbox фиксируется или откатывается
+// вместе с изменением, поэтому подписчики не увидят событие без изменения и не пропустят изменение без события.
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxServiceImpl implements OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void publish(OutboxEventType eventType, long aggregateId, Object payload) {
+        outboxEventRepository.insertAll(List.of(toEvent(eventType, aggregateId, payload, LocalDateTime.now())));
+    }
+
+    @Override
+    public <T> void publishAll(OutboxEventType eventType, List<T> payloads, ToLongFunction<T> aggregateId) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.insertAll(payloads.stream()
+                .map(payload -> toEvent(eventType, aggregateId.applyAsLong(payload), payload, now))
+                .collect(Collectors.toList()));
+    }
+
+    private OutboxEvent toEvent(OutboxEventType eventType, long aggregateId, Object payload, LocalDateTime created) {
+        try {
+            return OutboxEvent.builder()
+                    .aggregateType(eventType.getAggregateType())
+                    .aggregateId(aggregateId)
+                    .eventType(eventType)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .created(created)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + eventType, e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.shareit.outbox.sinks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Дописывает события в файл NDJSON, по одному объекту на строку. Порция сбрасывается на диск до того,
+// как диспетчер удалит ее из outbox, поэтому после падения процесса события могут повториться, но не потеряться.
+@Component
+@ConditionalOnProperty(value = "shareit.outbox.sink", havingValue = "file", matchIfMissing = true)
+@Slf4j
+public class FileOutboxSink implements OutboxSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${shareit.outbox.file:${java.io.tmpdir}/shareit-outbox.ndjson}") Path file) {
+        this.objectMapper = objectMapper;
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void send(List<OutboxEvent> events) {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxEvent event : events) {
+            lines.append(toLine(event)).append('\n');
+        }
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать события в файл " + file, e);
+        }
+        log.debug("В файл {} записано {} событий", file, events.size());
+    }
+
+    private String toLine(OutboxEvent event) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", event.getId());
+            node.put("aggregateType", event.getAggregateType().name());
+            node.put("aggregateId", event.getAggregateId());
+            node.put("type", event.getEventType().name());
+            node.put("created", event.getCreated().toString());
+            node.set("payload", objectMapper.readTree(event.getPayload()));
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие с id= " + event.getId(), e);
+        }
+    }
+}
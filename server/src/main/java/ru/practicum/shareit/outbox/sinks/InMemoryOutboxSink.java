@@ -0,0 +1,27 @@
+package ru.practicum.shareit.outbox.sinks;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(value = "shareit.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void send(List<OutboxEvent> events) {
+        this.events.addAll(events);
+    }
+
+    public synchronized List<OutboxEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.outbox.sinks;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+// Получатель событий outbox. Доставка "хотя бы один раз": после сбоя порция отправляется повторно целиком,
+// поэтому получатель должен отбрасывать уже принятые события по их id.
+public interface OutboxSink {
+    void send(List<OutboxEvent> events);
+}
@@ -2,8 +2,11 @@ package ru.practicum.shareit.request.controllers;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.services.ItemRequestService;
@@ -55,19 +58,45 @@ public class ItemRequestController {
         return itemRequestService.getAllByUserId(idUser, from, size);
     }
 
+    @GetMapping(value = "/all", params = "after")
+    public ResponseEntity<List<ItemRequestDto>> getAllByUserIdAfter(
+            @RequestHeader(value = "X-Sharer-User-Id") Long idUser,
+            @RequestParam(value = "after") String after,
+            @RequestParam(value = "size", required = false) Integer size) {
+        checkSize(size);
+
+        log.info("Запрос страницы запросов вещей пользователем с id: {} после курсора: {}", idUser, after);
+
+        return itemRequestService.getAllByUserIdAfter(idUser, decodeCursor(after),
+                size == null ? CursorPage.DEFAULT_SIZE : size).toResponseEntity();
+    }
+
     private void checkParameters(Integer from, Integer size) {
         if (from != null && from < 0) {
             log.info("Задан неправильный номер элемента для пагинации = {}", from);
             throw new IncorrectParameterException("from");
         }
-        if (size != null && size <= 0) {
-            log.info("Задан неправильный размер страницы для пагинации = {}", size);
-            throw new IncorrectParameterException("size");
-        }
+        checkSize(size);
         if (from != null & size == null |
                 from == null & size != null) {
             log.info("Один из параметров пагинации null - from = {}, size={}", from, size);
             throw new IncorrectParameterException("size или from");
         }
     }
+
+    private void checkSize(Integer size) {
+        if (size != null && size <= 0) {
+            log.info("Задан неправильный размер страницы для пагинации = {}", size);
+            throw new IncorrectParameterException("size");
+        }
+    }
+
+    // Запросы упорядочены по (created, id), поэтому курсор без даты создания к ним неприменим.
+    private Cursor decodeCursor(String after) {
+        Cursor cursor = Cursor.decode(after);
+        if (cursor != null && cursor.getTime() == null) {
+            throw new IncorrectParameterException("after");
+        }
+        return cursor;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package ru.practicum.shareit.request.repositories;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +15,13 @@ public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long>
 
     Optional<ItemRequest> findItemRequestById(long requestId);
 
-    Page<ItemRequest> findItemRequestByUserIdNot(Long userId, Pageable pageable);
+    Slice<ItemRequest> findItemRequestByUserIdNot(Long userId, Pageable pageable);
 
     List<ItemRequest> findItemRequestByUserIdNot(Long userId);
+
+    List<ItemRequest> findByUserIdNotOrderByCreatedAscIdAsc(long userId, Pageable pageable);
+
+    @Query(value = "SELECT r FROM ItemRequest r WHERE r.user.id <> ?1 " +
+            "AND (r.created > ?2 OR (r.created = ?2 AND r.id > ?3)) ORDER BY r.created, r.id")
+    List<ItemRequest> findByUserIdNotAfter(long userId, LocalDateTime created, long id, Pageable pageable);
 }
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.request.services;
 
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.List;
@@ -12,4 +14,6 @@ public interface ItemRequestService {
     ItemRequestDto getByRequestId(Long idUser, Long requestId);
 
     List<ItemRequestDto> getAllByUserId(Long idUser, Integer from, Integer size);
+
+    CursorPage<ItemRequestDto> getAllByUserIdAfter(Long idUser, Cursor after, int size);
 }
@@ -2,15 +2,20 @@ package ru.practicum.shareit.request.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.services.OutboxService;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.exception.NoItemRequestException;
 import ru.practicum.shareit.request.mappers.ItemRequestMapper;
@@ -22,6 +27,7 @@ import ru.practicum.shareit.user.repositories.UserRepository;
 import ru.practicum.shareit.user.services.UserService;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,6 +35,7 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Transactional
 public class ItemRequestServiceImpl implements ItemRequestService {
     private final UserService userService;
     private final ItemRequestRepository itemRequestRepository;
@@ -36,6 +43,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final UserRepository userRepository;
     private final ItemRequestMapper itemRequestMapper;
     private final ItemMapper itemMapper;
+    private final OutboxService outboxService;
 
     private static final Sort SORT_CREATED_ASC = Sort.by(Sort.Direction.ASC, "created");
 
@@ -44,12 +52,15 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         User user = userRepository.findById(idUser).orElseThrow(() -> new NoUserException(idUser));
 
         ItemRequest itemRequest = itemRequestRepository.save(itemRequestMapper.toItemRequest(itemRequestDto,
-                LocalDateTime.now(), user));
+                LocalDateTime.now().truncatedTo(ChronoUnit.MICROS), user));
 
         List<Item> items = itemRepository.findByItemRequestIdOrderById(itemRequest.getId());
+        ItemRequestDto savedItemRequestDto = itemRequestMapper.toItemRequestDto(itemRequest,
+                itemsToItemsDtoWithRequest(items));
+        outboxService.publish(OutboxEventType.ITEM_REQUEST_CREATED, itemRequest.getId(), savedItemRequestDto);
         log.info("Сохранен запрос с id= {} вещи от пользователя с id: {}", itemRequest.getId(), idUser);
 
-        return itemRequestMapper.toItemRequestDto(itemRequest, itemsToItemsDtoWithRequest(items));
+        return savedItemRequestDto;
 
     }
 
@@ -107,7 +118,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         } else {
             Pageable pageable = PageRequest.of(from / size, size, SORT_CREATED_ASC);
 
-            Page<ItemRequest> itemRequestPage = itemRequestRepository.findItemRequestByUserIdNot(idUser, pageable);
+            Slice<ItemRequest> itemRequestPage = itemRequestRepository.findItemRequestByUserIdNot(idUser, pageable);
             log.info("Возвращены все запросы вещей исключая пользователя с id={} с пагинацией from={}, size={}",
                     idUser, from, size);
             return itemRequestPage.map(itemRequest -> {
@@ -125,6 +136,24 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         }
     }
 
+    @Override
+    public CursorPage<ItemRequestDto> getAllByUserIdAfter(Long idUser, Cursor after, int size) {
+        if (!userService.isExistUser(idUser)) {
+            throw new NoUserException(idUser);
+        }
+
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<ItemRequest> itemRequestList = after == null
+                ? itemRequestRepository.findByUserIdNotOrderByCreatedAscIdAsc(idUser, pageable)
+                : itemRequestRepository.findByUserIdNotAfter(idUser, after.getTime(), after.getId(), pageable);
+
+        log.info("Возвращена страница запросов вещей исключая пользователя с id={} размером {}", idUser, size);
+        return CursorPage.of(itemRequestList, size,
+                itemRequest -> itemRequestMapper.toItemRequestDto(itemRequest,
+                        itemsToItemsDtoWithRequest(itemRepository.findByItemRequestIdOrderById(itemRequest.getId()))),
+                itemRequest -> Cursor.encode(itemRequest.getCreated(), itemRequest.getId()));
+    }
+
     private List<ItemDto> itemsToItemsDtoWithRequest(List<Item> items) {
         return items.stream().map(itemMapper::toItemDtoWithoutBookingWithRequest).collect(Collectors.toList());
     }
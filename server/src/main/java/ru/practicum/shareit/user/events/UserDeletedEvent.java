@@ -0,0 +1,13 @@
+package ru.practicum.shareit.user.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Публикуется в транзакции удаления пользователя до удаления строки из users. Его вещи, запросы, бронирования
+// и отзывы база удаляет каскадно, поэтому слушатели, которым нужны эти данные, еще могут их прочитать, а свои
+// изменения в памяти откатывают через TransactionCallbacks вместе с транзакцией.
+@Getter
+@RequiredArgsConstructor
+public class UserDeletedEvent {
+    private final long userId;
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.user.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Публикуется в транзакции изменения пользователя, если у него сменилось имя: оно показывается в его отзывах.
+@Getter
+@RequiredArgsConstructor
+public class UserRenamedEvent {
+    private final long userId;
+}
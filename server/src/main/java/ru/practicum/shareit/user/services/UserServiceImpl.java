@@ -2,7 +2,11 @@ package ru.practicum.shareit.user.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.user.events.UserDeletedEvent;
+import ru.practicum.shareit.user.events.UserRenamedEvent;
 import ru.practicum.shareit.user.exceptions.ExistEmailUserDtoException;
 import ru.practicum.shareit.user.repositories.UserRepository;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -19,6 +23,7 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<UserDto> get() {
@@ -53,6 +58,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public UserDto patch(long idUser, UserDto userDto) {
         if (isEmailAlreadyInUse(userDto.getEmail())) {
             throw new ExistEmailUserDtoException("Пользователь с email=" + userDto.getEmail() + " уже есть в базе");
@@ -60,7 +66,9 @@ public class UserServiceImpl implements UserService {
 
         User curUser = userRepository.findById(idUser).orElseThrow(() -> new NoUserException(idUser));
 
+        boolean renamed = false;
         if (userDto.getName() != null && !userDto.getName().isBlank()) {
+            renamed = !userDto.getName().equals(curUser.getName());
             curUser.setName(userDto.getName());
         }
         if (userDto.getEmail() != null && !userDto.getEmail().isBlank()) {
@@ -68,13 +76,18 @@ public class UserServiceImpl implements UserService {
         }
 
         User user = userRepository.save(curUser);
+        if (renamed) {
+            eventPublisher.publishEvent(new UserRenamedEvent(idUser));
+        }
         log.info("Обновили пользователя в БД с id: {}", user.getId());
         return userMapper.toUserDto(user);
     }
 
     @Override
+    @Transactional
     public void remove(long idUser) {
         userRepository.findById(idUser).orElseThrow(() -> new NoUserException(idUser));
+        eventPublisher.publishEvent(new UserDeletedEvent(idUser));
         userRepository.deleteById(idUser);
         log.info("Удалили пользователя в БД с id: {}", idUser);
     }
@@ -0,0 +1,55 @@
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Ограничение добавляется один раз и отмечается в schema_migrations. В уже работающей базе могут найтись
+-- пересекающиеся подтвержденные бронирования одной вещи или подтвержденные бронирования с началом не раньше
+-- окончания (tsrange для них не строится): тогда ALTER TABLE упал бы с ошибкой без указания строк, поэтому такие
+-- строки ищутся заранее и запуск останавливается со списком id. Какое из бронирований отменить или исправить,
+-- решает человек; после исправления данных ограничение добавится при следующем запуске.
+DO 'DECLARE
+    inverted TEXT;
+    conflicts TEXT;
+BEGIN
+    IF EXISTS (SELECT 1 FROM schema_migrations WHERE name = ''bookings_item_approved_period'') THEN
+        RETURN;
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''ex_bookings_item_approved_period'') THEN
+        SELECT string_agg(id::TEXT, '', '' ORDER BY id) INTO inverted
+        FROM bookings WHERE status = ''APPROVED'' AND start_date >= end_date;
+        IF inverted IS NOT NULL THEN
+            RAISE EXCEPTION ''Нельзя добавить ex_bookings_item_approved_period: начало не раньше окончания (id): %'',
+                inverted;
+        END IF;
+        SELECT string_agg(a.id || ''/'' || b.id, '', '' ORDER BY a.id, b.id) INTO conflicts
+        FROM bookings a JOIN bookings b ON b.item_id = a.item_id AND b.id > a.id
+        WHERE a.status = ''APPROVED'' AND b.status = ''APPROVED''
+            AND a.start_date < b.end_date AND b.start_date < a.end_date;
+        IF conflicts IS NOT NULL THEN
+            RAISE EXCEPTION ''Нельзя добавить ex_bookings_item_approved_period: пересекаются подтвержденные бронирования (id/id): %'',
+                conflicts;
+        END IF;
+        ALTER TABLE bookings ADD CONSTRAINT ex_bookings_item_approved_period
+            EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+            WHERE (status = ''APPROVED'');
+    END IF;
+    INSERT INTO schema_migrations (name, applied) VALUES (''bookings_item_approved_period'', CURRENT_TIMESTAMP);
+END';
+
+-- В базах, где owner_id добавлен через ALTER TABLE, внешнего ключа нет: CREATE TABLE IF NOT EXISTS его не создает.
+-- Добавляется один раз; к этому моменту owner_id уже заполнен переносом из schema.sql.
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''fk_bookings_owner'') THEN
+        ALTER TABLE bookings ADD CONSTRAINT fk_bookings_owner
+            FOREIGN KEY (owner_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE;
+    END IF;
+END';
+
+CREATE INDEX IF NOT EXISTS idx_bookings_waiting_start ON bookings (start_date, id) WHERE status = 'WAITING';
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('russian', coalesce(description, '')), 'B')) STORED;
+CREATE INDEX IF NOT EXISTS idx_items_search_vector ON items USING gin (search_vector);
+CREATE INDEX IF NOT EXISTS idx_items_name_trgm ON items USING gin (LOWER(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_items_description_trgm ON items USING gin (LOWER(description) gin_trgm_ops);
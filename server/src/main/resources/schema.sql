@@ -14,6 +14,8 @@ CREATE TABLE IF NOT EXISTS requests
     CONSTRAINT fk_requests_user    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS idx_requests_created_id ON requests (created, id);
+
 CREATE TABLE IF NOT EXISTS items
 (
     id                             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -26,6 +28,8 @@ CREATE TABLE IF NOT EXISTS items
     CONSTRAINT fk_item_request     FOREIGN KEY (request_id) REFERENCES requests (id) ON DELETE CASCADE ON UPDATE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id, id);
+
 CREATE TABLE IF NOT EXISTS bookings
 (
     id                             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -34,10 +38,36 @@ CREATE TABLE IF NOT EXISTS bookings
     item_id                        BIGINT,
     booker_id                      BIGINT,
     status                         VARCHAR(20),
+    owner_id                       BIGINT,
     CONSTRAINT fk_bookings_item    FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE ON UPDATE CASCADE,
-    CONSTRAINT fk_bookings_booker  FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+    CONSTRAINT fk_bookings_booker  FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT fk_bookings_owner   FOREIGN KEY (owner_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+-- Разовые переносы данных отмечаются здесь, чтобы не повторяться при каждом запуске (spring.sql.init.mode=always).
+CREATE TABLE IF NOT EXISTS schema_migrations
+(
+    name                           VARCHAR(64) PRIMARY KEY,
+    applied                        TIMESTAMP WITHOUT TIME ZONE NOT NULL
 );
 
+-- Заполнение owner_id у бронирований, созданных до появления столбца. После отметки в schema_migrations
+-- условие NOT EXISTS ложно без обращения к bookings, и таблица больше не сканируется.
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS owner_id BIGINT;
+UPDATE bookings b SET owner_id = (SELECT owner_id FROM items i WHERE i.id = b.item_id)
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'bookings_owner_id') AND owner_id IS NULL;
+INSERT INTO schema_migrations (name, applied)
+SELECT 'bookings_owner_id', CURRENT_TIMESTAMP
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'bookings_owner_id');
+
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date);
+-- Пересечение с периодом (start_date < :end AND end_date > :start) ищется по этому индексу: диапазон
+-- end_date > :start отсекает прошедшие бронирования вещи, а start_date и status проверяются в самом индексе.
+-- По (item_id, start_date) такой поиск читал бы всю историю вещи до :end.
+CREATE INDEX IF NOT EXISTS idx_bookings_item_end ON bookings (item_id, end_date, start_date, status);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start_id ON bookings (booker_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_owner_start_id ON bookings (owner_id, start_date, id);
+
 CREATE TABLE IF NOT EXISTS comments
 (
     id                             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -47,4 +77,114 @@ CREATE TABLE IF NOT EXISTS comments
     created                        TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT fk_comments_item    FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE ON UPDATE CASCADE,
     CONSTRAINT fk_comments_author  FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
-);
\ No newline at end of file
+);
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_bookings_end_id ON bookings (end_date, id);
+CREATE INDEX IF NOT EXISTS idx_comments_item_id ON comments (item_id, id);
+
+CREATE TABLE IF NOT EXISTS bookings_archive
+(
+    id                                     BIGINT PRIMARY KEY,
+    start_date                             TIMESTAMP WITHOUT TIME ZONE,
+    end_date                               TIMESTAMP WITHOUT TIME ZONE,
+    item_id                                BIGINT,
+    booker_id                              BIGINT,
+    status                                 VARCHAR(20),
+    owner_id                               BIGINT,
+    archived_at                            TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_bookings_archive_item    FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT fk_bookings_archive_booker  FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT fk_bookings_archive_owner   FOREIGN KEY (owner_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_start_id ON bookings_archive (booker_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_owner_start_id ON bookings_archive (owner_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_start_id ON bookings_archive (item_id, start_date, id);
+
+-- Свернутые счетчики бронирований пользователя в роли арендатора (is_owner = FALSE) и владельца
+-- (см. BookingCounter.Type) и журнал их изменений. Транзакции с бронированиями только добавляют строки
+-- в журнал; в счетчики их переносит BookingCounterCompactor, когда наступает effective_at.
+CREATE TABLE IF NOT EXISTS booking_counters
+(
+    user_id                          BIGINT NOT NULL,
+    is_owner                         BOOLEAN NOT NULL,
+    counter                          VARCHAR(20) NOT NULL,
+    total                            BIGINT NOT NULL,
+    CONSTRAINT pk_booking_counters   PRIMARY KEY (user_id, is_owner, counter),
+    CONSTRAINT fk_booking_counters_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking_counter_log
+(
+    id                               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id                          BIGINT NOT NULL,
+    is_owner                         BOOLEAN NOT NULL,
+    counter                          VARCHAR(20) NOT NULL,
+    delta                            BIGINT NOT NULL,
+    effective_at                     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_booking_counter_log_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_counter_log_user ON booking_counter_log (user_id, is_owner, effective_at);
+CREATE INDEX IF NOT EXISTS idx_booking_counter_log_effective ON booking_counter_log (effective_at, id);
+
+-- Заполнение журнала по бронированиям, созданным до появления счетчиков; выполняется один раз. Каждое
+-- бронирование дает те же строки, что и BookingCounters.created, а свертка переносит их в счетчики.
+INSERT INTO booking_counter_log (user_id, is_owner, counter, delta, effective_at)
+SELECT user_id, is_owner, counter, COUNT(*), effective_at FROM (
+    SELECT r.user_id, r.is_owner,
+        CASE c.kind WHEN 'STATUS' THEN r.status ELSE c.kind END AS counter,
+        CASE c.kind WHEN 'STARTED' THEN r.start_date WHEN 'ENDED' THEN r.end_date
+            ELSE TIMESTAMP '1970-01-01 00:00:00' END AS effective_at
+    FROM (
+        SELECT booker_id AS user_id, FALSE AS is_owner, status, start_date, end_date, FALSE AS archived FROM bookings
+        UNION ALL
+        SELECT owner_id, TRUE, status, start_date, end_date, FALSE FROM bookings
+        UNION ALL
+        SELECT booker_id, FALSE, status, start_date, end_date, TRUE FROM bookings_archive
+        UNION ALL
+        SELECT owner_id, TRUE, status, start_date, end_date, TRUE FROM bookings_archive
+    ) r
+    JOIN (VALUES ('ALL'), ('STATUS'), ('STARTED'), ('ENDED')) c (kind)
+        ON c.kind <> 'STATUS' OR (NOT r.archived AND r.status IN ('WAITING', 'REJECTED'))
+    WHERE r.user_id IS NOT NULL
+) d
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'booking_counters')
+GROUP BY user_id, is_owner, counter, effective_at;
+INSERT INTO schema_migrations (name, applied)
+SELECT 'booking_counters', CURRENT_TIMESTAMP
+WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'booking_counters');
+
+CREATE TABLE IF NOT EXISTS outbox_events
+(
+    id                             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    aggregate_type                 VARCHAR(20) NOT NULL,
+    aggregate_id                   BIGINT NOT NULL,
+    event_type                     VARCHAR(40) NOT NULL,
+    payload                        VARCHAR NOT NULL,
+    created                        TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS export_jobs
+(
+    id                             VARCHAR(36) PRIMARY KEY,
+    user_id                        BIGINT NOT NULL,
+    is_owner                       BOOLEAN NOT NULL,
+    state                          VARCHAR(20) NOT NULL,
+    format                         VARCHAR(20) NOT NULL,
+    start_from                     TIMESTAMP WITHOUT TIME ZONE,
+    end_to                         TIMESTAMP WITHOUT TIME ZONE,
+    archived                       BOOLEAN NOT NULL,
+    file_name                      VARCHAR(100) NOT NULL,
+    status                         VARCHAR(20) NOT NULL,
+    row_count                      BIGINT NOT NULL,
+    created                        TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated                        TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    finished                       TIMESTAMP WITHOUT TIME ZONE,
+    error                          VARCHAR(1000),
+    CONSTRAINT fk_export_jobs_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_export_jobs_status_updated ON export_jobs (status, updated);
+CREATE INDEX IF NOT EXISTS idx_export_jobs_finished ON export_jobs (finished);
@@ -0,0 +1,141 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingArchiver;
+import ru.practicum.shareit.booking.services.BookingCounters;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.AddCommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.archive.enabled=true", "shareit.archive.interval=PT1H",
+                "shareit.archive.retention=P30D", "shareit.archive.batch-size=2"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingArchiverTest {
+    private final BookingArchiver bookingArchiver;
+    private final BookingService bookingService;
+    private final BookingCounters bookingCounters;
+    private final ItemService itemService;
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setup() {
+        owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        booker = userRepository.save(new User(0, "user@email.com", "name"));
+        item = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+    }
+
+    @Test
+    public void archiveMovesClosedBookingsAndKeepsThemReachableTest() {
+        long oldestId = save(now.minusDays(200), Status.APPROVED).getId();
+        long oldId = save(now.minusDays(100), Status.REJECTED).getId();
+        long olderId = save(now.minusDays(60), Status.APPROVED).getId();
+        long recentId = save(now.minusDays(2), Status.APPROVED).getId();
+
+        bookingArchiver.archive();
+
+        assertThat(archivedBookingRepository.count(), equalTo(3L));
+        assertThat(bookingRepository.findAll().stream().map(Booking::getId).collect(Collectors.toList()),
+                contains(recentId));
+        Map<State, Long> stats = bookingService.getStats(booker.getId(), false);
+        assertThat(stats.get(State.ALL), equalTo(4L));
+        assertThat(stats.get(State.PAST), equalTo(4L));
+        assertThat(stats.get(State.REJECTED), equalTo(0L));
+        assertThat(bookingService.getStats(owner.getId(), true).get(State.ALL), equalTo(4L));
+
+        List<Long> hot = ids(bookingService.getAllByIdUser(booker.getId(), State.PAST, null, null, false));
+        assertThat(hot, contains(recentId));
+
+        List<Long> all = ids(bookingService.getAllByIdOwner(owner.getId(), State.PAST, null, null, true));
+        assertThat(all, contains(recentId, olderId, oldId, oldestId));
+
+        List<Long> page = ids(bookingService.getAllByIdUser(booker.getId(), State.ALL, 1, 2, true));
+        assertThat(page, contains(olderId, oldId));
+    }
+
+    @Test
+    public void commentOnArchivedBookingTest() {
+        save(now.minusDays(100), Status.APPROVED);
+
+        bookingArchiver.archive();
+
+        assertThat(itemService.addComment(booker.getId(), item.getId(), new AddCommentDto("Хорошая дрель"))
+                .getText(), is("Хорошая дрель"));
+    }
+
+    // Самое раннее бронирование вещи (lastBooking) находится и после переноса в архив: и при чтении карточки
+    // одним запросом, и при досчете бронирований к карточке из кэша, и в списке вещей владельца.
+    @Test
+    public void lastBookingIncludesArchivedBookingsTest() {
+        long oldestId = save(now.minusDays(100), Status.APPROVED).getId();
+        save(now.minusDays(2), Status.APPROVED);
+        long nextId = save(now.plusDays(1), Status.WAITING).getId();
+
+        bookingArchiver.archive();
+
+        ItemDto loaded = itemService.getById(item.getId(), owner.getId());
+        assertThat(loaded.getLastBooking().getId(), equalTo(oldestId));
+        assertThat(loaded.getNextBooking().getId(), equalTo(nextId));
+        ItemDto cached = itemService.getById(item.getId(), owner.getId());
+        assertThat(cached.getLastBooking().getId(), equalTo(oldestId));
+        assertThat(cached.getNextBooking().getId(), equalTo(nextId));
+        assertThat(itemService.getAllByIdUser(owner.getId(), null, null).get(0).getLastBooking().getId(),
+                equalTo(oldestId));
+    }
+
+    private Booking save(LocalDateTime start, Status status) {
+        Booking booking = bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(start.plusHours(1))
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .ownerId(owner.getId())
+                .build());
+        bookingCounters.created(List.of(booking));
+        return booking;
+    }
+
+    private static List<Long> ids(List<BookingDto> bookings) {
+        return bookings.stream().map(BookingDto::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.BookingStatusConflictException;
+import ru.practicum.shareit.booking.exceptions.ValidationBookingDtoException;
+import ru.practicum.shareit.booking.exceptions.ValidationStatusException;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@Slf4j
+@SpringBootTest(
+        properties = "db.name=test",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int BOOKINGS_PER_THREAD = 25;
+
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final ItemService itemService;
+    private final UserService userService;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private long ownerId;
+    private long bookerId;
+    private long itemId;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+        itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+    }
+
+    @Test
+    public void concurrentAddOnHotItemTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        AtomicInteger slot = new AtomicInteger();
+        for (int i = 0; i < THREADS * BOOKINGS_PER_THREAD; i++) {
+            tasks.add(() -> {
+                LocalDateTime bookingStart = start.plusHours(slot.getAndIncrement());
+                bookingService.add(bookerId, new AddBookingDto(itemId, bookingStart, bookingStart.plusMinutes(30)));
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        log.info("{} бронирований одной вещи в {} потоков: {} бронирований/с", tasks.size(), THREADS,
+                String.format("%.1f", tasks.size() * 1_000_000_000.0 / elapsedNanos));
+        assertThat(bookingRepository.count(), equalTo((long) tasks.size()));
+    }
+
+    @Test
+    public void concurrentApproveOfIntersectingBookingsTest() throws Exception {
+        List<Long> bookingIds = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            BookingDto bookingDto = bookingService.add(bookerId,
+                    new AddBookingDto(itemId, start.plusHours(i % 3), start.plusDays(1)));
+            bookingIds.add(bookingDto.getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Long bookingId : bookingIds) {
+            tasks.add(() -> {
+                try {
+                    bookingService.patch(bookingId, ownerId, true);
+                    approved.incrementAndGet();
+                } catch (ValidationBookingDtoException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        log.info("{} конкурирующих подтверждений за {} мс", tasks.size(), elapsedNanos / 1_000_000);
+        assertThat(approved.get(), equalTo(1));
+        assertThat(rejected.get(), equalTo(bookingIds.size() - 1));
+        assertThat(bookingRepository.findAll().stream()
+                .filter(booking -> booking.getStatus() == Status.APPROVED).count(), equalTo(1L));
+    }
+
+    @Test
+    public void concurrentDecisionsOnSameBookingTest() throws Exception {
+        long bookingId = bookingService.add(bookerId,
+                new AddBookingDto(itemId, start, start.plusDays(1))).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            boolean isApproved = i % 2 == 0;
+            tasks.add(() -> {
+                try {
+                    bookingService.patch(bookingId, ownerId, isApproved);
+                    succeeded.incrementAndGet();
+                } catch (ValidationStatusException | BookingStatusConflictException e) {
+                    refused.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(succeeded.get(), equalTo(1));
+        assertThat(refused.get(), equalTo(tasks.size() - 1));
+        assertThat(bookingRepository.findById(bookingId).orElseThrow().getVersion(), equalTo(1L));
+    }
+}
@@ -9,11 +9,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.controllers.BookingController;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookerDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingItemDto;
 import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.BookingStatusConflictException;
 import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
 import ru.practicum.shareit.booking.exceptions.WrongStateException;
 import ru.practicum.shareit.booking.services.BookingService;
@@ -22,7 +30,9 @@ import ru.practicum.shareit.user.model.User;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -31,6 +41,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -60,7 +71,8 @@ public class BookingControllerTest {
         user = new User(2, "user@email.com", "name");
 
         item = new Item(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true, owner);
-        bookingDto = new BookingDto(1, start, finish, item, owner, Status.WAITING);
+        bookingDto = new BookingDto(1, start, finish, new BookingItemDto(item.getId(), item.getName()),
+                new BookerDto(owner.getId()), Status.WAITING);
     }
 
     @Test
@@ -127,6 +139,17 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.status", is(Status.REJECTED.toString())));
     }
 
+    @Test
+    public void patchBookingConcurrentlyChangedTest() throws Exception {
+        when(bookingService.patch(anyLong(), anyLong(), anyBoolean()))
+                .thenThrow(new BookingStatusConflictException("Статус бронирования с id= 1 был изменен параллельно"));
+
+        mockMvc.perform(patch("/bookings/{bookingId}", 1)
+                        .header("X-Sharer-User-Id", 1)
+                        .param("approved", "true"))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     public void getByIdBookingTestIsOk() throws Exception {
         when(bookingService.getByIdBooking(anyLong(),anyLong())).thenReturn(bookingDto);
@@ -149,9 +172,61 @@ public class BookingControllerTest {
         verify(bookingService).getByIdBooking(anyLong(),anyLong());
     }
 
+    @Test
+    public void addBatchBookingTestIsOk() throws Exception {
+        when(bookingService.addBatch(anyLong(), anyList())).thenReturn(List.of(
+                new BookingBatchResultDto(0, bookingDto, null),
+                new BookingBatchResultDto(1, null, "Вещь с id: 2 не содержится в базе")));
+
+        mockMvc.perform(post("/bookings/batch")
+                        .content(objectMapper.writeValueAsString(List.of(addBookingDto, addBookingDto)))
+                        .header("X-Sharer-User-Id", 2)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].booking.id", is(bookingDto.getId()), Long.class))
+                .andExpect(jsonPath("$[1].index", is(1)))
+                .andExpect(jsonPath("$[1].error", is("Вещь с id: 2 не содержится в базе")));
+    }
+
+    @Test
+    public void patchBatchBookingTestIsOk() throws Exception {
+        BookingDecisionDto bookingDecisionDto = BookingDecisionDto.builder().bookingIds(List.of(1L, 2L)).build();
+        when(bookingService.patchBatch(anyLong(), anyBoolean(), any()))
+                .thenReturn(new BookingDecisionResultDto(Status.APPROVED, List.of(1L), List.of(2L)));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(objectMapper.writeValueAsString(bookingDecisionDto))
+                        .header("X-Sharer-User-Id", 1)
+                        .param("approved", "true")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is(Status.APPROVED.toString())))
+                .andExpect(jsonPath("$.changed", hasSize(1)))
+                .andExpect(jsonPath("$.skipped[0]", is(2)));
+
+        verify(bookingService).patchBatch(1L, true, bookingDecisionDto);
+    }
+
+    @Test
+    public void patchBatchBookingWithoutConditionTest() throws Exception {
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(objectMapper.writeValueAsString(new BookingDecisionDto()))
+                        .header("X-Sharer-User-Id", 1)
+                        .param("approved", "true")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getAllByIdBookingAllStateWithoutPaginationTestIsOk() throws Exception {
-        when(bookingService.getAllByIdUser(user.getId(), State.ALL, null, null)).thenReturn(List.of(bookingDto));
+        when(bookingService.getAllByIdUser(user.getId(), State.ALL, null, null, false)).thenReturn(List.of(bookingDto));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2)
@@ -165,12 +240,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].booker.id", is((int)bookingDto.getBooker().getId())))
                 .andExpect(jsonPath("$[0].status", is(Status.WAITING.toString())));
 
-        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, null, null);
+        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, null, null, false);
     }
 
     @Test
     public void getAllByIdBookingEmptyStateWithoutPaginationTestIsOk() throws Exception {
-        when(bookingService.getAllByIdUser(user.getId(), State.ALL, null, null)).thenReturn(List.of(bookingDto));
+        when(bookingService.getAllByIdUser(user.getId(), State.ALL, null, null, false)).thenReturn(List.of(bookingDto));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2))
@@ -183,12 +258,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].booker.id", is((int)bookingDto.getBooker().getId())))
                 .andExpect(jsonPath("$[0].status", is(Status.WAITING.toString())));
 
-        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, null, null);
+        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, null, null, false);
     }
 
     @Test
     public void getAllByIdBookingWaitingStateWithoutPaginationTestIsOk() throws Exception {
-        when(bookingService.getAllByIdUser(user.getId(), State.WAITING, null, null)).thenReturn(List.of(bookingDto));
+        when(bookingService.getAllByIdUser(user.getId(), State.WAITING, null, null, false)).thenReturn(List.of(bookingDto));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2)
@@ -202,12 +277,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].booker.id", is((int)bookingDto.getBooker().getId())))
                 .andExpect(jsonPath("$[0].status", is(Status.WAITING.toString())));
 
-        verify(bookingService).getAllByIdUser(user.getId(), State.WAITING, null, null);
+        verify(bookingService).getAllByIdUser(user.getId(), State.WAITING, null, null, false);
     }
 
     @Test
     public void getAllByIdBookingUnsupportedStateWithoutPaginationTest() throws Exception {
-        when(bookingService.getAllByIdUser(anyLong(), any(), anyInt(), anyInt())).thenThrow(WrongStateException.class);
+        when(bookingService.getAllByIdUser(anyLong(), any(), anyInt(), anyInt(), anyBoolean())).thenThrow(WrongStateException.class);
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2)
@@ -218,7 +293,7 @@ public class BookingControllerTest {
 
     @Test
     public void getAllByIdBookingAllStateWithPaginationTestIsOk() throws Exception {
-        when(bookingService.getAllByIdUser(user.getId(), State.ALL, 0, 2)).thenReturn(List.of(bookingDto));
+        when(bookingService.getAllByIdUser(user.getId(), State.ALL, 0, 2, false)).thenReturn(List.of(bookingDto));
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2)
@@ -234,12 +309,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].booker.id", is((int)bookingDto.getBooker().getId())))
                 .andExpect(jsonPath("$[0].status", is(Status.WAITING.toString())));
 
-        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, 0, 2);
+        verify(bookingService).getAllByIdUser(user.getId(), State.ALL, 0, 2, false);
     }
 
     @Test
     public void getAllByIdBookingAllStateWithWrongPaginationTest() throws Exception {
-        when(bookingService.getAllByIdUser(user.getId(), State.ALL, -1, 0)).thenThrow(IncorrectParameterException.class);
+        when(bookingService.getAllByIdUser(user.getId(), State.ALL, -1, 0, false)).thenThrow(IncorrectParameterException.class);
 
         mockMvc.perform(get("/bookings")
                         .header("X-Sharer-User-Id", 2)
@@ -252,7 +327,7 @@ public class BookingControllerTest {
 
     @Test
     public void getAllByIdOwnerAllStateWithoutPaginationTestIsOk() throws Exception {
-        when(bookingService.getAllByIdOwner(owner.getId(), State.ALL, null, null)).thenReturn(List.of(bookingDto));
+        when(bookingService.getAllByIdOwner(owner.getId(), State.ALL, null, null, false)).thenReturn(List.of(bookingDto));
 
         mockMvc.perform(get("/bookings/owner")
                         .header("X-Sharer-User-Id", 1)
@@ -266,12 +341,12 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[0].booker.id", is((int)bookingDto.getBooker().getId())))
                 .andExpect(jsonPath("$[0].status", is(Status.WAITING.toString())));
 
-        verify(bookingService).getAllByIdOwner(owner.getId(), State.ALL, null, null);
+        verify(bookingService).getAllByIdOwner(owner.getId(), State.ALL, null, null, false);
     }
 
     @Test
     public void getAllByIdOwnerAllStateWithWrongPaginationTest() throws Exception {
-        when(bookingService.getAllByIdOwner(user.getId(), State.ALL, -1, 0)).thenThrow(IncorrectParameterException.class);
+        when(bookingService.getAllByIdOwner(user.getId(), State.ALL, -1, 0, false)).thenThrow(IncorrectParameterException.class);
 
         mockMvc.perform(get("/bookings/owner")
                         .header("X-Sharer-User-Id", 1)
@@ -282,8 +357,62 @@ public class BookingControllerTest {
                 .andExpect(status().is(400));
     }
 
+    @Test
+    public void getAllByIdUserPastWithArchiveTestIsOk() throws Exception {
+        when(bookingService.getAllByIdUser(user.getId(), State.PAST, null, null, true)).thenReturn(List.of(bookingDto));
+
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", 2)
+                        .param("state", "PAST")
+                        .param("archived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(bookingDto.getId()), Long.class));
+
+        verify(bookingService).getAllByIdUser(user.getId(), State.PAST, null, null, true);
+    }
+
+    @Test
+    public void getStatsByIdOwnerTestIsOk() throws Exception {
+        Map<State, Long> stats = new EnumMap<>(State.class);
+        for (State state : State.values()) {
+            stats.put(state, 0L);
+        }
+        stats.put(State.ALL, 3L);
+        stats.put(State.WAITING, 2L);
+        when(bookingService.getStats(owner.getId(), true)).thenReturn(stats);
+
+        mockMvc.perform(get("/bookings/owner/stats")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL", is(3)))
+                .andExpect(jsonPath("$.WAITING", is(2)))
+                .andExpect(jsonPath("$.PAST", is(0)));
 
+        verify(bookingService).getStats(owner.getId(), true);
+    }
 
+    @Test
+    public void getAllByIdBookingAfterCursorTestIsOk() throws Exception {
+        String nextCursor = Cursor.encode(bookingDto.getStart(), bookingDto.getId());
+        when(bookingService.getAllByIdUserAfter(eq(user.getId()), eq(State.ALL), isNull(), eq(1)))
+                .thenReturn(new CursorPage<>(List.of(bookingDto), nextCursor));
 
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", 2)
+                        .param("after", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, nextCursor))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(bookingDto.getId()), Long.class));
+    }
 
+    @Test
+    public void getAllByIdBookingWrongCursorTest() throws Exception {
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", 2)
+                        .param("after", "не курсор"))
+                .andExpect(status().isBadRequest());
+    }
 }
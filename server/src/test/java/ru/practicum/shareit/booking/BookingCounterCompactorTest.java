@@ -0,0 +1,112 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingCounterCompactor;
+import ru.practicum.shareit.booking.services.BookingCounters;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.counters.compaction.enabled=true",
+                "shareit.counters.compaction.interval=PT1H", "shareit.counters.compaction.batch-size=3"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingCounterCompactorTest {
+    private final BookingCounterCompactor bookingCounterCompactor;
+    private final BookingCounters bookingCounters;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setup() {
+        owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        booker = userRepository.save(new User(0, "user@email.com", "name"));
+        item = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+    }
+
+    @Test
+    public void compactionKeepsStatsAndLeavesFutureTransitionsInLogTest() {
+        save(now.minusDays(2), now.minusDays(1), Status.APPROVED);
+        save(now.minusHours(1), now.plusHours(1), Status.APPROVED);
+        save(now.plusDays(1), now.plusDays(2), Status.WAITING);
+        Map<State, Long> expected = Map.of(State.ALL, 3L, State.CURRENT, 1L, State.PAST, 1L, State.FUTURE, 1L,
+                State.WAITING, 1L, State.REJECTED, 0L);
+        assertThat(bookingService.getStats(owner.getId(), true), equalTo(expected));
+
+        bookingCounterCompactor.compact();
+
+        assertThat(bookingService.getStats(owner.getId(), true), equalTo(expected));
+        assertThat(bookingService.getStats(booker.getId(), false), equalTo(expected));
+        // Не наступили окончание текущего бронирования и начало и окончание будущего, у каждого по две роли.
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_counter_log", Long.class),
+                equalTo(6L));
+    }
+
+    @Test
+    public void userDeletionCancelsCompactedAndPendingCountersTest() {
+        User other = userRepository.save(new User(0, "other@email.com", "other"));
+        save(now.minusDays(2), now.minusDays(1), Status.REJECTED);
+        save(now.plusDays(1), now.plusDays(2), Status.WAITING);
+        bookingCounterCompactor.compact();
+        Booking kept = bookingRepository.save(Booking.builder()
+                .start(now.plusDays(3))
+                .end(now.plusDays(4))
+                .item(item)
+                .booker(other)
+                .status(Status.WAITING)
+                .ownerId(owner.getId())
+                .build());
+        bookingCounters.created(List.of(kept));
+
+        userService.remove(booker.getId());
+        bookingCounterCompactor.compact();
+
+        assertThat(bookingService.getStats(owner.getId(), true), equalTo(Map.of(State.ALL, 1L,
+                State.CURRENT, 0L, State.PAST, 0L, State.FUTURE, 1L, State.WAITING, 1L, State.REJECTED, 0L)));
+    }
+
+    private void save(LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(end)
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .ownerId(owner.getId())
+                .build());
+        bookingCounters.created(List.of(booking));
+    }
+}
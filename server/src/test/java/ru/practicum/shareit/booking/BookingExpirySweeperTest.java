@@ -0,0 +1,136 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.ValidationStatusException;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingCounters;
+import ru.practicum.shareit.booking.services.BookingExpirySweeper;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.expiry.enabled=true", "shareit.expiry.interval=PT1H",
+                "shareit.expiry.batch-size=2", "shareit.expiry.max-batches=2"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingExpirySweeperTest {
+    private final BookingExpirySweeper bookingExpirySweeper;
+    private final BookingService bookingService;
+    private final BookingCounters bookingCounters;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void setup() {
+        owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        booker = userRepository.save(new User(0, "user@email.com", "name"));
+        item = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+    }
+
+    @Test
+    public void sweepExpiresStaleWaitingBookingsInBatchesTest() {
+        List<Long> staleIds = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            staleIds.add(save(now.minusDays(i), Status.WAITING).getId());
+        }
+        long approvedId = save(now.minusDays(1), Status.APPROVED).getId();
+        long futureId = bookingService.add(booker.getId(),
+                new AddBookingDto(item.getId(), now.plusDays(1), now.plusDays(2))).getId();
+
+        bookingExpirySweeper.sweep();
+
+        assertThat(countByStatus(staleIds, Status.EXPIRED), equalTo(4L));
+        assertThat(bookingExpirySweeper.getLagSeconds(), greaterThan(0L));
+
+        bookingExpirySweeper.sweep();
+
+        assertThat(countByStatus(staleIds, Status.EXPIRED), equalTo(5L));
+        assertThat(bookingExpirySweeper.getLagSeconds(), equalTo(0L));
+        assertThat(bookingRepository.findById(approvedId).orElseThrow().getStatus(), equalTo(Status.APPROVED));
+        assertThat(bookingRepository.findById(futureId).orElseThrow().getStatus(), equalTo(Status.WAITING));
+        assertThat(bookingService.getStats(booker.getId(), false).get(State.WAITING), equalTo(1L));
+        assertThat(bookingService.getStats(owner.getId(), true).get(State.ALL), equalTo(7L));
+    }
+
+    @Test
+    public void patchExpiredBookingTest() {
+        long bookingId = save(now.minusDays(1), Status.WAITING).getId();
+
+        bookingExpirySweeper.sweep();
+
+        assertThatThrownBy(() -> bookingService.patch(bookingId, owner.getId(), true))
+                .isInstanceOf(ValidationStatusException.class)
+                .hasMessageContaining("просрочено");
+    }
+
+    // До запуска BookingExpirySweeper ожидающее бронирование с наступившим началом все равно нельзя
+    // подтвердить или отклонить, а пакетное решение его пропускает.
+    @Test
+    public void patchStartedWaitingBookingBeforeSweepTest() {
+        long startedId = save(now.minusMinutes(1), Status.WAITING).getId();
+        long futureId = save(now.plusDays(1), Status.WAITING).getId();
+
+        assertThatThrownBy(() -> bookingService.patch(startedId, owner.getId(), true))
+                .isInstanceOf(ValidationStatusException.class)
+                .hasMessageContaining("просрочено");
+
+        BookingDecisionResultDto result = bookingService.patchBatch(owner.getId(), true,
+                BookingDecisionDto.builder().bookingIds(List.of(startedId, futureId)).build());
+
+        assertThat(result.getChanged(), equalTo(List.of(futureId)));
+        assertThat(result.getSkipped(), equalTo(List.of(startedId)));
+        assertThat(bookingRepository.findById(startedId).orElseThrow().getStatus(), equalTo(Status.WAITING));
+    }
+
+    private Booking save(LocalDateTime start, Status status) {
+        Booking booking = bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(start.plusHours(1))
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .ownerId(owner.getId())
+                .build());
+        bookingCounters.created(List.of(booking));
+        return booking;
+    }
+
+    private long countByStatus(List<Long> ids, Status status) {
+        return bookingRepository.findAllById(ids).stream()
+                .filter(booking -> booking.getStatus() == status)
+                .count();
+    }
+}
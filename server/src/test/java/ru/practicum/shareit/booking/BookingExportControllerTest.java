@@ -0,0 +1,87 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.controllers.BookingExportController;
+import ru.practicum.shareit.booking.dto.ExportJobDto;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.exceptions.ExportNotReadyException;
+import ru.practicum.shareit.booking.services.BookingExportService;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = BookingExportController.class)
+public class BookingExportControllerTest {
+    @MockBean
+    BookingExportService bookingExportService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0, 1);
+
+    @Test
+    public void startExportTestIsAccepted() throws Exception {
+        ExportJobDto job = ExportJobDto.builder()
+                .id("job")
+                .format(ExportFormat.CSV)
+                .status(ExportStatus.QUEUED)
+                .build();
+        when(bookingExportService.start(anyLong(), anyBoolean(), any(), any(), any(), any(), anyBoolean()))
+                .thenReturn(job);
+
+        mockMvc.perform(post("/bookings/export")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("owner", "true")
+                        .param("state", "PAST")
+                        .param("format", "csv")
+                        .param("from", from.toString())
+                        .param("archived", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", is("job")))
+                .andExpect(jsonPath("$.status", is("QUEUED")));
+
+        verify(bookingExportService).start(1L, true, State.PAST, ExportFormat.CSV, from, null, true);
+    }
+
+    @Test
+    public void startExportWithUnknownFormatTest() throws Exception {
+        mockMvc.perform(post("/bookings/export")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void startExportWithWrongPeriodTest() throws Exception {
+        mockMvc.perform(post("/bookings/export")
+                        .header("X-Sharer-User-Id", 1)
+                        .param("from", from.toString())
+                        .param("to", from.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getFileOfUnfinishedExportTest() throws Exception {
+        when(bookingExportService.getFile(anyLong(), anyString()))
+                .thenThrow(new ExportNotReadyException("job", ExportStatus.RUNNING));
+
+        mockMvc.perform(get("/bookings/export/job/file")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isConflict());
+    }
+}
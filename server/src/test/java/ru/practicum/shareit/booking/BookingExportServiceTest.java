@@ -0,0 +1,209 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.ExportJobDto;
+import ru.practicum.shareit.booking.enums.ExportFormat;
+import ru.practicum.shareit.booking.enums.ExportStatus;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.enums.State;
+import ru.practicum.shareit.booking.exceptions.NoExportJobException;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.ExportJob;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.repositories.ExportJobRepository;
+import ru.practicum.shareit.booking.services.BookingArchiver;
+import ru.practicum.shareit.booking.services.BookingExportService;
+import ru.practicum.shareit.booking.services.BookingExportServiceImpl;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repositories.UserRepository;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.export.rows-per-second=0", "shareit.archive.enabled=true",
+                "shareit.archive.interval=PT1H"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingExportServiceTest {
+    private final BookingExportService bookingExportService;
+    private final BookingExportServiceImpl bookingExportServiceImpl;
+    private final ExportJobRepository exportJobRepository;
+    private final BookingService bookingService;
+    private final ItemService itemService;
+    private final UserService userService;
+    private final BookingArchiver bookingArchiver;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private long ownerId;
+    private long bookerId;
+    private long itemId;
+    private BookingDto approvedBooking;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+        itemId = itemService.add(ownerId, new ItemDto(0, "Дрель, \"ударная\"", "Простая дрель", true)).getId();
+
+        approvedBooking = bookingService.add(bookerId, new AddBookingDto(itemId, start, start.plusHours(1)));
+        bookingService.patch(approvedBooking.getId(), ownerId, true);
+        bookingService.add(bookerId, new AddBookingDto(itemId, start.plusDays(2), start.plusDays(3)));
+    }
+
+    @Test
+    public void exportOwnerBookingsToNdjsonTest() throws Exception {
+        ExportJobDto job = bookingExportService.start(ownerId, true, State.ALL, ExportFormat.NDJSON, null, null,
+                false);
+        ExportJobDto finished = awaitFinished(job.getId(), ownerId);
+
+        assertThat(finished.getStatus(), equalTo(ExportStatus.DONE));
+        assertThat(finished.getRows(), equalTo(2L));
+        List<String> lines = readLines(bookingExportService.getFile(ownerId, job.getId()));
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(0), containsString("\"id\":" + approvedBooking.getId()));
+        assertThat(lines.get(0), containsString("\"status\":\"APPROVED\""));
+    }
+
+    @Test
+    public void exportBookerBookingsToCsvWithFiltersTest() throws Exception {
+        ExportJobDto job = bookingExportService.start(bookerId, false, State.WAITING, ExportFormat.CSV,
+                start.plusDays(1), null, false);
+        awaitFinished(job.getId(), bookerId);
+
+        List<String> lines = readLines(bookingExportService.getFile(bookerId, job.getId()));
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(0), equalTo("id,start,end,status,item_id,item_name,booker_id,owner_id"));
+        assertThat(lines.get(1), containsString(",WAITING,"));
+        assertThat(lines.get(1), containsString(",\"Дрель, \"\"ударная\"\"\","));
+    }
+
+    @Test
+    public void exportArchivedBookingsOnRequestTest() throws Exception {
+        Item item = itemRepository.findById(itemId).orElseThrow();
+        long archivedId = bookingRepository.save(Booking.builder()
+                .start(start.minusDays(400))
+                .end(start.minusDays(399))
+                .item(item)
+                .booker(userRepository.findById(bookerId).orElseThrow())
+                .status(Status.APPROVED)
+                .ownerId(ownerId)
+                .build()).getId();
+        bookingArchiver.archive();
+
+        ExportJobDto hot = bookingExportService.start(ownerId, true, State.PAST, ExportFormat.CSV, null, null, false);
+        assertThat(awaitFinished(hot.getId(), ownerId).getRows(), equalTo(0L));
+
+        ExportJobDto all = bookingExportService.start(ownerId, true, State.ALL, ExportFormat.CSV, null, null, true);
+        assertThat(awaitFinished(all.getId(), ownerId).getRows(), equalTo(3L));
+        List<String> lines = readLines(bookingExportService.getFile(ownerId, all.getId()));
+        assertThat(lines.get(3), startsWith(archivedId + ","));
+    }
+
+    @Test
+    public void exportJobIsStoredInDatabaseTest() throws Exception {
+        ExportJobDto job = bookingExportService.start(ownerId, true, State.ALL, ExportFormat.NDJSON, null, null,
+                false);
+        awaitFinished(job.getId(), ownerId);
+
+        ExportJob stored = exportJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(stored.getStatus(), equalTo(ExportStatus.DONE));
+        assertThat(stored.getRows(), equalTo(2L));
+        assertThat(stored.getFinished(), notNullValue());
+    }
+
+    @Test
+    public void removeExpiredJobsFilesAndStaleJobsTest() throws Exception {
+        ExportJobDto done = bookingExportService.start(ownerId, true, State.ALL, ExportFormat.CSV, null, null, false);
+        awaitFinished(done.getId(), ownerId);
+        Path file = bookingExportService.getFile(ownerId, done.getId());
+        Path orphan = Files.createTempFile(file.getParent(), "lost", ".csv.gz.part");
+
+        LocalDateTime old = LocalDateTime.now().minusDays(2);
+        ExportJob expired = exportJobRepository.findById(done.getId()).orElseThrow();
+        expired.setFinished(old);
+        exportJobRepository.save(expired);
+        FileTime oldTime = FileTime.from(old.atZone(ZoneId.systemDefault()).toInstant());
+        Files.setLastModifiedTime(file, oldTime);
+        Files.setLastModifiedTime(orphan, oldTime);
+        ExportJob stale = exportJobRepository.save(ExportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(ownerId)
+                .owner(true)
+                .state(State.ALL)
+                .format(ExportFormat.CSV)
+                .fileName("stale.csv.gz")
+                .status(ExportStatus.RUNNING)
+                .created(old)
+                .updated(old)
+                .build());
+
+        bookingExportServiceImpl.removeExpired();
+
+        assertThrows(NoExportJobException.class, () -> bookingExportService.getById(ownerId, done.getId()));
+        assertThat(Files.exists(file), is(false));
+        assertThat(Files.exists(orphan), is(false));
+        assertThat(bookingExportService.getById(ownerId, stale.getId()).getStatus(), equalTo(ExportStatus.FAILED));
+    }
+
+    @Test
+    public void getExportOfAnotherUserTest() throws Exception {
+        ExportJobDto job = bookingExportService.start(ownerId, true, State.ALL, ExportFormat.NDJSON, null, null,
+                false);
+        awaitFinished(job.getId(), ownerId);
+
+        assertThrows(NoExportJobException.class, () -> bookingExportService.getById(bookerId, job.getId()));
+        assertThrows(NoExportJobException.class, () -> bookingExportService.getFile(bookerId, job.getId()));
+    }
+
+    private ExportJobDto awaitFinished(String jobId, long userId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ExportJobDto job = bookingExportService.getById(userId, jobId);
+            if (job.getStatus() == ExportStatus.DONE || job.getStatus() == ExportStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Выгрузка не завершилась: " + jobId);
+    }
+
+    private static List<String> readLines(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
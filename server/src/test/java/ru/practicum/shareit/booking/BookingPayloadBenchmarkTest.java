@@ -0,0 +1,136 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.services.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.services.UserService;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Сравнивает размер и время ответа со списком бронирований владельца: прежний ответ сериализовал
+// сущности целиком (вещь с владельцем и запросом, арендатор), новый собирается из плоской проекции.
+@Slf4j
+@SpringBootTest(properties = "db.name=test")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BookingPayloadBenchmarkTest {
+    private static final int ITEMS = 20;
+    private static final int BOOKINGS_PER_ITEM = 25;
+    private static final int ITERATIONS = 20;
+
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final BookingService bookingService;
+    private final ItemRequestService itemRequestService;
+    private final ItemService itemService;
+    private final UserService userService;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private long ownerId;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+
+        List<AddBookingDto> addBookingDtoList = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            long requestId = itemRequestService.add(bookerId,
+                    new ItemRequestDto("Нужна дрель для ремонта квартиры №" + i)).getId();
+            ItemDto itemDto = new ItemDto(0, "Дрель " + i, "Простая дрель для домашнего ремонта", true);
+            itemDto.setRequestId(requestId);
+            long itemId = itemService.add(ownerId, itemDto).getId();
+
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                addBookingDtoList.add(new AddBookingDto(itemId, start.plusDays(j), start.plusDays(j).plusHours(1)));
+            }
+        }
+        bookingService.addBatch(bookerId, addBookingDtoList);
+    }
+
+    @Test
+    public void ownerBookingListPayloadTest() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        long legacyBytes = 0;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            legacyBytes = transactionTemplate.execute(status -> serializeEntities());
+            entityManager.clear();
+        }
+        long legacyNanos = (System.nanoTime() - startedAt) / ITERATIONS;
+
+        long slimBytes = 0;
+        startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            slimBytes = mockMvc.perform(get("/bookings/owner")
+                            .header("X-Sharer-User-Id", ownerId))
+                    .andReturn().getResponse().getContentAsByteArray().length;
+        }
+        long slimNanos = (System.nanoTime() - startedAt) / ITERATIONS;
+
+        int bookings = ITEMS * BOOKINGS_PER_ITEM;
+        log.info("Список из {} бронирований из сущностей: {} байт ({} байт/бронирование), {} мс на ответ",
+                bookings, legacyBytes, legacyBytes / bookings, legacyNanos / 1_000_000);
+        log.info("Список из {} бронирований из проекции: {} байт ({} байт/бронирование), {} мс на ответ",
+                bookings, slimBytes, slimBytes / bookings, slimNanos / 1_000_000);
+        assertThat(slimBytes, lessThan(legacyBytes));
+    }
+
+    // Повторяет прежнюю форму ответа: BookingDto содержал сущности Item и User как есть.
+    private long serializeEntities() {
+        List<Booking> bookings = entityManager.createQuery("SELECT b FROM Booking b JOIN FETCH b.item " +
+                        "JOIN FETCH b.booker WHERE b.ownerId = :ownerId ORDER BY b.start DESC, b.id DESC", Booking.class)
+                .setParameter("ownerId", ownerId)
+                .getResultList();
+        List<Map<String, Object>> response = bookings.stream()
+                .map(booking -> {
+                    Map<String, Object> bookingDto = new LinkedHashMap<>();
+                    bookingDto.put("id", booking.getId());
+                    bookingDto.put("start", booking.getStart());
+                    bookingDto.put("end", booking.getEnd());
+                    bookingDto.put("item", booking.getItem());
+                    bookingDto.put("booker", booking.getBooker());
+                    bookingDto.put("status", booking.getStatus());
+                    return bookingDto;
+                })
+                .collect(Collectors.toList());
+        try {
+            return objectMapper.writeValueAsBytes(response).length;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
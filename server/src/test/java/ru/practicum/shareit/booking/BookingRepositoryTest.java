@@ -5,10 +5,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingRow;
+import ru.practicum.shareit.booking.repositories.BookingCriteria;
 import ru.practicum.shareit.booking.repositories.BookingRepository;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repositories.ItemRepository;
@@ -16,6 +18,8 @@ import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repositories.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @DataJpaTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -84,18 +88,21 @@ public class BookingRepositoryTest {
         booking.setItem(firstItem);
         booking.setBooker(secondUser);
         booking.setStatus(Status.APPROVED);
+        booking.setOwnerId(firstUser.getId());
         bookingRepository.save(booking);
 
+        BookingCriteria criteria = BookingCriteria.builder().ownerId(firstUser.getId()).build();
+
         Assertions.assertEquals(1,
-                bookingRepository.findBookingByIdOwner(firstUser.getId()).size());
+                bookingRepository.findByCriteria(criteria, null, null).size());
         Assertions.assertEquals(booking.getId(),
-                bookingRepository.findBookingByIdOwner(firstUser.getId()).get(0).getId());
+                bookingRepository.findByCriteria(criteria, null, null).get(0).getId());
 
         Assertions.assertEquals(1,
-                bookingRepository.findBookingByIdOwner(firstUser.getId(), PageRequest.of(0, 1)).getContent().size());
+                bookingRepository.findByCriteria(criteria, 0, 1).size());
         Assertions.assertEquals(booking.getId(),
-                bookingRepository.findBookingByIdOwner(firstUser.getId(),
-                        PageRequest.of(0, 1)).getContent().get(0).getId());
+                bookingRepository.findByCriteria(criteria, 0, 1).get(0).getId());
+        Assertions.assertTrue(bookingRepository.findByCriteria(criteria, 1, 1).isEmpty());
     }
 
     @Test
@@ -125,15 +132,73 @@ public class BookingRepositoryTest {
         booking.setStatus(Status.APPROVED);
         bookingRepository.save(booking);
 
+        BookingCriteria criteria = BookingCriteria.builder().bookerId(secondUser.getId()).build();
+
         Assertions.assertEquals(1,
-                bookingRepository.findBookingByIdUserAndSortTime(secondUser.getId()).size());
+                bookingRepository.findByCriteria(criteria, null, null).size());
         Assertions.assertEquals(booking.getId(),
-                bookingRepository.findBookingByIdUserAndSortTime(secondUser.getId()).get(0).getId());
+                bookingRepository.findByCriteria(criteria, null, null).get(0).getId());
 
         Assertions.assertEquals(1,
-                bookingRepository.findBookingByBookerId(secondUser.getId(), PageRequest.of(0, 1)).getContent().size());
+                bookingRepository.findByCriteria(criteria, 0, 1).size());
         Assertions.assertEquals(booking.getId(),
-                bookingRepository.findBookingByBookerId(secondUser.getId(),
-                        PageRequest.of(0, 1)).getContent().get(0).getId());
+                bookingRepository.findByCriteria(criteria, 0, 1).get(0).getId());
+    }
+
+    @Test
+    void findByCriteriaFiltersByStateTest() {
+        User owner = new User();
+        owner.setName("ИмяРек №1");
+        owner.setEmail("user1@email.ru");
+        userRepository.save(owner);
+
+        User booker = new User();
+        booker.setName("ИмяРек №2");
+        booker.setEmail("user2@email.ru");
+        userRepository.save(booker);
+
+        Item item = new Item();
+        item.setName("Вещь №1");
+        item.setDescription("Необходимая вещь №1");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        itemRepository.save(item);
+
+        LocalDateTime now = LocalDateTime.now();
+        Booking past = saveBooking(item, booker, now.minusDays(3), now.minusDays(2), Status.APPROVED);
+        Booking current = saveBooking(item, booker, now.minusDays(1), now.plusDays(1), Status.APPROVED);
+        Booking waiting = saveBooking(item, booker, now.plusDays(2), now.plusDays(3), Status.WAITING);
+        Booking rejected = saveBooking(item, booker, now.plusDays(4), now.plusDays(5), Status.REJECTED);
+
+        Assertions.assertEquals(List.of(rejected.getId(), waiting.getId(), current.getId(), past.getId()),
+                findIds(BookingCriteria.builder().ownerId(owner.getId()).now(now).build()));
+        Assertions.assertEquals(List.of(past.getId()),
+                findIds(BookingCriteria.builder().bookerId(booker.getId()).state(State.PAST).now(now).build()));
+        Assertions.assertEquals(List.of(current.getId()),
+                findIds(BookingCriteria.builder().ownerId(owner.getId()).state(State.CURRENT).now(now).build()));
+        Assertions.assertEquals(List.of(rejected.getId(), waiting.getId()),
+                findIds(BookingCriteria.builder().bookerId(booker.getId()).state(State.FUTURE).now(now).build()));
+        Assertions.assertEquals(List.of(waiting.getId()),
+                findIds(BookingCriteria.builder().ownerId(owner.getId()).state(State.WAITING).now(now).build()));
+        Assertions.assertEquals(List.of(rejected.getId()),
+                findIds(BookingCriteria.builder().bookerId(booker.getId()).state(State.REJECTED).now(now).build()));
+        Assertions.assertTrue(findIds(BookingCriteria.builder().ownerId(booker.getId()).build()).isEmpty());
+    }
+
+    private Booking saveBooking(Item item, User booker, LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStatus(status);
+        booking.setOwnerId(item.getOwner().getId());
+        return bookingRepository.save(booking);
+    }
+
+    private List<Long> findIds(BookingCriteria criteria) {
+        return bookingRepository.findByCriteria(criteria, null, null).stream()
+                .map(BookingRow::getId)
+                .collect(Collectors.toList());
     }
 }
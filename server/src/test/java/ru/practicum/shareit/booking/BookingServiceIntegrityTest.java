@@ -0,0 +1,106 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.ValidationBookingDtoException;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingIntervalView;
+import ru.practicum.shareit.booking.repositories.ArchivedBookingRepository;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingCounters;
+import ru.practicum.shareit.booking.services.BookingOverlapChecker;
+import ru.practicum.shareit.booking.services.BookingServiceImpl;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.outbox.services.OutboxService;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Исключение ex_bookings_item_approved_period есть только в PostgreSQL, поэтому его нарушение при подтверждении
+// воспроизводится репозиторием-заглушкой, который бросает DataIntegrityViolationException из updateStatus.
+@ExtendWith(MockitoExtension.class)
+public class BookingServiceIntegrityTest {
+    @Mock
+    private UserService userService;
+    @Mock
+    private BookingRepository bookingRepository;
+    @Mock
+    private ArchivedBookingRepository archivedBookingRepository;
+    @Mock
+    private ItemRepository itemRepository;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private BookingCounters bookingCounters;
+    @Mock
+    private BookingOverlapChecker bookingOverlapChecker;
+
+    private BookingServiceImpl bookingService;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private final User owner = new User(1, "owner@email.com", "Owner");
+    private final User booker = new User(2, "user@email.com", "name");
+    private final Item item = new Item(1, "Дрель", "Простая дрель", true, owner);
+
+    @BeforeEach
+    void setup() {
+        bookingService = new BookingServiceImpl(userService, bookingRepository, archivedBookingRepository,
+                itemRepository, outboxService, bookingCounters, bookingOverlapChecker, new BookingMapper(),
+                new UserMapper());
+    }
+
+    @Test
+    public void patchExclusionViolationTest() {
+        Booking booking = new Booking(1, start, start.plusDays(1), item, booker, Status.WAITING, owner.getId(), 0);
+        when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(bookingRepository.findStatusById(1L)).thenReturn(Status.WAITING);
+        when(bookingRepository.updateStatus(List.of(1L), Status.APPROVED, Status.WAITING))
+                .thenThrow(new DataIntegrityViolationException("ex_bookings_item_approved_period"));
+
+        assertThatThrownBy(() -> bookingService.patch(1, owner.getId(), true))
+                .isInstanceOf(ValidationBookingDtoException.class)
+                .hasMessage("На эти даты вещь c id = " + item.getId() + " уже забронирована другим пользователем");
+        verifyNoInteractions(bookingCounters, outboxService);
+    }
+
+    @Test
+    public void patchBatchExclusionViolationTest() {
+        BookingIntervalView interval = mock(BookingIntervalView.class);
+        when(interval.getId()).thenReturn(1L);
+        when(interval.getItemId()).thenReturn(item.getId());
+        when(interval.getStart()).thenReturn(start);
+        when(interval.getEnd()).thenReturn(start.plusDays(1));
+        when(userService.isExistUser(owner.getId())).thenReturn(true);
+        when(bookingRepository.findIntervalsByCriteria(any())).thenReturn(List.of(interval));
+        when(bookingRepository.updateStatus(anyList(), eq(Status.APPROVED), eq(Status.WAITING)))
+                .thenThrow(new DataIntegrityViolationException("ex_bookings_item_approved_period"));
+
+        assertThatThrownBy(() -> bookingService.patchBatch(owner.getId(), true,
+                BookingDecisionDto.builder().bookingIds(List.of(1L)).build()))
+                .isInstanceOf(ValidationBookingDtoException.class)
+                .hasMessage("На эти даты часть вещей владельца с id = " + owner.getId() +
+                        " уже забронирована другими пользователями");
+        verifyNoInteractions(bookingCounters, outboxService);
+    }
+}
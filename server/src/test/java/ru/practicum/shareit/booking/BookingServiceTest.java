@@ -6,26 +6,39 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
+import ru.practicum.shareit.booking.dto.BookerDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingItemDto;
 import ru.practicum.shareit.booking.enums.State;
 import ru.practicum.shareit.booking.enums.Status;
 import ru.practicum.shareit.booking.exceptions.*;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingCounters;
 import ru.practicum.shareit.booking.services.BookingService;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.exceptions.NoItemException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
 import ru.practicum.shareit.item.services.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.exceptions.NoUserException;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
 import ru.practicum.shareit.user.services.UserService;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -41,9 +54,13 @@ public class BookingServiceTest {
     private final EntityManager entityManager;
 
     private final BookingService bookingService;
+    private final BookingCounters bookingCounters;
     private final ItemService itemService;
     private final UserService userService;
-    private final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0, 1);
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
     private final LocalDateTime finish = start.plusDays(1);
 
     @Test
@@ -64,7 +81,8 @@ public class BookingServiceTest {
 
         Item item = new Item(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true, owner);
 
-        BookingDto bookingDto = new BookingDto(1, start, finish, item, owner, Status.WAITING);
+        BookingDto bookingDto = new BookingDto(1, start, finish, new BookingItemDto(item.getId(), item.getName()),
+                new BookerDto(owner.getId()), Status.WAITING);
 
         bookingService.add(userDto.getId(), addBookingDto);
 
@@ -133,6 +151,106 @@ public class BookingServiceTest {
                 .hasMessageContaining("Вещь с id: 1 сейчас не доступна для бронирования");
     }
 
+    @Test
+    public void addBatchBookingTestIsOk() {
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+        ItemDto secondItemDto = new ItemDto(2, "Лопата", "Простая лопата", true);
+        itemService.add(ownerDto.getId(), secondItemDto);
+
+        bookingService.add(userDto.getId(), new AddBookingDto(2, start.plusDays(5), finish.plusDays(5)));
+        bookingService.patch(1, 1, true);
+
+        List<BookingBatchResultDto> results = bookingService.addBatch(userDto.getId(), List.of(
+                new AddBookingDto(1, start, finish),
+                new AddBookingDto(2, start, finish),
+                new AddBookingDto(1, start.plusHours(1), finish),
+                new AddBookingDto(3, start, finish),
+                new AddBookingDto(2, start.plusDays(5), finish.plusDays(5))));
+
+        assertThat(results.size(), equalTo(5));
+        assertThat(results.get(0).getBooking().getItem().getId(), equalTo(1L));
+        assertThat(results.get(1).getBooking().getItem().getId(), equalTo(2L));
+        assertThat(results.get(2).getError(), equalTo("Бронирование пересекается с бронированием 0" +
+                " этого же пакета для вещи с id = 1"));
+        assertThat(results.get(3).getError(), equalTo("Вещь с id: 3 не содержится в базе"));
+        assertThat(results.get(4).getError(), equalTo("На эти даты вещь c id = 2" +
+                " уже забронирована другим пользователем"));
+
+        TypedQuery<Booking> query = entityManager.createQuery("SELECT b FROM Booking b WHERE b.id = :id", Booking.class);
+        Booking booking = query.setParameter("id", results.get(1).getBooking().getId()).getSingleResult();
+
+        assertThat(booking.getStart(), equalTo(start));
+        assertThat(booking.getBooker().getId(), equalTo(2L));
+        assertThat(booking.getOwnerId(), equalTo(1L));
+        assertThat(booking.getStatus(), equalTo(Status.WAITING));
+    }
+
+    @Test
+    public void patchBatchApproveByItemTestIsOk() {
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start.plusHours(1), finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, finish, finish.plusDays(1)));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, finish.plusDays(5), finish.plusDays(6)));
+
+        BookingDecisionResultDto result = bookingService.patchBatch(1, true, BookingDecisionDto.builder()
+                .itemId(1L)
+                .end(finish.plusDays(1))
+                .build());
+
+        assertThat(result.getStatus(), equalTo(Status.APPROVED));
+        assertThat(result.getChanged(), equalTo(List.of(1L, 3L)));
+        assertThat(result.getSkipped(), equalTo(List.of(2L)));
+        assertThat(entityManager.find(Booking.class, 1L).getStatus(), equalTo(Status.APPROVED));
+        assertThat(entityManager.find(Booking.class, 2L).getStatus(), equalTo(Status.WAITING));
+        assertThat(entityManager.find(Booking.class, 4L).getStatus(), equalTo(Status.WAITING));
+
+        assertThatThrownBy(() -> {
+            bookingService.add(userDto.getId(), new AddBookingDto(1, start.plusHours(2), finish));
+        }).isInstanceOf(ValidationBookingDtoException.class);
+    }
+
+    @Test
+    public void patchBatchRejectByIdsTestIsOk() {
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+        ItemDto userItemDto = new ItemDto(2, "Лопата", "Простая лопата", true);
+        itemService.add(userDto.getId(), userItemDto);
+
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, finish, finish.plusDays(1)));
+        bookingService.add(ownerDto.getId(), new AddBookingDto(2, start, finish));
+        bookingService.patch(2, 1, true);
+
+        BookingDecisionResultDto result = bookingService.patchBatch(1, false, BookingDecisionDto.builder()
+                .bookingIds(List.of(1L, 2L, 3L, 4L))
+                .build());
+
+        assertThat(result.getStatus(), equalTo(Status.REJECTED));
+        assertThat(result.getChanged(), equalTo(List.of(1L)));
+        assertThat(result.getSkipped(), equalTo(List.of(2L, 3L, 4L)));
+        assertThat(entityManager.find(Booking.class, 1L).getStatus(), equalTo(Status.REJECTED));
+        assertThat(entityManager.find(Booking.class, 3L).getStatus(), equalTo(Status.WAITING));
+    }
+
     @Test
     public void patchFalseBookingTestIsOk() {
         AddBookingDto addBookingDto = new AddBookingDto(1, start, finish);
@@ -151,7 +269,8 @@ public class BookingServiceTest {
 
         Item item = new Item(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true, owner);
 
-        BookingDto bookingDto = new BookingDto(1, start, finish, item, owner, Status.WAITING);
+        BookingDto bookingDto = new BookingDto(1, start, finish, new BookingItemDto(item.getId(), item.getName()),
+                new BookerDto(owner.getId()), Status.WAITING);
 
         bookingService.add(userDto.getId(), addBookingDto);
 
@@ -187,7 +306,8 @@ public class BookingServiceTest {
 
         Item item = new Item(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true, owner);
 
-        BookingDto bookingDto = new BookingDto(1, start, finish, item, owner, Status.WAITING);
+        BookingDto bookingDto = new BookingDto(1, start, finish, new BookingItemDto(item.getId(), item.getName()),
+                new BookerDto(owner.getId()), Status.WAITING);
 
         bookingService.add(userDto.getId(), addBookingDto);
 
@@ -227,6 +347,57 @@ public class BookingServiceTest {
                 .hasMessageContaining("Владелец вещи с id= 1 уже подтвердил брованирование с id= 1");
     }
 
+    @Test
+    public void addBookingIntersectsApprovedBookingTest() {
+        AddBookingDto addBookingDto = new AddBookingDto(1, start, finish);
+
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+
+        bookingService.add(userDto.getId(), addBookingDto);
+        bookingService.patch(1, 1, true);
+
+        assertThatThrownBy(() -> {
+            bookingService.add(userDto.getId(), new AddBookingDto(1, start.plusHours(1), finish.plusHours(1)));
+        }).isInstanceOf(ValidationBookingDtoException.class)
+                .hasMessageContaining("Дата начала бронирования пересекается с уже подтвержденным бронированием");
+
+        assertThatThrownBy(() -> {
+            bookingService.add(userDto.getId(), new AddBookingDto(1, start.minusHours(1), finish.minusHours(1)));
+        }).isInstanceOf(ValidationBookingDtoException.class)
+                .hasMessageContaining("Дата окончания бронирования пересекается с уже подтвержденным бронированием");
+
+        assertThatThrownBy(() -> {
+            bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+        }).isInstanceOf(ValidationBookingDtoException.class)
+                .hasMessageContaining("На эти даты вещь c id = 1 уже забронирована другим пользователем");
+    }
+
+    @Test
+    public void addBookingAdjacentToApprovedBookingTestIsOk() {
+        AddBookingDto addBookingDto = new AddBookingDto(1, start, finish);
+
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+
+        bookingService.add(userDto.getId(), addBookingDto);
+        bookingService.patch(1, 1, true);
+
+        BookingDto next = bookingService.add(userDto.getId(), new AddBookingDto(1, finish, finish.plusDays(1)));
+
+        assertThat(next.getStatus(), equalTo(Status.WAITING));
+    }
+
     @Test
     public void patchFalseBookingTestId() {
         AddBookingDto addBookingDto = new AddBookingDto(1, start, finish);
@@ -400,7 +571,8 @@ public class BookingServiceTest {
 
         Item item = new Item(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true, owner);
 
-        BookingDto bookingDto = new BookingDto(1, start, finish, item, owner, Status.WAITING);
+        BookingDto bookingDto = new BookingDto(1, start, finish, new BookingItemDto(item.getId(), item.getName()),
+                new BookerDto(owner.getId()), Status.WAITING);
 
         bookingService.add(userDto.getId(), addBookingDto);
 
@@ -569,4 +741,114 @@ public class BookingServiceTest {
         }).isInstanceOf(NoBookingOwnerException.class)
                 .hasMessageContaining("У владельца с id: 2 не забронирована ни одна вещь");
     }
+
+    @Test
+    public void getAllByIdUserAfterPagesWithoutGapsTest() {
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        ItemDto itemDto = new ItemDto(1, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
+        itemService.add(ownerDto.getId(), itemDto);
+
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start.plusHours(1), finish));
+        bookingService.add(userDto.getId(), new AddBookingDto(1, start, finish));
+
+        CursorPage<BookingDto> firstPage = bookingService.getAllByIdUserAfter(2, State.ALL, null, 2);
+        CursorPage<BookingDto> secondPage = bookingService.getAllByIdUserAfter(2, State.ALL,
+                Cursor.decode(firstPage.getNextCursor()), 2);
+
+        List<BookingDto> expected = bookingService.getAllByIdUser(2, State.ALL, null, null);
+        assertThat(firstPage.getContent().get(0).getId(), equalTo(expected.get(0).getId()));
+        assertThat(firstPage.getContent().get(1).getId(), equalTo(expected.get(1).getId()));
+        assertThat(secondPage.getContent().get(0).getId(), equalTo(expected.get(2).getId()));
+        assertThat(secondPage.getContent().get(1).getId(), equalTo(expected.get(3).getId()));
+        assertThat(secondPage.getNextCursor(), equalTo(null));
+    }
+
+    @Test
+    public void getStatsCountsBookingsByStateTest() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+
+        long approvedId = bookingService.add(bookerId, new AddBookingDto(itemId, start, start.plusHours(1))).getId();
+        long rejectedId = bookingService.add(bookerId,
+                new AddBookingDto(itemId, start.plusDays(1), start.plusDays(1).plusHours(1))).getId();
+        bookingService.add(bookerId, new AddBookingDto(itemId, start.plusDays(2), start.plusDays(2).plusHours(1)));
+        bookingService.patch(approvedId, ownerId, true);
+        bookingService.patch(rejectedId, ownerId, false);
+
+        Map<State, Long> expected = Map.of(State.ALL, 3L, State.CURRENT, 0L, State.PAST, 0L, State.FUTURE, 3L,
+                State.WAITING, 1L, State.REJECTED, 1L);
+        assertThat(bookingService.getStats(bookerId, false), equalTo(expected));
+        assertThat(bookingService.getStats(ownerId, true), equalTo(expected));
+        assertThat(bookingService.getStats(ownerId, false).get(State.ALL), equalTo(0L));
+
+        assertThatThrownBy(() -> bookingService.getStats(100, false)).isInstanceOf(NoUserException.class);
+    }
+
+    @Test
+    public void getStatsAfterBatchAndUserDeletionTest() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+        long otherBookerId = userService.add(new UserDto(0, "other@email.com", "other")).getId();
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+
+        bookingService.addBatch(bookerId, List.of(new AddBookingDto(itemId, start, start.plusHours(1)),
+                new AddBookingDto(itemId, start.plusDays(1), start.plusDays(1).plusHours(1))));
+        bookingService.add(otherBookerId, new AddBookingDto(itemId, start.plusDays(2), start.plusDays(3)));
+        bookingService.patchBatch(ownerId, true, new BookingDecisionDto(null, itemId, null, null));
+
+        Map<State, Long> stats = bookingService.getStats(ownerId, true);
+        assertThat(stats.get(State.ALL), equalTo(3L));
+        assertThat(stats.get(State.WAITING), equalTo(0L));
+        assertThat(stats.get(State.FUTURE), equalTo(3L));
+
+        userService.remove(bookerId);
+
+        stats = bookingService.getStats(ownerId, true);
+        assertThat(stats.get(State.ALL), equalTo(1L));
+        assertThat(stats.get(State.FUTURE), equalTo(1L));
+        assertThat(bookingService.getStats(otherBookerId, false).get(State.ALL), equalTo(1L));
+    }
+
+    @Test
+    public void getStatsMovesBookingsBetweenTimeStatesTest() throws InterruptedException {
+        User owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        User booker = userRepository.save(new User(0, "user@email.com", "name"));
+        Item item = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+        LocalDateTime now = LocalDateTime.now();
+        saveBooking(item, booker, now.minusDays(2), now.minusDays(1), Status.APPROVED);
+        saveBooking(item, booker, now.minusHours(1), now.plusSeconds(1), Status.APPROVED);
+        saveBooking(item, booker, now.plusDays(1), now.plusDays(2), Status.WAITING);
+
+        Map<State, Long> stats = bookingService.getStats(booker.getId(), false);
+        assertThat(stats.get(State.ALL), equalTo(3L));
+        assertThat(stats.get(State.PAST), equalTo(1L));
+        assertThat(stats.get(State.CURRENT), equalTo(1L));
+        assertThat(stats.get(State.FUTURE), equalTo(1L));
+        assertThat(stats.get(State.WAITING), equalTo(1L));
+
+        Thread.sleep(1100);
+
+        stats = bookingService.getStats(booker.getId(), false);
+        assertThat(stats.get(State.PAST), equalTo(2L));
+        assertThat(stats.get(State.CURRENT), equalTo(0L));
+    }
+
+    private void saveBooking(Item item, User booker, LocalDateTime start, LocalDateTime end, Status status) {
+        Booking booking = bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(end)
+                .item(item)
+                .booker(booker)
+                .status(status)
+                .ownerId(item.getOwner().getId())
+                .build());
+        bookingCounters.created(List.of(booking));
+    }
 }
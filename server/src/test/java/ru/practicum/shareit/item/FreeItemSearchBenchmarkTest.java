@@ -0,0 +1,131 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+// Сравнивает p50/p99 поиска вещей, свободных в заданный период, на каталоге с большим числом подтвержденных
+// бронирований у каждой вещи: прежний сценарий клиента - текстовый поиск и проверка каждой найденной вещи
+// отдельным запросом, новый - поиск с периодом, который исключает занятые вещи подзапросом NOT EXISTS.
+@Slf4j
+@SpringBootTest(properties = "db.name=test", webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FreeItemSearchBenchmarkTest {
+    private static final int ITEMS = 300;
+    private static final int BOOKINGS_PER_ITEM = 100;
+    private static final int PAGE = 20;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ItemService itemService;
+    private final UserService userService;
+    private final BookingRepository bookingRepository;
+
+    private final LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1);
+    private final LocalDateTime start = base.plusDays(BOOKINGS_PER_ITEM / 2);
+    private final LocalDateTime end = start.plusHours(2);
+
+    // Каждая третья вещь занята в искомый период, бронирования остальных сдвинуты на несколько часов.
+    @BeforeEach
+    void setup() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+
+        List<Object[]> bookings = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель " + i, "Инструмент", true)).getId();
+            int shift = i % 3 == 0 ? 0 : 5;
+            for (int k = 0; k < BOOKINGS_PER_ITEM; k++) {
+                LocalDateTime bookingStart = base.plusDays(k).plusHours(shift);
+                bookings.add(new Object[]{Timestamp.valueOf(bookingStart), Timestamp.valueOf(bookingStart.plusHours(1)),
+                        itemId, bookerId, Status.APPROVED.name(), ownerId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status, owner_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", bookings);
+    }
+
+    @Test
+    public void freeItemSearchLatencyTest() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Supplier<List<Long>> legacy = () -> transactionTemplate.execute(status -> legacySearchFree());
+        Supplier<List<Long>> indexed = () -> itemService.search("дрель", 0, PAGE, false,
+                        new ItemSearchFilter(null, null, start, end)).stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+
+        assertThat(indexed.get(), hasSize(PAGE));
+        assertThat(indexed.get(), equalTo(legacy.get()));
+
+        long[] legacyNanos = measure(legacy);
+        long[] indexedNanos = measure(indexed);
+
+        log.info("Свободные вещи поиском и проверкой каждой вещи запросом: p50 {} мкс, p99 {} мкс",
+                percentile(legacyNanos, 50) / 1000, percentile(legacyNanos, 99) / 1000);
+        log.info("Свободные вещи поиском с периодом в одном запросе: p50 {} мкс, p99 {} мкс",
+                percentile(indexedNanos, 50) / 1000, percentile(indexedNanos, 99) / 1000);
+    }
+
+    // Прежний сценарий клиента: найти вещи по тексту и проверять их по очереди, пока не наберется страница.
+    private List<Long> legacySearchFree() {
+        List<Long> free = new ArrayList<>();
+        for (ItemDto itemDto : itemService.search("дрель", null, null)) {
+            if (!bookingRepository.existsIntersection(itemDto.getId(), start, end, Status.APPROVED)) {
+                free.add(itemDto.getId());
+                if (free.size() == PAGE) {
+                    break;
+                }
+            }
+        }
+        return free;
+    }
+
+    private static long[] measure(Supplier<List<Long>> search) {
+        for (int i = 0; i < WARMUP; i++) {
+            search.get();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long startedAt = System.nanoTime();
+            search.get();
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.CursorPage;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.search.InMemoryItemSearchEngine;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.search.engine=memory"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class InMemoryItemSearchEngineTest {
+    private final InMemoryItemSearchEngine inMemoryItemSearchEngine;
+    private final ItemService itemService;
+    private final UserService userService;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+
+    private long ownerId;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+    }
+
+    @Test
+    public void searchMatchesAllWordsAndRanksNameMatchesFirstTest() {
+        itemService.add(ownerId, new ItemDto(0, "Отвертка", "Подходит к любой дрели Makita", true));
+        itemService.add(ownerId, new ItemDto(0, "Дрель Makita", "Ударная", true));
+        itemService.add(ownerId, new ItemDto(0, "Дрель Bosch", "Ударная", true));
+        itemService.add(ownerId, new ItemDto(0, "Дрель Makita 2", "Сломана", false));
+
+        assertThat(names(itemService.search("дрел makita", null, null)), contains("Дрель Makita", "Отвертка"));
+        assertThat(names(itemService.search("ДРЕЛЬ", 1, 1)), contains("Дрель Bosch"));
+        assertThat(names(itemService.search("дрель perforator", null, null)), empty());
+
+        CursorPage<ItemDto> page = itemService.searchAfter("ударная", null, 1);
+        assertThat(names(page.getContent()), contains("Дрель Makita"));
+        assertThat(page.getNextCursor() != null, equalTo(true));
+    }
+
+    @Test
+    public void patchAndOwnerRemovalUpdateIndexTest() {
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая", true)).getId();
+        long otherOwnerId = userService.add(new UserDto(0, "other@email.com", "Other")).getId();
+        itemService.add(otherOwnerId, new ItemDto(0, "Дрель соседа", "Простая", true));
+
+        itemService.patch(ownerId, itemId, new ItemDto(itemId, "Перфоратор", null, null));
+
+        assertThat(names(itemService.search("перфоратор", null, null)), contains("Перфоратор"));
+        assertThat(names(itemService.search("дрель", null, null)), contains("Дрель соседа"));
+
+        itemService.patch(ownerId, itemId, new ItemDto(itemId, null, null, false));
+        assertThat(names(itemService.search("перфоратор", null, null)), empty());
+
+        userService.remove(otherOwnerId);
+        assertThat(names(itemService.search("дрель", null, null)), empty());
+    }
+
+    @Test
+    public void searchIntersectsTextMatchesWithFiltersTest() {
+        long otherOwnerId = userService.add(new UserDto(0, "other@email.com", "Other")).getId();
+        for (int i = 0; i < 5; i++) {
+            itemService.add(ownerId, new ItemDto(0, "Дрель " + i, "Простая", true));
+        }
+        itemService.add(otherOwnerId, new ItemDto(0, "Дрель соседа", "Простая", true));
+        itemService.add(otherOwnerId, new ItemDto(0, "Лопата соседа", "Штыковая", true));
+
+        assertThat(names(itemService.search("дрель", null, null, false, new ItemSearchFilter(otherOwnerId, null))),
+                contains("Дрель соседа"));
+        assertThat(names(itemService.search("соседа", null, null, false, new ItemSearchFilter(null, false))),
+                contains("Дрель соседа", "Лопата соседа"));
+        assertThat(names(itemService.searchAfter("дрель", null, 2, false, new ItemSearchFilter(ownerId, false))
+                .getContent()), contains("Дрель 0", "Дрель 1"));
+        assertThat(names(itemService.search("дрель", null, null, false, new ItemSearchFilter(null, true))), empty());
+    }
+
+    @Test
+    public void searchFreeInPeriodExcludesBookedItemsTest() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+        User booker = userRepository.save(new User(0, "booker@email.com", "booker"));
+        long busyId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая", true)).getId();
+        itemService.add(ownerId, new ItemDto(0, "Дрель ударная", "Мощная", true));
+        bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(start.plusHours(1))
+                .item(itemRepository.findById(busyId).orElseThrow())
+                .booker(booker)
+                .status(Status.APPROVED)
+                .ownerId(ownerId)
+                .build());
+
+        ItemSearchFilter period = new ItemSearchFilter(null, null, start, start.plusHours(2));
+        assertThat(names(itemService.search("дрель", null, null, false, period)), contains("Дрель ударная"));
+        assertThat(names(itemService.searchAfter("дрель", null, 5, false, period).getContent()),
+                contains("Дрель ударная"));
+        assertThat(names(itemService.search("дрель", null, null, false,
+                new ItemSearchFilter(null, null, start.plusHours(1), start.plusHours(2)))),
+                contains("Дрель", "Дрель ударная"));
+    }
+
+    @Test
+    public void rebuildLoadsItemsFromRepositoryTest() {
+        User owner = new User(ownerId, "owner@email.com", "Owner");
+        itemRepository.save(new Item(0, "Лопата", "Штыковая", true, owner));
+
+        assertThat(names(itemService.search("лопата", null, null)), empty());
+
+        inMemoryItemSearchEngine.rebuild();
+
+        assertThat(names(itemService.search("лопата", null, null)), contains("Лопата"));
+    }
+
+    private static List<String> names(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getName).collect(Collectors.toList());
+    }
+}
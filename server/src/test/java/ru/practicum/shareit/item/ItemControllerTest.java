@@ -11,8 +11,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import ru.practicum.shareit.item.controllers.ItemController;
 import ru.practicum.shareit.item.dto.AddCommentDto;
+import ru.practicum.shareit.item.dto.AvailabilityIntervalDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 import ru.practicum.shareit.item.exceptions.EmptyCommentException;
 import ru.practicum.shareit.item.exceptions.ValidationItemDtoException;
 import ru.practicum.shareit.item.services.ItemService;
@@ -26,6 +29,7 @@ import java.util.List;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -210,6 +214,35 @@ public class ItemControllerTest {
         verify(itemService).getById(anyLong(), anyLong());
     }
 
+    @Test
+    public void getAvailabilityTestIsOk() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0, 1);
+        LocalDateTime to = from.plusDays(3);
+        when(itemService.getAvailability(1L, from, to, true)).thenReturn(new ItemAvailabilityDto(1L, from, to,
+                List.of(new AvailabilityIntervalDto(from, from.plusDays(1))),
+                List.of(new AvailabilityIntervalDto(from.plusDays(1), to))));
+
+        mockMvc.perform(get("/items/{itemId}/availability", 1L)
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("includeWaiting", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.busy", hasSize(1)))
+                .andExpect(jsonPath("$.free[0].start", is(from.plusDays(1).toString())));
+
+        verify(itemService).getAvailability(1L, from, to, true);
+    }
+
+    @Test
+    public void getAvailabilityWrongPeriodTest() throws Exception {
+        mockMvc.perform(get("/items/{itemId}/availability", 1L)
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("from", "2030-01-02T00:00:00")
+                        .param("to", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getAllItemsWithoutPaginationTest() throws Exception {
         when(itemService.getAllByIdUser(1L, null, null))
@@ -229,7 +262,7 @@ public class ItemControllerTest {
 
     @Test
     public void searchWithoutPaginationTest() throws Exception {
-        when(itemService.search("вещь", null, null))
+        when(itemService.search("вещь", null, null, false, new ItemSearchFilter()))
                 .thenReturn(List.of(itemDto));
 
         mockMvc.perform(get("/items/search")
@@ -241,12 +274,12 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$[0].description", is(itemDto.getDescription())))
                 .andExpect(jsonPath("$[0].available", is(itemDto.getAvailable())));
 
-        verify(itemService).search("вещь", null, null);
+        verify(itemService).search("вещь", null, null, false, new ItemSearchFilter());
     }
 
     @Test
     public void emptySearchWithPaginationTest() throws Exception {
-        when(itemService.search(" ", 0, 2))
+        when(itemService.search(" ", 0, 2, false, new ItemSearchFilter()))
                 .thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/items/search")
@@ -256,6 +289,95 @@ public class ItemControllerTest {
 
     }
 
+    @Test
+    public void fuzzySearchTest() throws Exception {
+        when(itemService.search("дрэль", null, null, true, new ItemSearchFilter()))
+                .thenReturn(List.of(itemDto));
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрэль")
+                        .param("fuzzy", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(itemDto.getId()), Long.class));
+
+        verify(itemService).search("дрэль", null, null, true, new ItemSearchFilter());
+    }
+
+    @Test
+    public void searchWithFiltersTest() throws Exception {
+        ItemSearchFilter filter = new ItemSearchFilter(2L, true);
+        when(itemService.search("дрель", null, null, false, filter))
+                .thenReturn(List.of(itemDto));
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель")
+                        .param("ownerId", "2")
+                        .param("withRequest", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(itemDto.getId()), Long.class));
+
+        verify(itemService).search("дрель", null, null, false, filter);
+    }
+
+    @Test
+    public void searchFreeInPeriodTest() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        ItemSearchFilter filter = new ItemSearchFilter(null, null, start, start.plusDays(2));
+        when(itemService.search("дрель", null, null, false, filter))
+                .thenReturn(List.of(itemDto));
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель")
+                        .param("start", "2030-01-01T00:00:00")
+                        .param("end", "2030-01-03T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        verify(itemService).search("дрель", null, null, false, filter);
+    }
+
+    @Test
+    public void searchWithWrongPeriodTest() throws Exception {
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель")
+                        .param("start", "2030-01-03T00:00:00")
+                        .param("end", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель")
+                        .param("start", "2030-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(itemService, never()).search(anyString(), any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    public void suggestTest() throws Exception {
+        when(itemService.suggest("дре", 10))
+                .thenReturn(List.of("Дрель"));
+
+        mockMvc.perform(get("/items/suggest")
+                        .param("prefix", "дре"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0]", is("Дрель")));
+
+        verify(itemService).suggest("дре", 10);
+    }
+
+    @Test
+    public void suggestBlankPrefixTest() throws Exception {
+        mockMvc.perform(get("/items/suggest")
+                        .param("prefix", " "))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(itemService, never()).suggest(anyString(), anyInt());
+    }
+
     @Test
     public void addCommentTestIsOk() throws Exception {
         AddCommentDto addCommentDto = new AddCommentDto("Ненужная вещь");
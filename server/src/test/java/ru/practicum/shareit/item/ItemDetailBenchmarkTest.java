@@ -0,0 +1,170 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.CommentMapper;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.LastBooking;
+import ru.practicum.shareit.item.model.NextBooking;
+import ru.practicum.shareit.item.repositories.CommentRepository;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.services.ItemDetailCache;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.services.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+import ru.practicum.shareit.user.services.UserService;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+// Сравнивает p50/p99 времени чтения карточки вещи владельцем: прежний путь загружал вещь, отзывы
+// и два бронирования отдельными запросами с EAGER-связями, новый читает карточку вместе с бронированиями
+// одним SQL-запросом. Кэш карточек сбрасывается перед каждым чтением, чтобы мерить именно запрос;
+// чтение с попаданием в кэш (карточка из памяти и отдельный запрос бронирований) меряется отдельно.
+@Slf4j
+@SpringBootTest(properties = "db.name=test", webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ItemDetailBenchmarkTest {
+    private static final int BOOKERS = 20;
+    private static final int BOOKINGS = 200;
+    private static final int COMMENTS = 30;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 300;
+
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ItemService itemService;
+    private final ItemDetailCache itemDetailCache;
+    private final ItemRequestService itemRequestService;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final UserRepository userRepository;
+    private final ItemMapper itemMapper;
+    private final CommentMapper commentMapper;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private long ownerId;
+    private long itemId;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        List<Long> bookerIds = new ArrayList<>();
+        for (int i = 0; i < BOOKERS; i++) {
+            bookerIds.add(userService.add(new UserDto(0, "user" + i + "@email.com", "name" + i)).getId());
+        }
+
+        long requestId = itemRequestService.add(bookerIds.get(0), new ItemRequestDto("Нужна дрель")).getId();
+        ItemDto itemDto = new ItemDto(0, "Дрель", "Простая дрель для домашнего ремонта", true);
+        itemDto.setRequestId(requestId);
+        itemId = itemService.add(ownerId, itemDto).getId();
+
+        for (int i = 0; i < BOOKERS; i++) {
+            List<AddBookingDto> addBookingDtoList = new ArrayList<>();
+            for (int j = i; j < BOOKINGS; j += BOOKERS) {
+                addBookingDtoList.add(new AddBookingDto(itemId, start.plusDays(j), start.plusDays(j).plusHours(1)));
+            }
+            bookingService.addBatch(bookerIds.get(i), addBookingDtoList);
+        }
+
+        Item item = itemRepository.findById(itemId).orElseThrow();
+        for (int i = 0; i < COMMENTS; i++) {
+            User author = userRepository.findById(bookerIds.get(i % BOOKERS)).orElseThrow();
+            commentRepository.save(new Comment("Отзыв №" + i, author, item, start.minusDays(COMMENTS - i)));
+        }
+    }
+
+    @Test
+    public void itemDetailLatencyTest() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        Supplier<ItemDto> legacy = () -> {
+            ItemDto itemDto = transactionTemplate.execute(status -> legacyGetById());
+            entityManager.clear();
+            return itemDto;
+        };
+        Supplier<ItemDto> single = () -> {
+            itemDetailCache.invalidate(itemId);
+            return itemService.getById(itemId, ownerId);
+        };
+        Supplier<ItemDto> cached = () -> itemService.getById(itemId, ownerId);
+
+        assertThat(single.get(), equalTo(legacy.get()));
+        assertThat(cached.get(), equalTo(legacy.get()));
+
+        long[] legacyNanos = measure(legacy);
+        long[] singleNanos = measure(single);
+        long[] cachedNanos = measure(cached);
+
+        log.info("Карточка вещи отдельными запросами: p50 {} мкс, p99 {} мкс",
+                percentile(legacyNanos, 50) / 1000, percentile(legacyNanos, 99) / 1000);
+        log.info("Карточка вещи с бронированиями одним запросом без кэша: p50 {} мкс, p99 {} мкс",
+                percentile(singleNanos, 50) / 1000, percentile(singleNanos, 99) / 1000);
+        log.info("Карточка вещи из кэша и бронирования отдельным запросом: p50 {} мкс, p99 {} мкс",
+                percentile(cachedNanos, 50) / 1000, percentile(cachedNanos, 99) / 1000);
+    }
+
+    // Повторяет прежнюю реализацию ItemServiceImpl.getById для владельца вещи.
+    private ItemDto legacyGetById() {
+        Item item = itemRepository.findById(itemId).orElseThrow();
+        List<CommentDto> comments = commentRepository.findCommentsByItemId(itemId).stream()
+                .map(commentMapper::toCommentDto)
+                .collect(Collectors.toList());
+        Booking bookingNext = bookingRepository.findFirstBookingByItemIdAndStartAfterOrderByStartAsc(itemId,
+                LocalDateTime.now());
+        Booking bookingLast = bookingRepository.findTopBookingByItemIdOrderByStartAsc(itemId);
+        return itemMapper.toItemDtoWithBookingWithComments(item,
+                new LastBooking(bookingLast.getId(), bookingLast.getBooker().getId()),
+                new NextBooking(bookingNext.getId(), bookingNext.getBooker().getId()),
+                comments);
+    }
+
+    private static long[] measure(Supplier<ItemDto> read) {
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long startedAt = System.nanoTime();
+            read.get();
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.index.ItemOwnerIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.services.UserService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest(properties = {"db.name=test", "shareit.items.owner-index.page-size=2"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ItemOwnerIndexTest {
+    private static final int OWNERS = 7;
+    private static final int ITEMS = 20000;
+
+    private final ItemOwnerIndex itemOwnerIndex;
+    private final ItemService itemService;
+    private final UserService userService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Test
+    public void indexTracksOwnersAndCountsTest() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long otherOwnerId = userService.add(new UserDto(0, "other@email.com", "Other")).getId();
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая", true)).getId();
+        itemService.add(ownerId, new ItemDto(0, "Пила", "Ручная", true));
+        long otherItemId = itemService.add(otherOwnerId, new ItemDto(0, "Лопата", "Штыковая", true)).getId();
+
+        assertThat(itemOwnerIndex.ownerOf(itemId), equalTo(ownerId));
+        assertThat(itemOwnerIndex.ownerOf(otherItemId), equalTo(otherOwnerId));
+        assertThat(itemOwnerIndex.ownerOf(999L), equalTo(ItemOwnerIndex.NO_OWNER));
+        assertThat(itemOwnerIndex.countItems(ownerId), equalTo(2L));
+
+        userService.remove(ownerId);
+
+        assertThat(itemOwnerIndex.countItems(ownerId), equalTo(0L));
+        assertThat(itemOwnerIndex.hasItems(ownerId), equalTo(false));
+        assertThat(itemOwnerIndex.ownerOf(itemId), equalTo(ItemOwnerIndex.NO_OWNER));
+        assertThat(itemOwnerIndex.ownerOf(otherItemId), equalTo(otherOwnerId));
+        assertThat(itemOwnerIndex.countItems(otherOwnerId), equalTo(1L));
+    }
+
+    // Перестроение читает вещи порциями по два: последняя порция неполная, вещи из всех порций попадают в индекс.
+    @Test
+    public void rebuildReadsItemsByPagesTest() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long otherOwnerId = userService.add(new UserDto(0, "other@email.com", "Other")).getId();
+        long firstItemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая", true)).getId();
+        itemService.add(ownerId, new ItemDto(0, "Пила", "Ручная", true));
+        itemService.add(otherOwnerId, new ItemDto(0, "Лопата", "Штыковая", true));
+        itemService.add(ownerId, new ItemDto(0, "Молоток", "Слесарный", true));
+        long lastItemId = itemService.add(otherOwnerId, new ItemDto(0, "Грабли", "Веерные", true)).getId();
+
+        itemOwnerIndex.rebuild();
+
+        assertThat(itemOwnerIndex.countItems(ownerId), equalTo(3L));
+        assertThat(itemOwnerIndex.countItems(otherOwnerId), equalTo(2L));
+        assertThat(itemOwnerIndex.ownerOf(firstItemId), equalTo(ownerId));
+        assertThat(itemOwnerIndex.ownerOf(lastItemId), equalTo(otherOwnerId));
+    }
+
+    // Откат транзакции удаляет вещи по одной, что проверяет удаление из хеш-таблицы со сдвигом цепочек.
+    @Test
+    public void rollbackRemovesIndexedItemsTest() {
+        long ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая", true)).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 1; i <= ITEMS; i++) {
+                itemOwnerIndex.index(new Item(itemId + i, "Вещь", "Описание", true,
+                        new User(1000L + i % OWNERS, "user@email.com", "name")));
+            }
+            for (int i = 1; i <= ITEMS; i++) {
+                assertThat(itemOwnerIndex.ownerOf(itemId + i), equalTo(1000L + i % OWNERS));
+            }
+            assertThat(itemOwnerIndex.countItems(1000L), equalTo((long) ITEMS / OWNERS));
+            status.setRollbackOnly();
+        });
+
+        for (int i = 0; i < OWNERS; i++) {
+            assertThat(itemOwnerIndex.countItems(1000L + i), equalTo(0L));
+        }
+        assertThat(itemOwnerIndex.ownerOf(itemId + ITEMS / 2), equalTo(ItemOwnerIndex.NO_OWNER));
+        assertThat(itemOwnerIndex.ownerOf(itemId), equalTo(ownerId));
+        assertThat(itemOwnerIndex.countItems(ownerId), equalTo(1L));
+    }
+}
@@ -15,6 +15,7 @@ import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repositories.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 @DataJpaTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -109,6 +110,8 @@ public class ItemRepositoryTest {
         itemRepository.save(secondItem);
 
         Assertions.assertEquals(secondUser.getId(), itemRepository.findOwnerByIdItem(secondItem.getId()));
+        Assertions.assertEquals(Optional.of(firstUser.getId()), itemRepository.findOwnerIdById(firstItem.getId()));
+        Assertions.assertEquals(Optional.empty(), itemRepository.findOwnerIdById(secondItem.getId() + 1));
     }
 
     @Test
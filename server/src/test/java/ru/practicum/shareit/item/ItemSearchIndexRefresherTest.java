@@ -0,0 +1,71 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndexRefresher;
+import ru.practicum.shareit.item.search.ItemTermDictionary;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.search.refresh.enabled=true", "shareit.search.refresh.interval=PT1H"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ItemSearchIndexRefresherTest {
+    private final ItemSearchIndexRefresher itemSearchIndexRefresher;
+    private final ItemTermDictionary itemTermDictionary;
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    // Запись в базу в обход сервиса изображает изменение, сделанное другим экземпляром приложения.
+    @Test
+    public void refreshPicksUpItemsChangedOnOtherReplicasTest() {
+        User owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        itemService.add(owner.getId(), new ItemDto(0L, "Лопата", "Штыковая", true));
+        Item drill = itemRepository.saveAndFlush(new Item(0, "Дрель", "Простая дрель", true, owner));
+
+        assertThat(itemService.suggest("дре", 10).size(), equalTo(0));
+
+        itemSearchIndexRefresher.refresh();
+
+        assertThat(itemService.suggest("дре", 10), equalTo(List.of("Дрель")));
+        assertThat(itemService.suggest("лоп", 10), equalTo(List.of("Лопата")));
+
+        drill.setName("Домкрат");
+        itemRepository.saveAndFlush(drill);
+        itemSearchIndexRefresher.refresh();
+
+        assertThat(itemService.suggest("дре", 10).size(), equalTo(0));
+        assertThat(itemService.suggest("дом", 10), equalTo(List.of("Домкрат")));
+    }
+
+    @Test
+    public void refreshStopsCorrectingWordsAddedOnOtherReplicasTest() {
+        User owner = userRepository.save(new User(0, "owner@email.com", "Owner"));
+        itemService.add(owner.getId(), new ItemDto(0L, "Дрель", "Простая", true));
+        itemRepository.saveAndFlush(new Item(0, "Дрели", "Набор", true, owner));
+
+        assertThat(itemTermDictionary.correct("дрели"), equalTo("дрель"));
+
+        itemSearchIndexRefresher.refresh();
+
+        assertThat(itemTermDictionary.correct("дрели"), equalTo("дрели"));
+        assertThat(itemTermDictionary.correct("набр"), equalTo("набор"));
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,32 +8,50 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.enums.Status;
+import ru.practicum.shareit.booking.exceptions.IncorrectParameterException;
+import ru.practicum.shareit.booking.exceptions.ValidationBookingDtoException;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repositories.BookingRepository;
 import ru.practicum.shareit.booking.services.BookingService;
 import ru.practicum.shareit.item.dto.AddCommentDto;
+import ru.practicum.shareit.item.dto.AvailabilityIntervalDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemSearchFilter;
 import ru.practicum.shareit.item.exceptions.CommentFutureException;
 import ru.practicum.shareit.item.exceptions.NoBookingCommentException;
 import ru.practicum.shareit.item.exceptions.NoItemException;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repositories.CommentRepository;
+import ru.practicum.shareit.item.repositories.ItemRepository;
 import ru.practicum.shareit.item.services.ItemService;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.exception.NoItemRequestException;
 import ru.practicum.shareit.request.services.ItemRequestService;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.exceptions.ValidationNotFoundIdUserException;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repositories.UserRepository;
 import ru.practicum.shareit.user.services.UserService;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 
 @Transactional
 @SpringBootTest(
@@ -46,6 +65,11 @@ public class ItemServiceTest {
     private final UserService userService;
     private final BookingService bookingService;
     private final ItemRequestService itemRequestService;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
     private UserDto userDto;
 
     @BeforeEach
@@ -220,6 +244,287 @@ public class ItemServiceTest {
         assertThat(itemDto.getName(), equalTo(itemDtoList.get(0).getName()));
     }
 
+    @Test
+    public void searchItemAfterCursorTestIsOk() {
+        itemService.add(1L, new ItemDto(1L, "Первая вещь", "Описание", true));
+        itemService.add(1L, new ItemDto(2L, "лопата", "смеяться", true));
+        itemService.add(1L, new ItemDto(3L, "Вторая вещь", "Описание", true));
+        itemService.add(1L, new ItemDto(4L, "Третья вещь", "Описание", true));
+
+        CursorPage<ItemDto> firstPage = itemService.searchAfter("Вещь", null, 2);
+        CursorPage<ItemDto> secondPage = itemService.searchAfter("Вещь", Cursor.decode(firstPage.getNextCursor()), 2);
+
+        assertThat(firstPage.getContent().size(), equalTo(2));
+        assertThat(firstPage.getContent().get(1).getName(), equalTo("Вторая вещь"));
+        assertThat(secondPage.getContent().size(), equalTo(1));
+        assertThat(secondPage.getContent().get(0).getName(), equalTo("Третья вещь"));
+        assertThat(secondPage.getNextCursor(), equalTo(null));
+    }
+
+    @Test
+    public void searchRanksNameMatchesFirstAndIgnoresCaseWithPaginationTest() {
+        itemService.add(1L, new ItemDto(1L, "Отвертка", "Крестовая, к ней подходит любая дрель", true));
+        itemService.add(1L, new ItemDto(2L, "Дрель", "Простая", true));
+        itemService.add(1L, new ItemDto(3L, "Дрель ударная", "Мощная", false));
+        itemService.add(1L, new ItemDto(4L, "Лопата", "Штыковая", true));
+
+        List<ItemDto> firstPage = itemService.search("ДРЕЛЬ", 0, 1);
+        List<ItemDto> all = itemService.search("дРеЛь", null, null);
+
+        assertThat(firstPage.size(), equalTo(1));
+        assertThat(firstPage.get(0).getName(), equalTo("Дрель"));
+        assertThat(all.size(), equalTo(2));
+        assertThat(all.get(1).getName(), equalTo("Отвертка"));
+    }
+
+    @Test
+    public void searchShortOrWildcardQueryTest() {
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+
+        assertThat(itemService.search("др", null, null).size(), equalTo(0));
+        assertThat(itemService.searchAfter(" д ", null, 2).getContent().size(), equalTo(0));
+        assertThat(itemService.search("%%%", null, null).size(), equalTo(0));
+        assertThat(itemService.search(" дре ", null, null).size(), equalTo(1));
+    }
+
+    @Test
+    public void fuzzySearchCorrectsTyposTest() {
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+        long itemId = itemService.add(1L, new ItemDto(2L, "Лопата", "Штыковая", true)).getId();
+
+        assertThat(itemService.search("дрэль", null, null).size(), equalTo(0));
+        assertThat(itemService.search("дрэль", null, null, true).get(0).getName(), equalTo("Дрель"));
+        assertThat(itemService.search("штыкавая", null, null, true).get(0).getName(), equalTo("Лопата"));
+
+        itemService.patch(1L, itemId, new ItemDto(itemId, "Шуруповерт", null, null));
+
+        assertThat(itemService.searchAfter("шуруповерд", null, 2, true).getContent().get(0).getName(),
+                equalTo("Шуруповерт"));
+        assertThat(itemService.search("лапата", null, null, true).size(), equalTo(0));
+    }
+
+    @Test
+    public void fuzzySearchWithoutWordsReturnsNothingTest() {
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+        itemService.add(1L, new ItemDto(2L, "Лопата", "Штыковая", true));
+
+        assertThat(itemService.search("!!!", null, null, true).size(), equalTo(0));
+        assertThat(itemService.searchAfter("!!!", null, 5, true).getContent().size(), equalTo(0));
+    }
+
+    @Test
+    public void searchWithFiltersTest() {
+        userService.add(new UserDto(2L, "owner@email.com", "Owner"));
+        itemRequestService.add(2L, new ItemRequestDto(1, "Нужна дрель", null, null));
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+        itemService.add(1L, new ItemDto(2L, "Дрель ударная", "По запросу", true, 1L));
+        itemService.add(2L, new ItemDto(3L, "Дрель соседа", "Простая дрель", true));
+        itemService.add(2L, new ItemDto(4L, "Лопата", "Штыковая", true));
+
+        assertThat(ids(itemService.search("дрель", null, null, false, new ItemSearchFilter(1L, null))),
+                equalTo(List.of(1L, 2L)));
+        assertThat(ids(itemService.search("дрель", null, null, false, new ItemSearchFilter(null, true))),
+                equalTo(List.of(2L)));
+        assertThat(ids(itemService.search("дрель", null, null, false, new ItemSearchFilter(null, false))),
+                equalTo(List.of(1L, 3L)));
+        assertThat(ids(itemService.search("дрель", null, null, false, new ItemSearchFilter(2L, true))),
+                equalTo(List.of()));
+        assertThat(ids(itemService.search("дрель", null, null, false, new ItemSearchFilter(99L, null))),
+                equalTo(List.of()));
+
+        CursorPage<ItemDto> page = itemService.searchAfter("дрель", null, 1, false, new ItemSearchFilter(null, false));
+        assertThat(ids(page.getContent()), equalTo(List.of(1L)));
+        assertThat(ids(itemService.searchAfter("дрель", Cursor.decode(page.getNextCursor()), 1, false,
+                new ItemSearchFilter(null, false)).getContent()), equalTo(List.of(3L)));
+    }
+
+    @Test
+    public void searchFreeInPeriodTest() {
+        userService.add(new UserDto(2L, "booker@email.com", "booker"));
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+        itemService.add(1L, new ItemDto(2L, "Дрель ударная", "Мощная", true));
+        itemService.add(1L, new ItemDto(3L, "Дрель соседа", "Простая", true));
+
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+        bookingService.add(2L, new AddBookingDto(1L, start, start.plusDays(2)));
+        bookingService.patch(1L, 1L, true);
+        bookingService.add(2L, new AddBookingDto(2L, start, start.plusDays(2)));
+
+        ItemSearchFilter overlapping = new ItemSearchFilter(null, null, start.plusDays(1), start.plusDays(3));
+        assertThat(ids(itemService.search("дрель", null, null, false, overlapping)), equalTo(List.of(2L, 3L)));
+        assertThat(ids(itemService.searchAfter("дрель", null, 1, false, overlapping).getContent()),
+                equalTo(List.of(2L)));
+
+        ItemSearchFilter adjacent = new ItemSearchFilter(1L, null, start.plusDays(2), start.plusDays(3));
+        assertThat(ids(itemService.search("дрель", 1, 1, false, adjacent)), equalTo(List.of(2L)));
+
+        assertThatThrownBy(() -> itemService.search("дрель", null, null, false,
+                new ItemSearchFilter(null, null, start, start.plusYears(2))))
+                .isInstanceOf(IncorrectParameterException.class);
+    }
+
+    // Бронирование, записанное в базу другим экземпляром сервиса, учитывается без локальных событий.
+    @Test
+    public void searchFreeInPeriodSeesBookingsWrittenElsewhereTest() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+        User booker = userRepository.save(new User(0, "booker@email.com", "booker"));
+        long busyId = itemService.add(1L, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+        long freeId = itemService.add(1L, new ItemDto(0, "Дрель ударная", "Мощная", true)).getId();
+        saveBooking(itemRepository.findById(busyId).orElseThrow(), booker, start);
+
+        ItemSearchFilter period = new ItemSearchFilter(null, null, start, start.plusHours(2));
+        assertThat(ids(itemService.search("дрель", null, null, false, period)), equalTo(List.of(freeId)));
+        assertThat(ids(itemService.searchAfter("дрель", null, 5, false, period).getContent()),
+                equalTo(List.of(freeId)));
+    }
+
+    @Test
+    public void searchFiltersSeeItemsWrittenElsewhereTest() {
+        User owner = userRepository.findById(1L).orElseThrow();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            items.add(new Item(0, "Дрель " + i, "Простая", i % 2 == 0, owner));
+        }
+        itemRepository.saveAll(items);
+
+        assertThat(ids(itemService.search("дрель", 10, 5, false, new ItemSearchFilter(1L, false))),
+                equalTo(List.of(21L, 23L, 25L, 27L, 29L)));
+        assertThat(ids(itemService.searchAfter("дрель", Cursor.decode(Cursor.encode(1195L)), 5, false,
+                new ItemSearchFilter(1L, null)).getContent()), equalTo(List.of(1197L, 1199L)));
+    }
+
+    @Test
+    public void searchCacheHitAndInvalidationTest() {
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Простая дрель", true));
+        itemService.add(1L, new ItemDto(2L, "Пила", "Ручная", true));
+
+        assertThat(ids(itemService.search("Дрель", null, null)), equalTo(List.of(1L)));
+        assertThat(ids(itemService.search(" дрель ", null, null)), equalTo(List.of(1L)));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "hit")
+                .functionCounter().count(), equalTo(1.0));
+
+        itemService.patch(1L, 2L, new ItemDto(2L, "Пила и дрель", null, null));
+        assertThat(ids(itemService.search("дрель", null, null)), equalTo(List.of(1L, 2L)));
+
+        itemService.patch(1L, 1L, new ItemDto(1L, null, null, false));
+        assertThat(ids(itemService.search("дрель", null, null)), equalTo(List.of(2L)));
+    }
+
+    // В PostgreSQL запрос "дрели" находит вещь "Дрель" по общей основе слова, хотя подстрокой ее текста не является,
+    // поэтому добавление такой вещи должно сбрасывать страницу этого запроса.
+    @Test
+    public void searchCacheEvictedByStemmedMatchTest() {
+        assertThat(itemService.search("дрели", null, null).size(), equalTo(0));
+        assertThat(itemService.search("дрели", null, null).size(), equalTo(0));
+
+        itemService.add(1L, new ItemDto(1L, "Дрель", "Ударная", true));
+        itemService.search("дрели", null, null);
+
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "hit")
+                .functionCounter().count(), equalTo(1.0));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "miss")
+                .functionCounter().count(), equalTo(2.0));
+    }
+
+    // Короткое слово текста совпадает со словом запроса по своей длине: "на" может найти "набор".
+    @Test
+    public void searchCacheEvictedByShortWordTest() {
+        itemService.search("набор", null, null);
+        itemService.search("пила", null, null);
+
+        itemService.add(1L, new ItemDto(1L, "Ключ", "Гаечный на 10", true));
+        itemService.search("набор", null, null);
+        itemService.search("пила", null, null);
+
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "hit")
+                .functionCounter().count(), equalTo(1.0));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "miss")
+                .functionCounter().count(), equalTo(3.0));
+    }
+
+    // Изменение вещи сбрасывает только поиски, на которые она может повлиять: страница "пила" переживает
+    // добавление дрели, а страница "дрель" сбрасывается, когда из ее выдачи пропадает вещь.
+    @Test
+    public void searchCacheKeepsUnrelatedQueriesTest() {
+        long sawId = itemService.add(1L, new ItemDto(1L, "Пила", "Ручная", true)).getId();
+        long drillId = itemService.add(1L, new ItemDto(2L, "Дрель", "Простая", true)).getId();
+        itemService.search("пила", null, null);
+        itemService.search("дрель", null, null);
+
+        itemService.add(1L, new ItemDto(3L, "Дрель ударная", "Для бетона", true));
+        itemService.patch(1L, drillId, new ItemDto(drillId, "Шуруповерт", null, null));
+
+        assertThat(ids(itemService.search("пила", null, null)), equalTo(List.of(sawId)));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "hit")
+                .functionCounter().count(), equalTo(1.0));
+        assertThat(ids(itemService.search("дрель", null, null)), equalTo(List.of(3L)));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemSearch", "result", "miss")
+                .functionCounter().count(), equalTo(3.0));
+    }
+
+    @Test
+    public void suggestAvailableNamesByPrefixTest() {
+        itemService.add(1L, new ItemDto(1L, "Дрель ударная", "Для бетона", true));
+        itemService.add(1L, new ItemDto(2L, "Дрель ударная", "Вторая такая же", true));
+        itemService.add(1L, new ItemDto(3L, "Дрель", "Простая дрель", true));
+        long hiddenId = itemService.add(1L, new ItemDto(4L, "Дрель-миксер", "Для раствора", false)).getId();
+        long renamedId = itemService.add(1L, new ItemDto(5L, "Лопата", "Штыковая", true)).getId();
+
+        assertThat(itemService.suggest("ДР", 10), equalTo(List.of("Дрель ударная", "Дрель")));
+        assertThat(itemService.suggest("дрель", 1), equalTo(List.of("Дрель ударная")));
+        assertThat(itemService.suggest("уда", 10), equalTo(List.of("Дрель ударная")));
+        assertThat(itemService.suggest("мик", 10).size(), equalTo(0));
+
+        itemService.patch(1L, hiddenId, new ItemDto(hiddenId, null, null, true));
+        itemService.patch(1L, renamedId, new ItemDto(renamedId, "Домкрат", null, null));
+
+        assertThat(itemService.suggest("миксер", 10), equalTo(List.of("Дрель-миксер")));
+        assertThat(itemService.suggest("д", 10),
+                equalTo(List.of("Дрель ударная", "Домкрат", "Дрель", "Дрель-миксер")));
+        assertThat(itemService.suggest("лоп", 10).size(), equalTo(0));
+    }
+
+    @Test
+    public void getAvailabilityTestIsOk() {
+        userService.add(new UserDto(2L, "booker@email.com", "booker"));
+        itemService.add(1L, new ItemDto(1L, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true));
+
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+        bookingService.add(2L, new AddBookingDto(1L, start, start.plusDays(1)));
+        bookingService.patch(1L, 1L, true);
+        bookingService.add(2L, new AddBookingDto(1L, start.plusDays(1), start.plusDays(2)));
+        bookingService.add(2L, new AddBookingDto(1L, start.plusDays(5), start.plusDays(6)));
+        bookingService.patch(3L, 1L, false);
+
+        LocalDateTime from = start.minusHours(12);
+        LocalDateTime to = start.plusDays(3);
+        ItemAvailabilityDto approvedOnly = itemService.getAvailability(1L, from, to, false);
+        ItemAvailabilityDto withWaiting = itemService.getAvailability(1L, from, to, true);
+
+        assertThat(approvedOnly.getBusy(), equalTo(List.of(new AvailabilityIntervalDto(start, start.plusDays(1)))));
+        assertThat(approvedOnly.getFree(), equalTo(List.of(new AvailabilityIntervalDto(from, start),
+                new AvailabilityIntervalDto(start.plusDays(1), to))));
+        assertThat(withWaiting.getBusy(), equalTo(List.of(new AvailabilityIntervalDto(start, start.plusDays(2)))));
+        assertThat(withWaiting.getFree(), equalTo(List.of(new AvailabilityIntervalDto(from, start),
+                new AvailabilityIntervalDto(start.plusDays(2), to))));
+    }
+
+    // Подтверждение, выполненное другим экземпляром сервиса, видно в календаре занятости и при новой заявке.
+    @Test
+    public void getAvailabilitySeesBookingsWrittenElsewhereTest() {
+        LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+        User booker = userRepository.save(new User(0, "booker@email.com", "booker"));
+        long itemId = itemService.add(1L, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+        saveBooking(itemRepository.findById(itemId).orElseThrow(), booker, start);
+
+        ItemAvailabilityDto availability = itemService.getAvailability(itemId, start.minusHours(1), start.plusHours(3),
+                false);
+
+        assertThat(availability.getBusy(), equalTo(List.of(new AvailabilityIntervalDto(start, start.plusHours(1)))));
+        assertThatThrownBy(() -> bookingService.add(booker.getId(), new AddBookingDto(itemId, start.plusMinutes(30),
+                start.plusHours(2)))).isInstanceOf(ValidationBookingDtoException.class);
+    }
+
     @Test
     public void addCommentTestIsOk() throws InterruptedException {
         ItemDto itemDto = new ItemDto(1L, "Очень необходимая вещь", "Очень необходимая вещь для чего-то важного", true);
@@ -355,4 +660,122 @@ public class ItemServiceTest {
         assertThat(itemDtoFromBD.size(), equalTo(1));
     }
 
+    @Test
+    public void getAllByIdUserLoadsBookingsAndCommentsForEveryItemTest() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        User owner = entityManager.find(User.class, 1L);
+        User booker = userRepository.save(new User(0, "user2@email.com", "name2"));
+        Item first = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+        Item second = itemRepository.save(new Item(0, "Отвертка", "Простая отвертка", true, owner));
+        Item third = itemRepository.save(new Item(0, "Пила", "Простая пила", true, owner));
+
+        long firstPast = saveBooking(first, booker, now.minusDays(3)).getId();
+        saveBooking(first, booker, now.minusDays(1));
+        long firstNext = saveBooking(first, booker, now.plusDays(1)).getId();
+        saveBooking(first, booker, now.plusDays(2));
+        long secondOnly = saveBooking(second, booker, now.plusDays(5)).getId();
+        commentRepository.save(new Comment("Отличная дрель", booker, first, now));
+        commentRepository.save(new Comment("Дрель сломалась", booker, first, now));
+
+        List<ItemDto> itemDtoList = itemService.getAllByIdUser(owner.getId(), null, null);
+
+        assertThat(itemDtoList.size(), equalTo(3));
+        ItemDto firstDto = itemDtoList.get(0);
+        assertThat(firstDto.getId(), equalTo(first.getId()));
+        assertThat(firstDto.getLastBooking().getId(), equalTo(firstPast));
+        assertThat(firstDto.getNextBooking().getId(), equalTo(firstNext));
+        assertThat(firstDto.getComments().size(), equalTo(2));
+
+        ItemDto secondDto = itemDtoList.get(1);
+        assertThat(secondDto.getLastBooking().getId(), equalTo(secondOnly));
+        assertThat(secondDto.getNextBooking().getId(), equalTo(secondOnly));
+        assertThat(secondDto.getComments().size(), equalTo(0));
+
+        ItemDto thirdDto = itemDtoList.get(2);
+        assertThat(thirdDto.getId(), equalTo(third.getId()));
+        assertThat(thirdDto.getLastBooking(), nullValue());
+        assertThat(thirdDto.getNextBooking(), nullValue());
+        assertThat(thirdDto.getComments().size(), equalTo(0));
+    }
+
+    @Test
+    public void getByIdReturnsCommentsAndBookingsOnlyToOwnerTest() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        User owner = entityManager.find(User.class, 1L);
+        User booker = userRepository.save(new User(0, "user2@email.com", "name2"));
+        Item item = itemRepository.save(new Item(0, "Дрель", "Простая дрель", true, owner));
+
+        long lastId = saveBooking(item, booker, now.minusDays(2)).getId();
+        long nextId = saveBooking(item, booker, now.plusDays(1)).getId();
+        saveBooking(item, booker, now.plusDays(3));
+        commentRepository.save(new Comment("Отличная дрель", booker, item, now.minusDays(1)));
+        commentRepository.save(new Comment("Дрель сломалась", booker, item, now));
+
+        ItemDto ownerView = itemService.getById(item.getId(), owner.getId());
+
+        assertThat(ownerView.getName(), equalTo("Дрель"));
+        assertThat(ownerView.getLastBooking().getId(), equalTo(lastId));
+        assertThat(ownerView.getLastBooking().getBookerId(), equalTo(booker.getId()));
+        assertThat(ownerView.getNextBooking().getId(), equalTo(nextId));
+        assertThat(ownerView.getComments().size(), equalTo(2));
+        assertThat(ownerView.getComments().get(0).getText(), equalTo("Отличная дрель"));
+        assertThat(ownerView.getComments().get(1).getAuthorName(), equalTo("name2"));
+
+        ItemDto bookerView = itemService.getById(item.getId(), booker.getId());
+
+        assertThat(bookerView.getLastBooking(), nullValue());
+        assertThat(bookerView.getNextBooking(), nullValue());
+        assertThat(bookerView.getComments().size(), equalTo(2));
+    }
+
+    @Test
+    public void getByIdCachesDetailAndInvalidatesOnChangesTest() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long itemId = itemService.add(1L, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+        long bookerId = userService.add(new UserDto(0, "user2@email.com", "name2")).getId();
+
+        assertThat(itemService.getById(itemId, bookerId).getComments().size(), equalTo(0));
+        Item item = itemRepository.findById(itemId).orElseThrow();
+        long lastId = saveBooking(item, userRepository.findById(bookerId).orElseThrow(), now.minusDays(1)).getId();
+
+        assertThat(itemService.getById(itemId, 1L).getLastBooking().getId(), equalTo(lastId));
+        assertThat(itemService.getById(itemId, bookerId).getLastBooking(), nullValue());
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemDetail", "result", "hit")
+                .functionCounter().count(), equalTo(2.0));
+
+        itemService.addComment(bookerId, itemId, new AddCommentDto("Отличная дрель"));
+        assertThat(itemService.getById(itemId, bookerId).getComments().get(0).getAuthorName(), equalTo("name2"));
+
+        long otherItemId = itemService.add(1L, new ItemDto(0, "Пила", "Ручная", true)).getId();
+        itemService.getById(otherItemId, bookerId);
+        double hits = meterRegistry.get("cache.gets").tags("cache", "itemDetail", "result", "hit")
+                .functionCounter().count();
+
+        userService.patch(bookerId, new UserDto(0, null, "Иван"));
+        assertThat(itemService.getById(itemId, 1L).getComments().get(0).getAuthorName(), equalTo("Иван"));
+        itemService.getById(otherItemId, bookerId);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "itemDetail", "result", "hit")
+                .functionCounter().count(), equalTo(hits + 1));
+
+        itemService.patch(1L, itemId, new ItemDto(itemId, "Дрель ударная", null, null));
+        ItemDto ownerView = itemService.getById(itemId, 1L);
+        assertThat(ownerView.getName(), equalTo("Дрель ударная"));
+        assertThat(ownerView.getLastBooking().getId(), equalTo(lastId));
+        assertThat(itemService.getById(itemId, bookerId).getLastBooking(), nullValue());
+    }
+
+    private Booking saveBooking(Item item, User booker, LocalDateTime start) {
+        return bookingRepository.save(Booking.builder()
+                .start(start)
+                .end(start.plusHours(1))
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .ownerId(item.getOwner().getId())
+                .build());
+    }
+
+    private static List<Long> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,144 @@
+package ru.practicum.shareit.item;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.repositories.ItemRepository;
+import ru.practicum.shareit.item.search.ItemTermDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.mockito.Mockito.mock;
+
+// Сравнивает исправление опечаток обходом словаря с автоматом Левенштейна и полный перебор словаря на синтетическом словаре
+// из случайных слов и печатает p50/p99 времени исправления одного слова и долю верных исправлений.
+@Slf4j
+public class ItemTermDictionaryBenchmarkTest {
+    private static final String ALPHABET = "абвгдежзийклмнопрстуфхцчшщъыьэюя";
+    private static final int VOCABULARY = 100_000;
+    private static final int QUERIES = 1_000;
+
+    private final Random random = new Random(42);
+    private final List<String> vocabulary = new ArrayList<>();
+    private ItemTermDictionary dictionary;
+
+    @BeforeEach
+    void setup() {
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < VOCABULARY) {
+            words.add(randomWord(5 + random.nextInt(6)));
+        }
+        vocabulary.addAll(words);
+
+        dictionary = new ItemTermDictionary(mock(ItemRepository.class), 20000);
+        for (String word : vocabulary) {
+            dictionary.replace(null, word);
+        }
+    }
+
+    @Test
+    public void fuzzyCorrectionLatencyTest() {
+        List<String> originals = new ArrayList<>();
+        List<String> typos = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            String original = vocabulary.get(random.nextInt(vocabulary.size()));
+            originals.add(original);
+            typos.add(misspell(original));
+        }
+
+        for (String typo : typos) {
+            dictionary.correct(typo);
+        }
+
+        long[] treeNanos = new long[QUERIES];
+        int treeHits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long startedAt = System.nanoTime();
+            String corrected = dictionary.correct(typos.get(i));
+            treeNanos[i] = System.nanoTime() - startedAt;
+            if (corrected.equals(originals.get(i))) {
+                treeHits++;
+            }
+        }
+
+        int scanQueries = QUERIES / 10;
+        long[] scanNanos = new long[scanQueries];
+        for (int i = 0; i < scanQueries; i++) {
+            long startedAt = System.nanoTime();
+            scan(typos.get(i));
+            scanNanos[i] = System.nanoTime() - startedAt;
+        }
+
+        Arrays.sort(treeNanos);
+        Arrays.sort(scanNanos);
+        log.info("Автомат Левенштейна, {} слов: p50 {} мкс, p99 {} мкс, исправлено верно {} из {}", VOCABULARY,
+                percentile(treeNanos, 50) / 1000, percentile(treeNanos, 99) / 1000, treeHits, QUERIES);
+        log.info("Полный перебор, {} слов: p50 {} мкс, p99 {} мкс", VOCABULARY,
+                percentile(scanNanos, 50) / 1000, percentile(scanNanos, 99) / 1000);
+        assertThat(treeHits, greaterThan(QUERIES * 9 / 10));
+    }
+
+    private String scan(String typo) {
+        String best = typo;
+        int bestDistance = Integer.MAX_VALUE;
+        for (String word : vocabulary) {
+            int distance = distance(typo, word);
+            if (distance < bestDistance) {
+                best = word;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static int distance(String first, String second) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    // Одна замена любой буквы, кроме первой: такая опечатка укладывается в допустимое расстояние
+    // при любой длине слова.
+    private String misspell(String word) {
+        char[] chars = word.toCharArray();
+        int position = 1 + random.nextInt(chars.length - 1);
+        char replacement;
+        do {
+            replacement = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        } while (replacement == chars[position]);
+        chars[position] = replacement;
+        return new String(chars);
+    }
+
+    private String randomWord(int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.shareit.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.AddBookingDto;
+import ru.practicum.shareit.booking.services.BookingService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.services.ItemService;
+import ru.practicum.shareit.outbox.enums.AggregateType;
+import ru.practicum.shareit.outbox.enums.OutboxEventType;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.repositories.OutboxEventRepository;
+import ru.practicum.shareit.outbox.services.OutboxDispatcher;
+import ru.practicum.shareit.outbox.sinks.InMemoryOutboxSink;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.services.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.services.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+@Transactional
+@SpringBootTest(
+        properties = {"db.name=test", "shareit.outbox.enabled=true", "shareit.outbox.interval=PT1H",
+                "shareit.outbox.sink=memory", "shareit.outbox.batch-size=2", "shareit.outbox.max-batches=2"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class OutboxDispatcherTest {
+    private final OutboxDispatcher outboxDispatcher;
+    private final OutboxEventRepository outboxEventRepository;
+    private final BookingService bookingService;
+    private final ItemService itemService;
+    private final ItemRequestService itemRequestService;
+    private final UserService userService;
+
+    @SpyBean
+    private InMemoryOutboxSink inMemoryOutboxSink;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(1);
+    private long ownerId;
+    private long bookerId;
+
+    @BeforeEach
+    void setup() {
+        ownerId = userService.add(new UserDto(0, "owner@email.com", "Owner")).getId();
+        bookerId = userService.add(new UserDto(0, "user@email.com", "name")).getId();
+    }
+
+    @Test
+    public void dispatchDeliversEventsInWriteOrderTest() {
+        long requestId = itemRequestService.add(bookerId, new ItemRequestDto("Нужна дрель")).getId();
+        ItemDto itemDto = new ItemDto(0, "Дрель", "Простая дрель", true);
+        itemDto.setRequestId(requestId);
+        long itemId = itemService.add(ownerId, itemDto).getId();
+        itemService.patch(ownerId, itemId, new ItemDto(0, "Дрель+", null, null));
+        long bookingId = bookingService.add(bookerId, new AddBookingDto(itemId, start, start.plusHours(1))).getId();
+        bookingService.patch(bookingId, ownerId, true);
+
+        // batch-size=2 и max-batches=2: за первый запуск доставляются четыре события, пятое - во втором.
+        outboxDispatcher.dispatch();
+        assertThat(inMemoryOutboxSink.getEvents(), hasSize(4));
+        assertThat(outboxEventRepository.findAll(), hasSize(1));
+        outboxDispatcher.dispatch();
+
+        List<OutboxEvent> events = inMemoryOutboxSink.getEvents();
+        assertThat(events.stream().map(OutboxEvent::getEventType).collect(Collectors.toList()),
+                contains(OutboxEventType.ITEM_REQUEST_CREATED, OutboxEventType.ITEM_CREATED,
+                        OutboxEventType.ITEM_UPDATED, OutboxEventType.BOOKING_CREATED,
+                        OutboxEventType.BOOKING_APPROVED));
+        assertThat(events.get(2).getAggregateType(), equalTo(AggregateType.ITEM));
+        assertThat(events.get(2).getAggregateId(), equalTo(itemId));
+        assertThat(events.get(2).getPayload(), containsString("Дрель+"));
+        assertThat(events.get(4).getAggregateId(), equalTo(bookingId));
+        assertThat(events.get(4).getPayload(), containsString("APPROVED"));
+
+        assertThat(outboxEventRepository.findAll(), empty());
+        assertThat(outboxDispatcher.getLagSeconds(), equalTo(0L));
+    }
+
+    @Test
+    public void batchBookingWritesEventPerAcceptedBookingTest() {
+        long itemId = itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая дрель", true)).getId();
+        List<AddBookingDto> addBookingDtoList = new ArrayList<>();
+        addBookingDtoList.add(new AddBookingDto(itemId, start, start.plusHours(1)));
+        addBookingDtoList.add(new AddBookingDto(itemId + 100, start, start.plusHours(1)));
+        addBookingDtoList.add(new AddBookingDto(itemId, start.plusDays(1), start.plusDays(1).plusHours(1)));
+        bookingService.addBatch(bookerId, addBookingDtoList);
+
+        List<OutboxEvent> bookingEvents = outboxEventRepository.findAll().stream()
+                .filter(event -> event.getAggregateType() == AggregateType.BOOKING)
+                .collect(Collectors.toList());
+        assertThat(bookingEvents, hasSize(2));
+        assertThat(bookingEvents.get(0).getEventType(), equalTo(OutboxEventType.BOOKING_CREATED));
+    }
+
+    @Test
+    public void failedSinkKeepsBatchForRedeliveryTest() {
+        itemService.add(ownerId, new ItemDto(0, "Дрель", "Простая дрель", true));
+        doThrow(new IllegalStateException("Получатель недоступен")).doCallRealMethod()
+                .when(inMemoryOutboxSink).send(anyList());
+
+        outboxDispatcher.dispatch();
+
+        assertThat(inMemoryOutboxSink.getEvents(), empty());
+        assertThat(outboxEventRepository.findAll(), hasSize(1));
+
+        outboxDispatcher.dispatch();
+
+        assertThat(inMemoryOutboxSink.getEvents(), hasSize(1));
+        assertThat(outboxEventRepository.findAll(), empty());
+    }
+}
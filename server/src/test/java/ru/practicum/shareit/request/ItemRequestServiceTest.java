@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.Cursor;
+import ru.practicum.shareit.CursorPage;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.exception.NoItemRequestException;
@@ -205,4 +207,26 @@ public class ItemRequestServiceTest {
         assertThat(itemRequestDtoList.get(0).getDescription(), equalTo(itemRequestDto.getDescription()));
     }
 
+    @Test
+    public void getAllByUserIdAfterCursorTestIsOk() {
+        UserDto ownerDto = new UserDto(1, "owner@email.com", "Owner");
+        UserDto userDto = new UserDto(2, "user@email.com", "name");
+        userService.add(ownerDto);
+        userService.add(userDto);
+
+        for (int i = 1; i <= 3; i++) {
+            itemRequestService.add(2L, new ItemRequestDto(i, "Необходима вещь " + i, null, List.of()));
+        }
+
+        CursorPage<ItemRequestDto> firstPage = itemRequestService.getAllByUserIdAfter(1L, null, 2);
+        CursorPage<ItemRequestDto> secondPage = itemRequestService.getAllByUserIdAfter(1L,
+                Cursor.decode(firstPage.getNextCursor()), 2);
+
+        assertThat(firstPage.getContent().size(), equalTo(2));
+        assertThat(firstPage.getContent().get(0).getDescription(), equalTo("Необходима вещь 1"));
+        assertThat(secondPage.getContent().size(), equalTo(1));
+        assertThat(secondPage.getContent().get(0).getDescription(), equalTo("Необходима вещь 3"));
+        assertThat(secondPage.getNextCursor(), equalTo(null));
+    }
+
 }